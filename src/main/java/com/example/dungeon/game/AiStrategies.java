@@ -0,0 +1,94 @@
+package com.example.dungeon.game;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * AiStrategies — реестр стратегий ИИ (ServiceLoader) и единая точка вызова с бюджетом времени.
+ *
+ * Бюджет строгий: ответ, пришедший позже дедлайна (с допуском LATE_TOLERANCE_NANOS на последнюю
+ * проверку часов внутри стратегии), отбрасывается, и играется первая карта руки — как у опоздавшего
+ * игрока. Так медленная стратегия не может "купить" силу временем. Зависшую стратегию этим не прервать:
+ * это задача потока, в котором она работает (пул ИИ-мест, поток ИИ в GameEngine).
+ */
+public final class AiStrategies {
+
+    public static final long LATE_TOLERANCE_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private static final Map<String, AiStrategyProvider> PROVIDERS = load();
+    private static final AtomicLong lateDecisions = new AtomicLong();
+
+    private AiStrategies() {
+    }
+
+    private static Map<String, AiStrategyProvider> load() {
+        Map<String, AiStrategyProvider> providers = new LinkedHashMap<>();
+        for (AiStrategyProvider provider : ServiceLoader.load(AiStrategyProvider.class)) {
+            AiStrategyProvider previous = providers.putIfAbsent(provider.getName(), provider);
+            if (previous != null) {
+                System.err.println("⚠ Стратегия ИИ '" + provider.getName() + "' объявлена дважды: "
+                    + previous.getClass().getName() + " и " + provider.getClass().getName());
+            }
+        }
+        return Collections.unmodifiableMap(providers);
+    }
+
+    public static Set<String> names() {
+        return PROVIDERS.keySet();
+    }
+
+    /**
+     * Новый экземпляр стратегии по имени.
+     */
+    public static AiStrategy create(String name, String rulesName) {
+        AiStrategyProvider provider = PROVIDERS.get(name);
+        if (provider == null) {
+            throw new IllegalArgumentException("Неизвестная стратегия ИИ '" + name + "', доступны: " + names());
+        }
+        return provider.create(rulesName);
+    }
+
+    /**
+     * Стратегия из -Ddungeon.ai.strategy.<rulesName>, иначе fallback.
+     */
+    public static AiStrategy configured(String rulesName, String fallback) {
+        String name = System.getProperty("dungeon.ai.strategy." + rulesName, fallback);
+        if (!PROVIDERS.containsKey(name)) {
+            System.err.println("❌ Стратегия ИИ '" + name + "' не найдена, используется '" + fallback + "'");
+            name = fallback;
+        }
+        System.out.println("🤖 Стратегия ИИ (" + rulesName + "): " + name);
+        return create(name, rulesName);
+    }
+
+    /**
+     * Решение стратегии с соблюдением дедлайна: опоздание или ошибка — первая карта руки.
+     */
+    public static Card decide(AiStrategy strategy, Player self, Player opponent, long deadlineNanos) {
+        Card card;
+        try {
+            card = strategy.chooseCard(self, opponent, deadlineNanos);
+        } catch (RuntimeException e) {
+            System.err.println("❌ Ошибка стратегии ИИ: " + e.getMessage());
+            return fallback(self);
+        }
+        if (isLate(deadlineNanos)) {
+            lateDecisions.incrementAndGet();
+            return fallback(self);
+        }
+        return card;
+    }
+
+    public static boolean isLate(long deadlineNanos) {
+        return System.nanoTime() - deadlineNanos > LATE_TOLERANCE_NANOS;
+    }
+
+    public static Card fallback(Player self) {
+        return self.getHand().isEmpty() ? null : self.getHand().get(0);
+    }
+
+    public static long getLateDecisions() {
+        return lateDecisions.get();
+    }
+}
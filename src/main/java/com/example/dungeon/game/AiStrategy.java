@@ -0,0 +1,16 @@
+package com.example.dungeon.game;
+
+/**
+ * Стратегия компьютерного противника: выбор карты из руки self.
+ *
+ * Контракт бюджета: реализация должна вернуть ответ до deadlineNanos (по System.nanoTime()).
+ * Вызывающий код не ждет опоздавших — см. AiStrategies.decide: поздний ответ заменяется ходом без раздумий.
+ * Реализация должна быть потокобезопасной: GameEngine зовет ее и из фонового перебора, и из потока хода ИИ.
+ */
+public interface AiStrategy {
+
+    /**
+     * Выбранная карта из руки self или null, если рука пуста.
+     */
+    Card chooseCard(Player self, Player opponent, long deadlineNanos);
+}
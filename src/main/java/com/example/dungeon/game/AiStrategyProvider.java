@@ -0,0 +1,19 @@
+package com.example.dungeon.game;
+
+/**
+ * Поставщик стратегии ИИ для ServiceLoader. Сторонняя стратегия подключается jar-ом с
+ * META-INF/services/com.example.dungeon.game.AiStrategyProvider (или provides в module-info)
+ * и выбирается по имени: -Ddungeon.ai.strategy=<имя>, арена — --strategies <имя>,...
+ */
+public interface AiStrategyProvider {
+
+    /**
+     * Уникальное имя стратегии (латиницей, без пробелов).
+     */
+    String getName();
+
+    /**
+     * Новый экземпляр стратегии для правил "engine" или "network" (см. CardRules.byName).
+     */
+    AiStrategy create(String rulesName);
+}
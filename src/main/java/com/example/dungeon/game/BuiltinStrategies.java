@@ -0,0 +1,69 @@
+package com.example.dungeon.game;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Встроенные стратегии ИИ (регистрируются через ServiceLoader, как и сторонние):
+ *  random    — случайная карта из руки
+ *  greedy    — OpponentAI на один полуход с эвристикой evaluate()
+ *  model     — OpponentAI на один полуход с EvalModel и таблицей эндшпиля (если они есть)
+ *  lookahead — OpponentAI на два полухода с EvalModel и таблицей эндшпиля
+ */
+public final class BuiltinStrategies {
+
+    private BuiltinStrategies() {
+    }
+
+    static EvalModel model(String rulesName) {
+        return "network".equals(rulesName) ? EvalModel.NETWORK : EvalModel.ENGINE;
+    }
+
+    static Tablebase tablebase(String rulesName) {
+        return "network".equals(rulesName) ? Tablebase.NETWORK : Tablebase.ENGINE;
+    }
+
+    public static class Random implements AiStrategyProvider {
+        @Override
+        public String getName() { return "random"; }
+
+        @Override
+        public AiStrategy create(String rulesName) {
+            return (self, opponent, deadline) -> {
+                List<Card> hand = self.getHand();
+                return hand.isEmpty() ? null : hand.get(ThreadLocalRandom.current().nextInt(hand.size()));
+            };
+        }
+    }
+
+    public static class Greedy implements AiStrategyProvider {
+        @Override
+        public String getName() { return "greedy"; }
+
+        @Override
+        public AiStrategy create(String rulesName) {
+            return new OpponentAI(CardRules.byName(rulesName));
+        }
+    }
+
+    public static class Model implements AiStrategyProvider {
+        @Override
+        public String getName() { return "model"; }
+
+        @Override
+        public AiStrategy create(String rulesName) {
+            return new OpponentAI(CardRules.byName(rulesName), model(rulesName), tablebase(rulesName));
+        }
+    }
+
+    public static class Lookahead implements AiStrategyProvider {
+        @Override
+        public String getName() { return "lookahead"; }
+
+        @Override
+        public AiStrategy create(String rulesName) {
+            OpponentAI ai = new OpponentAI(CardRules.byName(rulesName), model(rulesName), tablebase(rulesName));
+            return ai::chooseCardLookahead;
+        }
+    }
+}
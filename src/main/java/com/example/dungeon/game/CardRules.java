@@ -0,0 +1,19 @@
+package com.example.dungeon.game;
+
+/**
+ * Правила применения карт. Реализация меняет состояние игроков и возвращает описание действия.
+ */
+public interface CardRules {
+
+    NetworkCardRules NETWORK = new NetworkCardRules();
+    CardRules ENGINE = new EngineCardRules();
+
+    String apply(Card card, Player caster, Player target);
+
+    /**
+     * Правила по имени для инструментов и файлов весов/таблиц: "network" или "engine".
+     */
+    static CardRules byName(String name) {
+        return "network".equals(name) ? NETWORK : ENGINE;
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.dungeon.game;
+
+import lombok.Getter;
+
+import java.io.Serializable;
+import java.util.Locale;
+
+/**
+ * Числовые параметры персонажа: здоровье и множители. По умолчанию берутся из CharacterType,
+ * но игроку можно выдать другие — так инструмент баланса проверяет варианты, не трогая enum.
+ */
+@Getter
+public final class CharacterStats implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final int baseHealth;
+    private final double attackMultiplier;
+    private final double defenseMultiplier;
+    private final double healMultiplier;
+
+    public CharacterStats(int baseHealth, double attackMultiplier, double defenseMultiplier, double healMultiplier) {
+        this.baseHealth = baseHealth;
+        this.attackMultiplier = attackMultiplier;
+        this.defenseMultiplier = defenseMultiplier;
+        this.healMultiplier = healMultiplier;
+    }
+
+    public static CharacterStats of(CharacterType character) {
+        return new CharacterStats(character.getBaseHealth(), character.getAttackMultiplier(),
+            character.getDefenseMultiplier(), character.getHealMultiplier());
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT, "hp=%d atk=%.2f def=%.2f heal=%.2f",
+            baseHealth, attackMultiplier, defenseMultiplier, healMultiplier);
+    }
+}
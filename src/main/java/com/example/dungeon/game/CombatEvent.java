@@ -0,0 +1,92 @@
+package com.example.dungeon.game;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.ResourceBundle;
+
+/**
+ * Итог применения карты в компактном виде: int[]{тип карты, место, персонаж, величина}.
+ *
+ * По сети идет именно массив (COMBAT_EVENT) — сервер не собирает строк, которые сам не читает,
+ * а текст по шаблону строит получатель. Шаблоны — в ResourceBundle i18n/combat (ключ — имя CardType,
+ * {0} — игрок, {1} — персонаж, {2} — величина), перевод — еще один файл combat_xx.properties рядом,
+ * без изменений в коде и протоколе.
+ *
+ * Шаблоны разбираются один раз при загрузке класса: тем же текстом пользуются CardRules.NETWORK.apply()
+ * в симуляциях ИИ, и разбирать шаблон на каждый ход там слишком дорого.
+ */
+public final class CombatEvent {
+
+    public static final int TYPE = 0;
+    public static final int SEAT = 1;
+    public static final int CHARACTER = 2;
+    public static final int AMOUNT = 3;
+
+    private static final Object[] PLAYER;
+    private static final Map<CardType, Object[]> TEMPLATES = new EnumMap<>(CardType.class);
+
+    static {
+        ResourceBundle bundle = ResourceBundle.getBundle("i18n.combat");
+        PLAYER = parse(bundle.getString("player"));
+        for (CardType type : CardType.values()) {
+            if (bundle.containsKey(type.name())) TEMPLATES.put(type, parse(bundle.getString(type.name())));
+        }
+    }
+
+    private CombatEvent() {}
+
+    public static int[] of(Card card, int seat, Player caster, int amount) {
+        return new int[]{card.getType().ordinal(), seat, caster.getCharacter().ordinal(), amount};
+    }
+
+    /**
+     * Текст события; имя игрока — по месту, как его называет сервер ("Игрок 1").
+     */
+    public static String render(int[] event) {
+        String name = format(PLAYER, String.valueOf(event[SEAT]));
+        return render(CardType.values()[event[TYPE]], name,
+            CharacterType.values()[event[CHARACTER]].getName(), event[AMOUNT]);
+    }
+
+    /**
+     * Текст по тем же шаблонам для известного игрока (правила без сервера: ИИ, lockstep).
+     */
+    public static String render(CardType type, Player caster, int amount) {
+        return render(type, caster.getName(), caster.getCharacter().getName(), amount);
+    }
+
+    private static String render(CardType type, String name, String character, int amount) {
+        Object[] template = TEMPLATES.get(type);
+        if (template == null) return ""; // карта без эффекта в этих правилах
+        return format(template, name, character, String.valueOf(amount));
+    }
+
+    private static String format(Object[] template, String... args) {
+        StringBuilder text = new StringBuilder(64);
+        for (Object part : template) {
+            if (part instanceof Integer index) text.append(args[index]);
+            else text.append((String) part);
+        }
+        return text.toString();
+    }
+
+    /**
+     * Шаблон в части: строки как есть, {n} — номер аргумента.
+     */
+    private static Object[] parse(String template) {
+        List<Object> parts = new ArrayList<>();
+        int from = 0;
+        int open;
+        while ((open = template.indexOf('{', from)) >= 0) {
+            int close = template.indexOf('}', open);
+            if (close < 0) break;
+            if (open > from) parts.add(template.substring(from, open));
+            parts.add(Integer.parseInt(template.substring(open + 1, close)));
+            from = close + 1;
+        }
+        if (from < template.length()) parts.add(template.substring(from));
+        return parts.toArray();
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.dungeon.game;
+
+import java.util.List;
+import java.util.Random;
+
+/**
+ * DuelSimulator — быстрая безголовая дуэль двух стратегий по правилам CardRules.
+ * Без UI, слушателей и задержек: нужна для самоигры, генерации таблиц, подбора баланса и турниров ИИ.
+ *
+ * Модель партии общая для всех инструментов: у каждого HAND_SIZE случайных карт, перед ходом
+ * игрок добирает карту (до HAND_LIMIT), затем играет одну карту из руки. Первым ходит игрок 1.
+ */
+public class DuelSimulator {
+
+    public static final int HAND_SIZE = 5;
+    public static final int HAND_LIMIT = 7;
+    public static final int DEFAULT_MAX_TURNS = 200;
+
+    /**
+     * Стратегия: выбирает карту из руки self (рука не пуста).
+     */
+    public interface Policy {
+        Card choose(Player self, Player opponent, Random rnd);
+    }
+
+    /**
+     * Наблюдатель: вызывается перед каждым ходом (mover — кто ходит, рука уже с добором).
+     */
+    public interface Observer {
+        void beforeMove(Player mover, Player other, int turn);
+    }
+
+    // По одной карте каждого типа: добор без лишних аллокаций, имена в симуляции не нужны
+    private static final Card[] DRAW_POOL;
+    static {
+        CardType[] types = CardType.values();
+        DRAW_POOL = new Card[types.length];
+        for (int i = 0; i < types.length; i++) {
+            DRAW_POOL[i] = new Card(types[i], types[i].getDisplayName());
+        }
+    }
+
+    private final CardRules rules;
+    private final int maxTurns;
+
+    public DuelSimulator(CardRules rules) {
+        this(rules, DEFAULT_MAX_TURNS);
+    }
+
+    public DuelSimulator(CardRules rules, int maxTurns) {
+        this.rules = rules;
+        this.maxTurns = maxTurns;
+    }
+
+    public CardRules getRules() {
+        return rules;
+    }
+
+    /**
+     * Случайная карта из колоды добора (равновероятно по типам, как на сервере).
+     */
+    public static Card drawCard(Random rnd) {
+        return DRAW_POOL[rnd.nextInt(DRAW_POOL.length)];
+    }
+
+    public static Player newPlayer(String name, CharacterType character, Random rnd) {
+        Player player = new Player(name, character);
+        for (int i = 0; i < HAND_SIZE; i++) {
+            player.getHand().add(drawCard(rnd));
+        }
+        return player;
+    }
+
+    /**
+     * Играет партию до конца. Возвращает 1 или 2 — номер победителя, 0 — ничья (оба пали или лимит ходов).
+     */
+    public int play(CharacterType character1, CharacterType character2, Policy policy1, Policy policy2,
+                    Random rnd, Observer observer) {
+        return play(newPlayer("Игрок 1", character1, rnd), newPlayer("Игрок 2", character2, rnd),
+            policy1, policy2, rnd, observer);
+    }
+
+    /**
+     * Доигрывает партию из заданной позиции (player1 ходит). Игроки изменяются.
+     */
+    public int play(Player player1, Player player2, Policy policy1, Policy policy2, Random rnd, Observer observer) {
+        for (int turn = 0; turn < maxTurns; turn++) {
+            boolean first = (turn % 2 == 0);
+            Player mover = first ? player1 : player2;
+            Player other = first ? player2 : player1;
+
+            List<Card> hand = mover.getHand();
+            if (hand.size() < HAND_LIMIT) hand.add(drawCard(rnd));
+            if (observer != null) observer.beforeMove(mover, other, turn);
+
+            Card card = (first ? policy1 : policy2).choose(mover, other, rnd);
+            hand.remove(card);
+            rules.apply(card, mover, other);
+
+            boolean alive1 = player1.isAlive();
+            boolean alive2 = player2.isAlive();
+            if (!alive1 || !alive2) {
+                return alive1 ? 1 : alive2 ? 2 : 0;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Случайная карта из руки.
+     */
+    public static Policy randomPolicy() {
+        return (self, opponent, rnd) -> self.getHand().get(rnd.nextInt(self.getHand().size()));
+    }
+}
@@ -0,0 +1,123 @@
+package com.example.dungeon.game;
+
+/**
+ * Правила одиночной игры (GameEngine): эффекты карт с учетом множителей персонажа.
+ * Отличаются от сетевых (NetworkCardRules) двойной атакой, яростью берсерка и т.д.
+ */
+public class EngineCardRules implements CardRules {
+
+    @Override
+    public String apply(Card card, Player caster, Player target) {
+        StringBuilder actionMessage = new StringBuilder();
+
+        switch (card.getType()) {
+            case ATTACK:
+                int baseDamage = card.getValue();
+                int actualDamage = caster.calculateAttackDamage(baseDamage);
+                target.takeDamage(actualDamage);
+
+                actionMessage.append("⚔ ").append(caster.getCharacter().getName())
+                    .append(" атакует! Нанесено ").append(actualDamage).append(" урона.");
+                break;
+
+            case DEFEND:
+                int baseShield = card.getValue();
+                int actualShield = caster.calculateShield(baseShield);
+                caster.addShield(actualShield);
+
+                actionMessage.append("🛡 ").append(caster.getCharacter().getName())
+                    .append(" ставит щит! +").append(actualShield).append(" защиты.");
+                break;
+
+            case HEAL:
+                int baseHeal = card.getValue();
+                int actualHeal = caster.calculateHealing(baseHeal);
+                caster.heal(actualHeal);
+
+                actionMessage.append("❤ ").append(caster.getCharacter().getName())
+                    .append(" лечится! +").append(actualHeal).append(" здоровья.");
+                break;
+
+            case DOUBLE_ATTACK:
+                // Двойная атака: наносит урон дважды
+                int doubleDamage = caster.calculateAttackDamage(card.getValue());
+                target.takeDamage(doubleDamage);
+                // Второй удар
+                target.takeDamage(doubleDamage / 2); // Второй удар слабее
+
+                actionMessage.append("⚔⚔ ").append(caster.getCharacter().getName())
+                    .append(" проводит двойную атаку! Нанесено ").append(doubleDamage + doubleDamage / 2).append(" урона.");
+                break;
+
+            case SUPER_SHIELD:
+                int superShield = caster.calculateShield(card.getValue() * 2);
+                caster.addShield(superShield);
+
+                actionMessage.append("🛡🛡 ").append(caster.getCharacter().getName())
+                    .append(" создает супер щит! +").append(superShield).append(" защиты.");
+                break;
+
+            case ULTIMATE_HEAL:
+                int ultimateHeal = caster.calculateHealing(card.getValue() * 2);
+                caster.heal(ultimateHeal);
+
+                actionMessage.append("❤❤ ").append(caster.getCharacter().getName())
+                    .append(" использует супер лечение! +").append(ultimateHeal).append(" здоровья.");
+                break;
+
+            case BERSERK_RAGE:
+                // Ярость берсерка: много урона, но и сам получает урон
+                int rageDamage = caster.calculateAttackDamage(card.getValue() * 2);
+                target.takeDamage(rageDamage);
+                caster.takeDamage(2); // Сам получает урон
+
+                actionMessage.append("😡 ").append(caster.getCharacter().getName())
+                    .append(" впадает в ярость! Нанесено ").append(rageDamage)
+                    .append(" урона, но сам получил 2 урона.");
+                break;
+
+            case HOLY_LIGHT:
+                // Святой свет: лечение и защита
+                int holyHeal = caster.calculateHealing(card.getValue());
+                caster.heal(holyHeal);
+                caster.addShield(2);
+
+                actionMessage.append("✨ ").append(caster.getCharacter().getName())
+                    .append(" использует святой свет! +").append(holyHeal)
+                    .append(" здоровья и +2 защиты.");
+                break;
+
+            case BACKSTAB:
+                // Удар в спину: игнорирует часть защиты
+                int backstabDamage = caster.calculateAttackDamage(card.getValue());
+                int currentShield = target.getShield();
+                if (currentShield > 0) {
+                    target.setShield(currentShield / 2); // Уменьшает щит вдвое
+                }
+                target.takeDamage(backstabDamage);
+
+                actionMessage.append("🗡️ ").append(caster.getCharacter().getName())
+                    .append(" наносит удар в спину! Пробивает защиту и наносит ")
+                    .append(backstabDamage).append(" урона.");
+                break;
+
+            case FIREBALL:
+                // Огненный шар: урон по всем (в будущем для многопользовательской игры)
+                int fireDamage = caster.calculateAttackDamage(card.getValue());
+                target.takeDamage(fireDamage);
+
+                actionMessage.append("🔥 ").append(caster.getCharacter().getName())
+                    .append(" бросает огненный шар! Нанесено ").append(fireDamage).append(" урона.");
+                break;
+
+            default:
+                // Для других типов карт - базовая атака
+                int defaultDamage = caster.calculateAttackDamage(card.getValue());
+                target.takeDamage(defaultDamage);
+                actionMessage.append(caster.getCharacter().getName()).append(" использует ").append(card.getName());
+                break;
+        }
+
+        return actionMessage.toString();
+    }
+}
@@ -0,0 +1,147 @@
+package com.example.dungeon.game;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+/**
+ * EvalModel — обученная оценка позиции: логистическая регрессия над небольшим набором признаков.
+ * Веса — плоский массив float, выгружается SelfPlayTrainer'ом. Оценка не создает объектов:
+ * признаки считаются прямо из полей игроков и сразу умножаются на веса.
+ *
+ * Формат файла: [int MAGIC][int число весов][float веса...]
+ */
+public final class EvalModel {
+
+    static final int MAGIC = 0x444D4556; // "DMEV"
+
+    private static final int CHARACTERS = CharacterType.values().length;
+    private static final int CARD_TYPES = CardType.values().length;
+
+    /**
+     * Признаки (с точки зрения того, кто ходит): смещение, HP и щиты обоих, "близость смерти"
+     * (1/(1+HP)) обоих, размеры рук, персонажи обоих (one-hot) и число карт каждого типа в руке ходящего.
+     */
+    public static final int FEATURES = 1 + 8 + 2 * CHARACTERS + CARD_TYPES;
+
+    // Модели по умолчанию для правил одиночной и сетевой игры (null — файла весов нет, ИИ использует эвристику)
+    public static final EvalModel ENGINE = loadDefault("engine");
+    public static final EvalModel NETWORK = loadDefault("network");
+
+    private final float[] weights;
+
+    public EvalModel(float[] weights) {
+        if (weights.length != FEATURES) {
+            throw new IllegalArgumentException("Ожидалось " + FEATURES + " весов, получено " + weights.length);
+        }
+        this.weights = weights.clone();
+    }
+
+    /**
+     * Вероятность победы того, кто ходит (self), в позиции self против opponent.
+     */
+    public double winProbability(Player self, Player opponent) {
+        if (!opponent.isAlive()) return self.isAlive() ? 1 : 0;
+        if (!self.isAlive()) return 0;
+        double z = accumulate(self, opponent, weights, null);
+        return 1.0 / (1.0 + Math.exp(-z));
+    }
+
+    /**
+     * Заполняет out признаками позиции (для обучения).
+     */
+    public static void features(Player self, Player opponent, float[] out) {
+        accumulate(self, opponent, null, out);
+    }
+
+    /**
+     * Единственное место, где определены признаки: либо пишет их в out, либо сразу считает w·x.
+     */
+    private static double accumulate(Player self, Player opponent, float[] w, float[] out) {
+        double sum = 0;
+        int i = 0;
+
+        sum += put(w, out, i++, 1f);
+        sum += put(w, out, i++, self.getHealth() / 40f);
+        sum += put(w, out, i++, opponent.getHealth() / 40f);
+        sum += put(w, out, i++, self.getShield() / 20f);
+        sum += put(w, out, i++, opponent.getShield() / 20f);
+        sum += put(w, out, i++, 1f / (1 + self.getHealth()));
+        sum += put(w, out, i++, 1f / (1 + opponent.getHealth()));
+        sum += put(w, out, i++, self.getHand().size() / (float) DuelSimulator.HAND_LIMIT);
+        sum += put(w, out, i++, opponent.getHand().size() / (float) DuelSimulator.HAND_LIMIT);
+
+        int selfCharacter = self.getCharacter().ordinal();
+        int opponentCharacter = opponent.getCharacter().ordinal();
+        for (int c = 0; c < CHARACTERS; c++) {
+            sum += put(w, out, i++, c == selfCharacter ? 1f : 0f);
+        }
+        for (int c = 0; c < CHARACTERS; c++) {
+            sum += put(w, out, i++, c == opponentCharacter ? 1f : 0f);
+        }
+
+        // Состав руки: по индексу, без итератора
+        int handStart = i;
+        if (out != null) {
+            for (int t = 0; t < CARD_TYPES; t++) out[handStart + t] = 0;
+        }
+        List<Card> hand = self.getHand();
+        for (int h = 0, n = hand.size(); h < n; h++) {
+            int t = hand.get(h).getType().ordinal();
+            if (w != null) sum += w[handStart + t] / 3f;
+            if (out != null) out[handStart + t] += 1 / 3f;
+        }
+        return sum;
+    }
+
+    private static double put(float[] w, float[] out, int index, float value) {
+        if (out != null) out[index] = value;
+        return w != null ? w[index] * value : 0;
+    }
+
+    public float[] getWeights() {
+        return weights.clone();
+    }
+
+    // === Файлы весов ===
+
+    public void write(Path file) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(weights.length);
+            for (float weight : weights) {
+                out.writeFloat(weight);
+            }
+        }
+    }
+
+    public static EvalModel read(InputStream stream) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(stream));
+        if (in.readInt() != MAGIC) throw new IOException("Это не файл весов Dungeon Mayhem");
+        float[] weights = new float[in.readInt()];
+        for (int i = 0; i < weights.length; i++) {
+            weights[i] = in.readFloat();
+        }
+        return new EvalModel(weights);
+    }
+
+    /**
+     * Веса из файла dungeon.ai.weights.<name>, иначе из ресурса /ai/eval-<name>.bin; null, если их нет.
+     */
+    public static EvalModel loadDefault(String name) {
+        String path = System.getProperty("dungeon.ai.weights." + name);
+        try (InputStream in = path != null
+                ? Files.newInputStream(Paths.get(path))
+                : EvalModel.class.getResourceAsStream("/ai/eval-" + name + ".bin")) {
+            if (in == null) return null;
+            EvalModel model = read(in);
+            System.out.println("🧠 Загружены веса оценки ИИ: " + name);
+            return model;
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println("❌ Веса оценки ИИ (" + name + ") не загружены: " + e.getMessage());
+            return null;
+        }
+    }
+}
@@ -1,19 +1,40 @@
 package com.example.dungeon.game;
 
 import lombok.Setter;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Random;
+import java.util.*;
+import java.util.concurrent.*;
 
 /**
  * GameEngine — игровая логика, не зависит от JavaFX UI.
  * Теперь работает с персонажами и их множителями.
+ *
+ * Pondering: пока игрок думает, ИИ в фоне перебирает возможные ходы игрока и заранее находит
+ * лучший ответ на каждый. Если игрок сыграл карту из кэша — ответ готов сразу, иначе ИИ
+ * досчитывает его во время обычной паузы перед ходом.
  */
 public class GameEngine {
 
     private Player player;
     private Player opponent;
     private final Random rnd = new Random();
+    private final CardRules rules = CardRules.ENGINE;
+    // Стратегия ИИ: -Ddungeon.ai.strategy.engine=<имя>, по умолчанию поиск на два полухода
+    private final AiStrategy ai = AiStrategies.configured("engine", "lookahead");
+
+    // Пауза перед ходом ИИ, чтобы игрок успел увидеть свой ход
+    private static final long AI_MOVE_DELAY_MILLIS = 1400;
+    // Бюджет поиска одного ответа (и в фоне, и при промахе кэша)
+    private static final long REPLY_BUDGET_MILLIS = 300;
+
+    private ExecutorService ponderExecutor;
+    private Future<?> ponderTask;
+    // Лучший ответ ИИ по ключу карты игрока (тип + имя)
+    private final Map<String, Card> ponderCache = new ConcurrentHashMap<>();
+    // Номер позиции, для которой идет перебор: растет при каждой остановке, и запоздавший ответ
+    // прежнего перебора в кэш уже не попадет
+    private long ponderGeneration;
+    private int ponderHits;
+    private int ponderMisses;
 
     @Setter
     private GameEventListener listener;
@@ -49,6 +70,7 @@ public class GameEngine {
 
         isPlayerTurn = true;
         gameOver = false;
+        startPondering();
 
         if (listener != null) {
             // Отправляем информацию о персонажах
@@ -136,6 +158,9 @@ public class GameEngine {
                 return;
             }
 
+            // Готовый ответ ИИ (если фоновый поиск успел его найти); фон останавливаем в любом случае
+            Card ponderedReply = takePonderedReply(card);
+
             // Применяем эффект карты
             applyCardEffect(card, false);
 
@@ -150,12 +175,17 @@ public class GameEngine {
 
             // Запускаем ход противника с заметной задержкой
             new Thread(() -> {
-                try { Thread.sleep(1400); } catch (InterruptedException ignored) {}
-                opponentMakesMove();
+                long start = System.nanoTime();
+                // При промахе кэша ответ считается здесь — время поиска прячется в паузе
+                Card reply = ponderedReply != null ? ponderedReply : searchReply();
+                long spentMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                try { Thread.sleep(Math.max(0, AI_MOVE_DELAY_MILLIS - spentMillis)); } catch (InterruptedException ignored) {}
+                opponentMakesMove(reply);
                 try { Thread.sleep(800); } catch (InterruptedException ignored) {} // даём время показать ход
                 addRandomCardToHand();
                 isPlayerTurn = true;
                 if (listener != null) listener.onGameStatusUpdated("🎯 ВАШ ХОД");
+                startPondering();
             }, "AI-Move-Thread").start();
 
         } else {
@@ -169,115 +199,7 @@ public class GameEngine {
         Player caster = byOpponent ? opponent : player;
         Player target = byOpponent ? player : opponent;
 
-        StringBuilder actionMessage = new StringBuilder();
-
-        switch (card.getType()) {
-            case ATTACK:
-                int baseDamage = card.getValue();
-                int actualDamage = caster.calculateAttackDamage(baseDamage);
-                target.takeDamage(actualDamage);
-
-                actionMessage.append("⚔ ").append(caster.getCharacter().getName())
-                    .append(" атакует! Нанесено ").append(actualDamage).append(" урона.");
-                break;
-
-            case DEFEND:
-                int baseShield = card.getValue();
-                int actualShield = caster.calculateShield(baseShield);
-                caster.addShield(actualShield);
-
-                actionMessage.append("🛡 ").append(caster.getCharacter().getName())
-                    .append(" ставит щит! +").append(actualShield).append(" защиты.");
-                break;
-
-            case HEAL:
-                int baseHeal = card.getValue();
-                int actualHeal = caster.calculateHealing(baseHeal);
-                caster.heal(actualHeal);
-
-                actionMessage.append("❤ ").append(caster.getCharacter().getName())
-                    .append(" лечится! +").append(actualHeal).append(" здоровья.");
-                break;
-
-            case DOUBLE_ATTACK:
-                // Двойная атака: наносит урон дважды
-                int doubleDamage = caster.calculateAttackDamage(card.getValue());
-                target.takeDamage(doubleDamage);
-                // Второй удар
-                target.takeDamage(doubleDamage / 2); // Второй удар слабее
-
-                actionMessage.append("⚔⚔ ").append(caster.getCharacter().getName())
-                    .append(" проводит двойную атаку! Нанесено ").append(doubleDamage + doubleDamage / 2).append(" урона.");
-                break;
-
-            case SUPER_SHIELD:
-                int superShield = caster.calculateShield(card.getValue() * 2);
-                caster.addShield(superShield);
-
-                actionMessage.append("🛡🛡 ").append(caster.getCharacter().getName())
-                    .append(" создает супер щит! +").append(superShield).append(" защиты.");
-                break;
-
-            case ULTIMATE_HEAL:
-                int ultimateHeal = caster.calculateHealing(card.getValue() * 2);
-                caster.heal(ultimateHeal);
-
-                actionMessage.append("❤❤ ").append(caster.getCharacter().getName())
-                    .append(" использует супер лечение! +").append(ultimateHeal).append(" здоровья.");
-                break;
-
-            case BERSERK_RAGE:
-                // Ярость берсерка: много урона, но и сам получает урон
-                int rageDamage = caster.calculateAttackDamage(card.getValue() * 2);
-                target.takeDamage(rageDamage);
-                caster.takeDamage(2); // Сам получает урон
-
-                actionMessage.append("😡 ").append(caster.getCharacter().getName())
-                    .append(" впадает в ярость! Нанесено ").append(rageDamage)
-                    .append(" урона, но сам получил 2 урона.");
-                break;
-
-            case HOLY_LIGHT:
-                // Святой свет: лечение и защита
-                int holyHeal = caster.calculateHealing(card.getValue());
-                caster.heal(holyHeal);
-                caster.addShield(2);
-
-                actionMessage.append("✨ ").append(caster.getCharacter().getName())
-                    .append(" использует святой свет! +").append(holyHeal)
-                    .append(" здоровья и +2 защиты.");
-                break;
-
-            case BACKSTAB:
-                // Удар в спину: игнорирует часть защиты
-                int backstabDamage = caster.calculateAttackDamage(card.getValue());
-                int currentShield = target.getShield();
-                if (currentShield > 0) {
-                    target.setShield(currentShield / 2); // Уменьшает щит вдвое
-                }
-                target.takeDamage(backstabDamage);
-
-                actionMessage.append("🗡️ ").append(caster.getCharacter().getName())
-                    .append(" наносит удар в спину! Пробивает защиту и наносит ")
-                    .append(backstabDamage).append(" урона.");
-                break;
-
-            case FIREBALL:
-                // Огненный шар: урон по всем (в будущем для многопользовательской игры)
-                int fireDamage = caster.calculateAttackDamage(card.getValue());
-                target.takeDamage(fireDamage);
-
-                actionMessage.append("🔥 ").append(caster.getCharacter().getName())
-                    .append(" бросает огненный шар! Нанесено ").append(fireDamage).append(" урона.");
-                break;
-
-            default:
-                // Для других типов карт - базовая атака
-                int defaultDamage = caster.calculateAttackDamage(card.getValue());
-                target.takeDamage(defaultDamage);
-                actionMessage.append(caster.getCharacter().getName()).append(" использует ").append(card.getName());
-                break;
-        }
+        String actionMessage = rules.apply(card, caster, target);
 
         if (listener != null) {
             listener.onHealthUpdated(
@@ -286,20 +208,39 @@ public class GameEngine {
                 opponent.getHealth(),
                 opponent.getShield()
             );
-            listener.onActionOccurred(actionMessage.toString());
+            listener.onActionOccurred(actionMessage);
         }
 
         checkWinCondition();
     }
 
-    private void opponentMakesMove() {
+    /**
+     * Поиск ответа ИИ на текущую позицию (когда в кэше ответа нет).
+     */
+    private Card searchReply() {
+        Player self;
+        Player target;
+        synchronized (this) {
+            if (gameOver) return null;
+            self = opponent.copy();
+            target = player.copy();
+        }
+        return AiStrategies.decide(ai, self, target,
+            System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(REPLY_BUDGET_MILLIS));
+    }
+
+    private void opponentMakesMove(Card chosen) {
         if (gameOver) return;
 
-        // Выбираем случайную карту из руки противника (или создаем новую)
+        // Выбранная ИИ карта из руки противника (или создаем новую, если рука пуста)
         Card card;
         if (!opponent.getHand().isEmpty()) {
-            // Берем случайную карту из руки
-            card = opponent.getHand().get(rnd.nextInt(opponent.getHand().size()));
+            card = chosen == null ? null : opponent.getHand().stream()
+                .filter(c -> c.getName().equals(chosen.getName()) && c.getType() == chosen.getType())
+                .findFirst().orElse(null);
+            if (card == null) {
+                card = opponent.getHand().get(rnd.nextInt(opponent.getHand().size()));
+            }
             opponent.getHand().remove(card);
         } else {
             // Если рука пуста, создаем случайную карту
@@ -351,6 +292,107 @@ public class GameEngine {
         }
     }
 
+    // === Pondering ===
+
+    /**
+     * Запускает фоновый перебор ответов на ход игрока. Карты игрока перебираются от самых
+     * выгодных для него (самых вероятных) к менее выгодным.
+     */
+    private synchronized void startPondering() {
+        stopPondering();
+        if (gameOver || player == null || opponent == null || opponent.getHand().isEmpty()) return;
+
+        Player me = player.copy();
+        Player them = opponent.copy();
+        long generation = ponderGeneration;
+        if (ponderExecutor == null) {
+            ponderExecutor = Executors.newSingleThreadExecutor(r -> {
+                Thread t = new Thread(r, "AI-Ponder-Thread");
+                t.setDaemon(true);
+                t.setPriority(Thread.MIN_PRIORITY); // не мешаем UI
+                return t;
+            });
+        }
+
+        ponderTask = ponderExecutor.submit(() -> {
+            Map<String, Player[]> lines = new LinkedHashMap<>();
+            for (Card card : me.getHand()) {
+                String key = cardKey(card);
+                if (lines.containsKey(key)) continue;
+                Player p = me.copy();
+                Player o = them.copy();
+                rules.apply(card, p, o);
+                lines.put(key, new Player[]{p, o});
+            }
+
+            List<String> order = new ArrayList<>(lines.keySet());
+            order.sort(Comparator.comparingDouble(k -> -OpponentAI.evaluate(lines.get(k)[0], lines.get(k)[1])));
+
+            for (String key : order) {
+                if (Thread.currentThread().isInterrupted()) return;
+                Player[] line = lines.get(key);
+                if (!line[0].isAlive() || !line[1].isAlive()) continue; // после этого хода игра окончена
+                Card reply = AiStrategies.decide(ai, line[1], line[0],
+                    System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(REPLY_BUDGET_MILLIS));
+                if (Thread.currentThread().isInterrupted()) return;
+                if (reply != null) storePonderedReply(generation, key, reply);
+            }
+        });
+    }
+
+    /**
+     * Останавливает фоновый перебор и сбрасывает кэш ответов.
+     */
+    private synchronized void stopPondering() {
+        if (ponderTask != null) {
+            ponderTask.cancel(true);
+            ponderTask = null;
+        }
+        ponderGeneration++;
+        ponderCache.clear();
+    }
+
+    /**
+     * Ответ фонового перебора — только если позиция с тех пор не сменилась (cancel не дожидается потока).
+     */
+    private synchronized void storePonderedReply(long generation, String key, Card reply) {
+        if (generation == ponderGeneration) ponderCache.put(key, reply);
+    }
+
+    private synchronized Card takePonderedReply(Card playerCard) {
+        Card reply = ponderCache.get(cardKey(playerCard));
+        if (reply != null) ponderHits++; else ponderMisses++;
+        stopPondering();
+        return reply;
+    }
+
+    private static String cardKey(Card card) {
+        return card.getType() + ":" + card.getName();
+    }
+
+    /**
+     * Игрок сдался: игра окончена, фоновый поиск останавливается.
+     */
+    public synchronized void surrender() {
+        gameOver = true;
+        stopPondering();
+    }
+
+    /**
+     * Освобождает фоновый поток ИИ (при выходе из игры).
+     */
+    public synchronized void shutdown() {
+        gameOver = true;
+        stopPondering();
+        if (ponderExecutor != null) {
+            ponderExecutor.shutdownNow();
+            ponderExecutor = null;
+        }
+        if (ponderHits + ponderMisses > 0) {
+            System.out.println("🤔 Pondering: попаданий " + ponderHits + " из " + (ponderHits + ponderMisses));
+        }
+    }
+
     private void checkWinCondition() {
         if (gameOver) return;
 
@@ -365,6 +407,8 @@ public class GameEngine {
             gameOver = true;
             if (listener != null) listener.onGameOver(false, player.getHealth(), opponent.getHealth());
         }
+
+        if (gameOver) stopPondering();
     }
 
     // Геттеры для доступа к игрокам
@@ -377,6 +421,7 @@ public class GameEngine {
     }
 
     public void resetGame() {
+        stopPondering();
         gameOver = false;
         isPlayerTurn = true;
         if (player != null) player.resetForNewGame();
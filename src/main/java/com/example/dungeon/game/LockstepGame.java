@@ -0,0 +1,148 @@
+package com.example.dungeon.game;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.CRC32;
+
+/**
+ * LockstepGame — детерминированная партия для сетевого режима lockstep.
+ * Оба клиента создают ее из одного seed и применяют одни и те же входы ("место + номер карты в руке")
+ * в одном порядке — поэтому состояния совпадают без пересылки GameState. Весь случайный выбор
+ * (персонажи, раздача, добор) идет из Random(seed), эффекты карт — CardRules.NETWORK.
+ *
+ * Раз в CHECKSUM_INTERVAL ходов клиенты отправляют checksum() серверу; расхождение — рассинхронизация.
+ * Цена режима: руки обоих игроков известны каждому клиенту (состояние у всех полное).
+ */
+public class LockstepGame {
+
+    public static final int CHECKSUM_INTERVAL = 5;
+
+    private final Random rnd;
+    private final CardRules rules = CardRules.NETWORK;
+    private final Player player1;
+    private final Player player2;
+    private int currentSeat = 1;
+    private int turn;
+
+    public LockstepGame(long seed) {
+        this.rnd = new Random(seed);
+        CharacterType[] characters = CharacterType.values();
+        this.player1 = DuelSimulator.newPlayer("Игрок 1", characters[rnd.nextInt(characters.length)], rnd);
+        this.player2 = DuelSimulator.newPlayer("Игрок 2", characters[rnd.nextInt(characters.length)], rnd);
+    }
+
+    /**
+     * Ход места seat картой handIndex. Следующий игрок добирает карту, как на авторитетном сервере.
+     * Недопустимый вход — IllegalStateException: у честных клиентов его не бывает, значит, рассинхронизация.
+     */
+    public String play(int seat, int handIndex) {
+        if (isOver()) throw new IllegalStateException("Партия уже окончена");
+        if (seat != currentSeat) throw new IllegalStateException("Ход места " + currentSeat + ", а не " + seat);
+        Player mover = getPlayer(seat);
+        List<Card> hand = mover.getHand();
+        if (handIndex < 0 || handIndex >= hand.size()) {
+            throw new IllegalStateException("Нет карты #" + handIndex + " в руке из " + hand.size());
+        }
+
+        Card card = hand.remove(handIndex);
+        String message = rules.apply(card, mover, getPlayer(3 - seat));
+        turn++;
+        currentSeat = 3 - currentSeat;
+        if (!isOver()) {
+            getPlayer(currentSeat).getHand().add(DuelSimulator.drawCard(rnd));
+        }
+        return message;
+    }
+
+    /**
+     * Номер карты в руке места seat (по типу и имени, как сервер ищет карту) или -1.
+     */
+    public int indexOf(int seat, Card card) {
+        List<Card> hand = getPlayer(seat).getHand();
+        for (int i = 0; i < hand.size(); i++) {
+            if (hand.get(i).getType() == card.getType() && hand.get(i).getName().equals(card.getName())) return i;
+        }
+        return -1;
+    }
+
+    public boolean isOver() {
+        return !player1.isAlive() || !player2.isAlive();
+    }
+
+    /**
+     * Сообщение о победе (как у сервера) или null, если партия идет.
+     */
+    public String victoryMessage() {
+        if (!player1.isAlive()) {
+            return "🏆 " + player2.getName() + " ПОБЕДИЛ! " + player1.getName() + " повержен!";
+        } else if (!player2.isAlive()) {
+            return "🏆 " + player1.getName() + " ПОБЕДИЛ! " + player2.getName() + " повержен!";
+        }
+        return null;
+    }
+
+    /**
+     * Состояние с точки зрения места seat (копии игроков — UI может хранить их у себя).
+     */
+    public GameState state(int seat) {
+        boolean myTurn = seat == currentSeat && !isOver();
+        return new GameState(getPlayer(seat).copy(), getPlayer(3 - seat).copy(), myTurn,
+            myTurn ? "🎯 ВАШ ХОД" : "⏳ ХОД ПРОТИВНИКА");
+    }
+
+    /**
+     * CRC32 полного состояния: ход, чей ход и оба игрока в формате StateCodec.
+     */
+    public int checksum() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(turn);
+            out.writeByte(currentSeat);
+            StateCodec.writePlayer(out, player1);
+            StateCodec.writePlayer(out, player2);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(bytes.toByteArray());
+        return (int) crc.getValue();
+    }
+
+    public Player getPlayer(int seat) {
+        return seat == 1 ? player1 : player2;
+    }
+
+    public int getCurrentSeat() {
+        return currentSeat;
+    }
+
+    public int getTurn() {
+        return turn;
+    }
+
+    // === Упаковка сообщений: вход — int, контрольная сумма — long ===
+
+    public static int packInput(int turn, int handIndex) {
+        return turn << 8 | handIndex;
+    }
+
+    public static int inputTurn(int input) {
+        return input >>> 8;
+    }
+
+    public static int inputHandIndex(int input) {
+        return input & 0xFF;
+    }
+
+    public static long packChecksum(int turn, int checksum) {
+        return (long) turn << 32 | (checksum & 0xFFFFFFFFL);
+    }
+
+    public static int checksumTurn(long packed) {
+        return (int) (packed >>> 32);
+    }
+}
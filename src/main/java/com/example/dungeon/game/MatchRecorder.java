@@ -0,0 +1,146 @@
+package com.example.dungeon.game;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * MatchRecorder — запись матча в компактный файл повтора.
+ *  - каждое состояние (ход) пишется дельтой: HP, щиты, руки и чей ход
+ *  - каждые keyframeInterval ходов пишется полный ключевой кадр
+ *  - события (чат, действия, смена хода) пишутся как короткие текстовые записи с отметкой времени
+ *  - при закрытии в конец файла дописывается индекс ключевых кадров — по нему MatchReplay прыгает к любому ходу
+ *
+ * Формат: [заголовок][записи...][индекс][long смещение индекса][int INDEX_MAGIC]
+ */
+public class MatchRecorder implements Closeable {
+
+    static final int MAGIC = 0x444D5250;       // "DMRP"
+    static final int INDEX_MAGIC = 0x444D4958; // "DMIX"
+    static final short VERSION = 1;
+
+    static final byte KEYFRAME = 1;
+    static final byte DELTA = 2;
+    static final byte EVENT = 3;
+
+    public static final byte EVENT_CHAT = 0;
+    public static final byte EVENT_ACTION = 1;
+    public static final byte EVENT_TURN = 2;
+    public static final byte EVENT_INFO = 3;
+    public static final byte EVENT_GAME_OVER = 4;
+
+    public static final int DEFAULT_KEYFRAME_INTERVAL = 16;
+
+    private final DataOutputStream out;
+    private final int keyframeInterval;
+    private final long startMillis;
+    private final List<Long> keyframeOffsets = new ArrayList<>();
+    private int stateCount;
+    private boolean closed;
+
+    public MatchRecorder(Path file, int keyframeInterval) throws IOException {
+        this.out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)));
+        this.keyframeInterval = keyframeInterval;
+        this.startMillis = System.currentTimeMillis();
+
+        out.writeInt(MAGIC);
+        out.writeShort(VERSION);
+        out.writeShort(keyframeInterval);
+        out.writeLong(startMillis);
+    }
+
+    /**
+     * Новый файл повтора в папке повторов пользователя.
+     */
+    public static MatchRecorder createDefault() throws IOException {
+        Path dir = Files.createDirectories(defaultDirectory());
+        String name = "match-" + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss")) + ".dmr";
+        return new MatchRecorder(dir.resolve(name), DEFAULT_KEYFRAME_INTERVAL);
+    }
+
+    public static Path defaultDirectory() {
+        return Paths.get(System.getProperty("user.home"), ".dungeon-mayhem", "replays");
+    }
+
+    public synchronized void recordState(GameState state) {
+        if (closed || state == null || state.getCurrentPlayer() == null || state.getOpponentPlayer() == null) return;
+        try {
+            if (stateCount % keyframeInterval == 0) {
+                keyframeOffsets.add((long) out.size());
+                out.writeByte(KEYFRAME);
+                out.writeInt(elapsed());
+                StateCodec.writePlayer(out, state.getCurrentPlayer());
+                StateCodec.writePlayer(out, state.getOpponentPlayer());
+            } else {
+                out.writeByte(DELTA);
+                out.writeInt(elapsed());
+                writeDelta(state.getCurrentPlayer());
+                writeDelta(state.getOpponentPlayer());
+            }
+            out.writeBoolean(state.isPlayerTurn());
+            out.writeUTF(state.getGameStatus() == null ? "" : state.getGameStatus());
+            stateCount++;
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    public synchronized void recordEvent(byte kind, String text) {
+        if (closed) return;
+        try {
+            out.writeByte(EVENT);
+            out.writeInt(elapsed());
+            out.writeByte(kind);
+            out.writeUTF(text == null ? "" : text);
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    private void writeDelta(Player player) throws IOException {
+        out.writeShort(player.getHealth());
+        out.writeShort(player.getShield());
+        List<Card> hand = player.getHand();
+        out.writeByte(hand.size());
+        for (Card card : hand) {
+            StateCodec.writeCard(out, card);
+        }
+    }
+
+    private int elapsed() {
+        return (int) (System.currentTimeMillis() - startMillis);
+    }
+
+    private void fail(IOException e) {
+        System.err.println("❌ Ошибка записи повтора, запись остановлена: " + e.getMessage());
+        closed = true;
+    }
+
+    /**
+     * Дописывает индекс ключевых кадров и закрывает файл.
+     */
+    @Override
+    public synchronized void close() {
+        if (closed) return;
+        closed = true;
+        try {
+            long indexOffset = out.size();
+            out.writeInt(stateCount);
+            out.writeInt(keyframeOffsets.size());
+            for (long offset : keyframeOffsets) {
+                out.writeLong(offset);
+            }
+            out.writeLong(indexOffset);
+            out.writeInt(INDEX_MAGIC);
+            out.close();
+            System.out.println("📼 Повтор сохранен: " + stateCount + " ходов");
+        } catch (IOException e) {
+            System.err.println("❌ Ошибка при закрытии повтора: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,242 @@
+package com.example.dungeon.game;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * MatchReplay — чтение файла повтора, записанного MatchRecorder.
+ * Переход к любому ходу: ближайший ключевой кадр по индексу + не больше keyframeInterval дельт после него.
+ * Файл целиком в память не читается, поэтому длинные повторы открываются сразу.
+ */
+public class MatchReplay implements Closeable {
+
+    /**
+     * Кадр повтора: состояние на ходу и события, произошедшие до следующего хода.
+     */
+    public static class Frame {
+        private final GameState state;
+        private final List<String> events;
+        private final int timeMillis;
+
+        Frame(GameState state, List<String> events, int timeMillis) {
+            this.state = state;
+            this.events = events;
+            this.timeMillis = timeMillis;
+        }
+
+        public GameState getState() { return state; }
+        public List<String> getEvents() { return events; }
+        public int getTimeMillis() { return timeMillis; }
+    }
+
+    private static final int HEADER_SIZE = 16;
+    private static final int FOOTER_SIZE = 12;
+
+    private final FileChannel channel;
+    private final int keyframeInterval;
+    private final long dataEnd;
+    private int stateCount;
+    private long[] keyframeOffsets;
+
+    private MatchReplay(Path file) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+
+        ByteBuffer header = read(0, HEADER_SIZE);
+        if (header.getInt() != MatchRecorder.MAGIC) {
+            channel.close();
+            throw new IOException("Это не файл повтора Dungeon Mayhem");
+        }
+        header.getShort(); // версия
+        this.keyframeInterval = header.getShort();
+
+        long size = channel.size();
+        ByteBuffer footer = size >= HEADER_SIZE + FOOTER_SIZE ? read(size - FOOTER_SIZE, FOOTER_SIZE) : null;
+        if (footer != null && footer.getInt(8) == MatchRecorder.INDEX_MAGIC) {
+            this.dataEnd = footer.getLong(0);
+            readIndex();
+        } else {
+            // Запись прервалась до индекса (например, упало приложение) — восстанавливаем его проходом
+            this.dataEnd = size;
+            rebuildIndex();
+        }
+    }
+
+    public static MatchReplay open(Path file) throws IOException {
+        return new MatchReplay(file);
+    }
+
+    public int getTurnCount() {
+        return stateCount;
+    }
+
+    private void readIndex() throws IOException {
+        ByteBuffer counts = read(dataEnd, 8);
+        stateCount = counts.getInt();
+        int keyframes = counts.getInt();
+        ByteBuffer offsets = read(dataEnd + 8, keyframes * 8);
+        keyframeOffsets = new long[keyframes];
+        for (int i = 0; i < keyframes; i++) {
+            keyframeOffsets[i] = offsets.getLong();
+        }
+    }
+
+    private void rebuildIndex() throws IOException {
+        List<Long> offsets = new ArrayList<>();
+        int states = 0;
+        CountingInput counting = new CountingInput(HEADER_SIZE);
+        DataInputStream in = counting.data;
+        try {
+            while (counting.position < dataEnd) {
+                long offset = counting.position;
+                byte kind = in.readByte();
+                in.readInt();
+                switch (kind) {
+                    case MatchRecorder.KEYFRAME -> {
+                        StateCodec.readPlayer(in);
+                        StateCodec.readPlayer(in);
+                        offsets.add(offset);
+                    }
+                    case MatchRecorder.DELTA -> {
+                        skipDelta(in);
+                        skipDelta(in);
+                    }
+                    case MatchRecorder.EVENT -> {
+                        in.readByte();
+                        in.readUTF();
+                        continue;
+                    }
+                    default -> throw new EOFException();
+                }
+                in.readBoolean();
+                in.readUTF();
+                states++;
+            }
+        } catch (EOFException e) {
+            // Обрезанная последняя запись — все, что до нее, остается доступным
+        }
+        stateCount = states;
+        keyframeOffsets = offsets.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    /**
+     * Состояние на ходу turn (0..getTurnCount()-1).
+     */
+    public Frame frameAt(int turn) throws IOException {
+        if (turn < 0 || turn >= stateCount) {
+            throw new IllegalArgumentException("Нет хода " + turn + " (всего " + stateCount + ")");
+        }
+
+        int keyframe = turn / keyframeInterval;
+        CountingInput counting = new CountingInput(keyframeOffsets[keyframe]);
+        DataInputStream in = counting.data;
+
+        int stateIndex = keyframe * keyframeInterval - 1;
+        Player me = null;
+        Player opponent = null;
+        GameState state = null;
+        int time = 0;
+        List<String> events = new ArrayList<>();
+
+        try {
+            while (counting.position < dataEnd) {
+                byte kind = in.readByte();
+                int recordTime = in.readInt();
+
+                if (kind == MatchRecorder.EVENT) {
+                    in.readByte();
+                    String text = in.readUTF();
+                    if (stateIndex == turn) events.add(text);
+                    continue;
+                }
+                if (stateIndex == turn) break; // начался следующий ход
+
+                if (kind == MatchRecorder.KEYFRAME) {
+                    me = StateCodec.readPlayer(in);
+                    opponent = StateCodec.readPlayer(in);
+                } else {
+                    applyDelta(in, me);
+                    applyDelta(in, opponent);
+                }
+                boolean myTurn = in.readBoolean();
+                String status = in.readUTF();
+                stateIndex++;
+
+                if (stateIndex == turn) {
+                    state = new GameState(me, opponent, myTurn, status);
+                    time = recordTime;
+                }
+            }
+        } catch (EOFException e) {
+            // Повтор без индекса мог оборваться посреди события — показываем то, что успело записаться
+        }
+        return new Frame(state, events, time);
+    }
+
+    private static void applyDelta(DataInputStream in, Player player) throws IOException {
+        player.setHealth(in.readShort());
+        player.setShield(in.readShort());
+        int size = in.readUnsignedByte();
+        List<Card> hand = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            hand.add(StateCodec.readCard(in));
+        }
+        player.setHand(hand);
+    }
+
+    private static void skipDelta(DataInputStream in) throws IOException {
+        in.readShort();
+        in.readShort();
+        int size = in.readUnsignedByte();
+        for (int i = 0; i < size; i++) {
+            StateCodec.readCard(in);
+        }
+    }
+
+    private ByteBuffer read(long position, int length) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate(length);
+        while (buf.hasRemaining()) {
+            if (channel.read(buf, position + buf.position()) < 0) throw new EOFException();
+        }
+        buf.flip();
+        return buf;
+    }
+
+    /**
+     * Поток чтения с текущей позицией в файле (чтобы знать, где кончаются данные).
+     */
+    private class CountingInput {
+        long position;
+        final DataInputStream data;
+
+        CountingInput(long start) throws IOException {
+            this.position = start;
+            InputStream raw = new BufferedInputStream(Channels.newInputStream(channel.position(start)));
+            this.data = new DataInputStream(new FilterInputStream(raw) {
+                @Override
+                public int read() throws IOException {
+                    int b = super.read();
+                    if (b >= 0) position++;
+                    return b;
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) throws IOException {
+                    int n = super.read(b, off, len);
+                    if (n > 0) position += n;
+                    return n;
+                }
+            });
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.dungeon.game;
+
+/**
+ * Правила сетевой игры (авторитетный сервер): эффекты карт с учетом множителей персонажа.
+ * Чистая функция над игроками — ею же пользуются ИИ и симуляции.
+ *
+ * resolve() только меняет игроков и возвращает величину эффекта — сервер шлет ее событием
+ * (CombatEvent), текст по шаблону строит клиент. apply() — то же плюс текст, для CardRules.
+ */
+public class NetworkCardRules implements CardRules {
+
+    @Override
+    public String apply(Card card, Player currentPlayer, Player opponent) {
+        int amount = resolve(card, currentPlayer, opponent);
+        return CombatEvent.render(card.getType(), currentPlayer, amount);
+    }
+
+    /**
+     * Применяет карту. Возвращает нанесенный урон, поставленный щит или вылеченное здоровье.
+     */
+    public int resolve(Card card, Player currentPlayer, Player opponent) {
+        // Применяем множители персонажа
+        switch (card.getType()) {
+            case ATTACK:
+            case DOUBLE_ATTACK:
+            case BACKSTAB:
+            case FIREBALL:
+                int actualDamage = currentPlayer.calculateAttackDamage(card.getValue());
+                opponent.takeDamage(actualDamage);
+                return actualDamage;
+
+            case DEFEND:
+            case SUPER_SHIELD:
+                int actualShield = currentPlayer.calculateShield(card.getValue());
+                currentPlayer.addShield(actualShield);
+                return actualShield;
+
+            case HEAL:
+            case ULTIMATE_HEAL:
+                int actualHeal = currentPlayer.calculateHealing(card.getValue());
+                currentPlayer.heal(actualHeal);
+                return actualHeal;
+
+            case BERSERK_RAGE:
+                int rageDamage = currentPlayer.calculateAttackDamage(card.getValue());
+                opponent.takeDamage(rageDamage);
+                currentPlayer.takeDamage(2); // Сам получает урон
+                return rageDamage;
+
+            case HOLY_LIGHT:
+                int holyHeal = currentPlayer.calculateHealing(card.getValue());
+                currentPlayer.heal(holyHeal);
+                currentPlayer.addShield(1);
+                return holyHeal;
+
+            default:
+                return 0;
+        }
+    }
+}
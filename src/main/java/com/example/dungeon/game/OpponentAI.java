@@ -1,9 +1,44 @@
 package com.example.dungeon.game;
 
+import java.util.List;
 import java.util.Random;
 
-public class OpponentAI {
+/**
+ * OpponentAI — выбор карты для компьютерного противника.
+ * chooseCard(self, opponent, deadline) перебирает карты руки, проигрывает каждую на копиях игроков
+ * по тем же правилам, что и игра, и берет лучшую. Перебор прерывается по дедлайну — тогда
+ * возвращается лучшая из уже оцененных.
+ *
+ * Если есть обученная модель (EvalModel), позиции оцениваются ею — вероятностью победы;
+ * иначе — эвристикой evaluate(). Позиции эндшпиля, покрытые таблицей (Tablebase), берутся из нее —
+ * точно и за одно чтение. Таблица используется только вместе с моделью: у обеих одна шкала (вероятность победы).
+ *
+ * Как AiStrategy зарегистрирован в BuiltinStrategies под именами greedy, model и lookahead.
+ */
+public class OpponentAI implements AiStrategy {
     private Random rnd = new Random();
+    private final CardRules rules;
+    private final EvalModel model;
+    private final Tablebase tablebase;
+
+    public OpponentAI() {
+        this(CardRules.NETWORK);
+    }
+
+    public OpponentAI(CardRules rules) {
+        this(rules, null);
+    }
+
+    public OpponentAI(CardRules rules, EvalModel model) {
+        this(rules, model, null);
+    }
+
+    public OpponentAI(CardRules rules, EvalModel model, Tablebase tablebase) {
+        this.rules = rules;
+        this.model = model;
+        this.tablebase = model != null ? tablebase : null;
+    }
+
     public Card chooseCard() {
         int r = rnd.nextInt(3);
         return switch (r) {
@@ -12,4 +47,102 @@ public class OpponentAI {
             default -> new Card(CardType.HEAL, "Темное зелье");
         };
     }
+
+    /**
+     * Лучшая карта из руки self или null, если рука пуста.
+     */
+    @Override
+    public Card chooseCard(Player self, Player opponent, long deadlineNanos) {
+        List<Card> hand = self.getHand();
+        if (hand.isEmpty()) return null;
+
+        Card best = null;
+        double bestScore = Double.NEGATIVE_INFINITY;
+        for (Card card : hand) {
+            Player me = self.copy();
+            Player them = opponent.copy();
+            rules.apply(card, me, them);
+
+            // Небольшой шум, чтобы при равных оценках ИИ не играл всегда одно и то же
+            double score = scoreAfterMove(me, them) + noise();
+            if (score > bestScore) {
+                bestScore = score;
+                best = card;
+            }
+            if (System.nanoTime() - deadlineNanos > 0) break;
+        }
+        return best;
+    }
+
+    /**
+     * Поиск на два полухода: для каждой карты self учитывает лучший ответ соперника из его руки.
+     * Сильнее chooseCard(self, opponent, deadline), но дороже — рассчитан на фоновый перебор (pondering).
+     */
+    public Card chooseCardLookahead(Player self, Player opponent, long deadlineNanos) {
+        List<Card> hand = self.getHand();
+        if (hand.isEmpty()) return null;
+
+        Card best = null;
+        double bestScore = Double.NEGATIVE_INFINITY;
+        for (Card card : hand) {
+            Player me = self.copy();
+            Player them = opponent.copy();
+            rules.apply(card, me, them);
+
+            double score;
+            if (!me.isAlive() || !them.isAlive() || them.getHand().isEmpty()) {
+                score = scoreAfterMove(me, them);
+            } else {
+                // Соперник отвечает лучшей для себя картой
+                score = Double.POSITIVE_INFINITY;
+                for (Card reply : them.getHand()) {
+                    Player me2 = me.copy();
+                    Player them2 = them.copy();
+                    rules.apply(reply, them2, me2);
+                    score = Math.min(score, scoreToMove(me2, them2));
+                }
+            }
+            score += noise();
+
+            if (score > bestScore) {
+                bestScore = score;
+                best = card;
+            }
+            if (Thread.currentThread().isInterrupted() || System.nanoTime() - deadlineNanos > 0) break;
+        }
+        return best;
+    }
+
+    /**
+     * Оценка для self, когда ходит соперник.
+     */
+    private double scoreAfterMove(Player self, Player opponent) {
+        if (tablebase != null && self.isAlive() && opponent.isAlive() && tablebase.covers(opponent, self)) {
+            return 1 - tablebase.winProbability(opponent, self);
+        }
+        return model != null ? 1 - model.winProbability(opponent, self) : evaluate(self, opponent);
+    }
+
+    /**
+     * Оценка для self, когда ходит сам self.
+     */
+    private double scoreToMove(Player self, Player opponent) {
+        if (tablebase != null && self.isAlive() && opponent.isAlive() && tablebase.covers(self, opponent)) {
+            return tablebase.winProbability(self, opponent);
+        }
+        return model != null ? model.winProbability(self, opponent) : evaluate(self, opponent);
+    }
+
+    private double noise() {
+        return rnd.nextDouble() * (model != null ? 1e-4 : 0.01);
+    }
+
+    /**
+     * Оценка позиции с точки зрения self: победа/поражение, иначе разница "запаса прочности".
+     */
+    public static double evaluate(Player self, Player opponent) {
+        if (!opponent.isAlive()) return 1000;
+        if (!self.isAlive()) return -1000;
+        return (self.getHealth() + self.getShield() * 0.8) - (opponent.getHealth() + opponent.getShield() * 0.8);
+    }
 }
@@ -2,6 +2,8 @@ package com.example.dungeon.game;
 
 import lombok.Getter;
 import lombok.Setter;
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
@@ -9,12 +11,18 @@ import java.util.List;
 @Getter
 @Setter
 public class Player implements Serializable {
+    // Зафиксирован на вычисленном значении исходной версии: поле stats — совместимое изменение,
+    // старый клиент его пропускает, а у игрока от старого сервера оно восстанавливается из CharacterType
+    private static final long serialVersionUID = -8640129379554379400L;
+
     private String name;
     private int health;
     private int maxHealth;
     private int shield;
     private List<Card> hand;
     private CharacterType character;
+    // Параметры персонажа (по умолчанию — из CharacterType)
+    private CharacterStats stats;
     private boolean hasUsedSpecialAbility = false;
 
     // Статистика
@@ -30,6 +38,7 @@ public class Player implements Serializable {
 
         // Рандомный персонаж
         this.character = CharacterType.getRandom();
+        this.stats = CharacterStats.of(character);
         this.maxHealth = character.getBaseHealth();
         this.health = maxHealth;
 
@@ -39,20 +48,30 @@ public class Player implements Serializable {
     public Player(String name, CharacterType character) {
         this.name = name;
         this.character = character;
+        this.stats = CharacterStats.of(character);
         this.shield = 0;
         this.hand = new ArrayList<>();
         this.maxHealth = character.getBaseHealth();
         this.health = maxHealth;
     }
 
+    /**
+     * Другие параметры персонажа (для симуляций баланса): здоровье сбрасывается на новое максимальное.
+     */
+    public void setStats(CharacterStats stats) {
+        this.stats = stats;
+        this.maxHealth = stats.getBaseHealth();
+        this.health = maxHealth;
+    }
+
     public void takeDamage(int damage) {
         // Сначала удар по щиту
         if (shield > 0) {
             // Применяем множитель защиты
-            double actualDamage = damage * (1.0 / character.getDefenseMultiplier());
+            double actualDamage = damage * (1.0 / stats.getDefenseMultiplier());
             int damageToShield = (int) Math.min(shield, actualDamage);
             shield -= damageToShield;
-            damage -= (int)(damageToShield * character.getDefenseMultiplier());
+            damage -= (int)(damageToShield * stats.getDefenseMultiplier());
         }
 
         // Затем по здоровью
@@ -66,7 +85,7 @@ public class Player implements Serializable {
 
     public int calculateAttackDamage(int baseDamage) {
         // Применяем множитель атаки персонажа
-        int damage = (int)(baseDamage * character.getAttackMultiplier());
+        int damage = (int)(baseDamage * stats.getAttackMultiplier());
         totalDamageDealt += damage;
         cardsPlayed++;
         return damage;
@@ -74,7 +93,7 @@ public class Player implements Serializable {
 
     public int calculateHealing(int baseHeal) {
         // Применяем множитель лечения
-        int heal = (int)(baseHeal * character.getHealMultiplier());
+        int heal = (int)(baseHeal * stats.getHealMultiplier());
         totalHealing += heal;
         cardsPlayed++;
         return heal;
@@ -82,7 +101,7 @@ public class Player implements Serializable {
 
     public int calculateShield(int baseShield) {
         // Применяем множитель защиты для щита
-        return (int)(baseShield * character.getDefenseMultiplier());
+        return (int)(baseShield * stats.getDefenseMultiplier());
     }
 
     public void heal(int amount) {
@@ -108,6 +127,24 @@ public class Player implements Serializable {
             character.getIcon(), character.getName(), health, maxHealth, shield);
     }
 
+    /**
+     * Копия для симуляций (ИИ): рука копируется списком, сами карты общие.
+     */
+    public Player copy() {
+        Player copy = new Player(name, character);
+        copy.stats = stats;
+        copy.health = health;
+        copy.maxHealth = maxHealth;
+        copy.shield = shield;
+        copy.hand = new ArrayList<>(hand);
+        copy.hasUsedSpecialAbility = hasUsedSpecialAbility;
+        copy.totalDamageDealt = totalDamageDealt;
+        copy.totalDamageTaken = totalDamageTaken;
+        copy.totalHealing = totalHealing;
+        copy.cardsPlayed = cardsPlayed;
+        return copy;
+    }
+
     public void resetForNewGame() {
         this.shield = 0;
         this.health = maxHealth;
@@ -118,4 +155,9 @@ public class Player implements Serializable {
         this.totalHealing = 0;
         this.cardsPlayed = 0;
     }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        if (stats == null && character != null) stats = CharacterStats.of(character); // от версии без stats
+    }
 }
@@ -0,0 +1,73 @@
+package com.example.dungeon.game;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * StateCodec — компактная бинарная запись карт и игроков.
+ * Используется там, где Java-сериализация слишком тяжелая (журнал сервера и т.п.).
+ */
+public final class StateCodec {
+
+    private StateCodec() {}
+
+    public static void writeCard(DataOutput out, Card card) throws IOException {
+        out.writeByte(card.getType().ordinal());
+        out.writeUTF(card.getName());
+        out.writeShort(card.getValue());
+    }
+
+    public static Card readCard(DataInput in) throws IOException {
+        CardType type = CardType.values()[in.readUnsignedByte()];
+        String name = in.readUTF();
+        int value = in.readShort();
+        return new Card(type, name, value);
+    }
+
+    public static void writePlayer(DataOutput out, Player player) throws IOException {
+        out.writeUTF(player.getName());
+        out.writeByte(player.getCharacter().ordinal());
+        out.writeShort(player.getHealth());
+        out.writeShort(player.getMaxHealth());
+        out.writeShort(player.getShield());
+        out.writeBoolean(player.isHasUsedSpecialAbility());
+
+        // Статистика
+        out.writeInt(player.getTotalDamageDealt());
+        out.writeInt(player.getTotalDamageTaken());
+        out.writeInt(player.getTotalHealing());
+        out.writeInt(player.getCardsPlayed());
+
+        List<Card> hand = player.getHand();
+        out.writeByte(hand.size());
+        for (Card card : hand) {
+            writeCard(out, card);
+        }
+    }
+
+    public static Player readPlayer(DataInput in) throws IOException {
+        String name = in.readUTF();
+        CharacterType character = CharacterType.values()[in.readUnsignedByte()];
+        Player player = new Player(name, character);
+        player.setHealth(in.readShort());
+        player.setMaxHealth(in.readShort());
+        player.setShield(in.readShort());
+        player.setHasUsedSpecialAbility(in.readBoolean());
+
+        player.setTotalDamageDealt(in.readInt());
+        player.setTotalDamageTaken(in.readInt());
+        player.setTotalHealing(in.readInt());
+        player.setCardsPlayed(in.readInt());
+
+        int handSize = in.readUnsignedByte();
+        List<Card> hand = new ArrayList<>(handSize);
+        for (int i = 0; i < handSize; i++) {
+            hand.add(readCard(in));
+        }
+        player.setHand(hand);
+        return player;
+    }
+}
@@ -0,0 +1,140 @@
+package com.example.dungeon.game;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Tablebase — таблица эндшпиля: вероятность победы ходящего для всех позиций с малыми HP и щитами.
+ * Строится заранее TablebaseGenerator'ом, файл отображается в память (mmap) и читается без аллокаций:
+ * индекс позиции считается арифметикой, значение — один getShort.
+ *
+ * Позиция: персонажи обоих, HP 1..maxHp, щиты 0..maxShield (с точки зрения того, кто ходит).
+ * Рука в индекс не входит: ИИ перебирает свои карты сам, а таблица дает точную оценку позиции после карты.
+ *
+ * Формат: [int MAGIC][short VERSION][byte maxHp][byte maxShield][byte characters][byte handSize][2 байта резерв]
+ *         [unsigned short вероятность * 65535 ...]
+ */
+public final class Tablebase {
+
+    static final int MAGIC = 0x444D5442; // "DMTB"
+    static final short VERSION = 1;
+    public static final int HEADER_SIZE = 12;
+
+    // Таблицы по умолчанию (null — таблица еще не построена)
+    public static final Tablebase ENGINE = loadDefault("engine");
+    public static final Tablebase NETWORK = loadDefault("network");
+
+    private final ByteBuffer values;
+    private final int maxHp;
+    private final int maxShield;
+    private final int characters;
+
+    private Tablebase(ByteBuffer buffer) throws IOException {
+        if (buffer.getInt(0) != MAGIC || buffer.getShort(4) != VERSION) {
+            throw new IOException("Это не таблица эндшпиля Dungeon Mayhem");
+        }
+        this.maxHp = buffer.get(6);
+        this.maxShield = buffer.get(7);
+        this.characters = buffer.get(8);
+        if (characters != CharacterType.values().length
+                || buffer.capacity() != HEADER_SIZE + 2L * size(maxHp, maxShield, characters)) {
+            throw new IOException("Таблица эндшпиля не соответствует текущей версии игры");
+        }
+        this.values = buffer;
+    }
+
+    public static Tablebase open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new Tablebase(buffer);
+        }
+    }
+
+    /**
+     * Таблица из файла dungeon.ai.tablebase.<name>, иначе ~/.dungeon-mayhem/tablebase-<name>.dmtb; null, если ее нет.
+     */
+    public static Tablebase loadDefault(String name) {
+        Path file = defaultPath(name);
+        if (!Files.exists(file)) return null;
+        try {
+            Tablebase tablebase = open(file);
+            System.out.println("📚 Загружена таблица эндшпиля: " + name);
+            return tablebase;
+        } catch (IOException e) {
+            System.err.println("❌ Таблица эндшпиля (" + name + ") не загружена: " + e.getMessage());
+            return null;
+        }
+    }
+
+    public static Path defaultPath(String name) {
+        String path = System.getProperty("dungeon.ai.tablebase." + name);
+        return path != null ? Paths.get(path)
+            : Paths.get(System.getProperty("user.home"), ".dungeon-mayhem", "tablebase-" + name + ".dmtb");
+    }
+
+    public static int size(int maxHp, int maxShield, int characters) {
+        return characters * characters * maxHp * maxHp * (maxShield + 1) * (maxShield + 1);
+    }
+
+    /**
+     * Индекс позиции; одна формула для генератора и чтения.
+     */
+    public static int index(int maxHp, int maxShield, int characters, int moverCharacter, int otherCharacter,
+                     int moverHp, int otherHp, int moverShield, int otherShield) {
+        int shields = maxShield + 1;
+        return ((((moverCharacter * characters + otherCharacter) * maxHp + (moverHp - 1)) * maxHp
+            + (otherHp - 1)) * shields + moverShield) * shields + otherShield;
+    }
+
+    /**
+     * Сохраняет таблицу (вызывает TablebaseGenerator). Значения — вероятности победы ходящего по index().
+     */
+    public static void write(Path file, int maxHp, int maxShield, int handSize, double[] probabilities)
+            throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + 2 * probabilities.length);
+        buffer.putInt(MAGIC).putShort(VERSION)
+            .put((byte) maxHp).put((byte) maxShield).put((byte) CharacterType.values().length).put((byte) handSize)
+            .putShort((short) 0);
+        for (double p : probabilities) {
+            buffer.putShort((short) Math.round(Math.max(0, Math.min(1, p)) * 65535));
+        }
+        buffer.flip();
+
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) channel.write(buffer);
+            channel.force(true);
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Есть ли позиция в таблице (оба живы, HP и щиты не выше порогов).
+     */
+    public boolean covers(Player mover, Player other) {
+        return mover.getHealth() >= 1 && mover.getHealth() <= maxHp
+            && other.getHealth() >= 1 && other.getHealth() <= maxHp
+            && mover.getShield() <= maxShield && other.getShield() <= maxShield;
+    }
+
+    /**
+     * Вероятность победы ходящего. Вызывать только для позиций, где covers() == true.
+     */
+    public double winProbability(Player mover, Player other) {
+        int i = index(maxHp, maxShield, characters,
+            mover.getCharacter().ordinal(), other.getCharacter().ordinal(),
+            mover.getHealth(), other.getHealth(), mover.getShield(), other.getShield());
+        return (values.getShort(HEADER_SIZE + 2 * i) & 0xFFFF) / 65535.0;
+    }
+
+    public int getMaxHp() { return maxHp; }
+    public int getMaxShield() { return maxShield; }
+}
@@ -0,0 +1,133 @@
+package com.example.dungeon.game;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * WinProbabilityTable — вероятность победы по квантованному состоянию, посчитанная заранее
+ * по массе симулированных партий (WinProbabilityGenerator). Ответ — одно чтение из массива, без аллокаций.
+ *
+ * Состояние (с точки зрения игрока): персонажи обоих, корзины HP (по 5) и щитов обоих, размер своей руки, чей ход.
+ * Рука соперника в ключ не входит: при 200 тыс. партий это делало таблицу слишком разреженной.
+ * Годится везде, где нужна дешевая оценка шансов: индикатор победы, подбор соперников, оверлей зрителей.
+ *
+ * Формат: [int MAGIC][short VERSION][short characters][unsigned byte вероятность * 255 ...]
+ */
+public final class WinProbabilityTable {
+
+    static final int MAGIC = 0x444D5750; // "DMWP"
+    static final short VERSION = 1;
+
+    private static final int CHARACTERS = CharacterType.values().length;
+    public static final int HP_BUCKETS = 8;     // 1-5, 6-10, ..., 36-40+
+    public static final int SHIELD_BUCKETS = 4; // 0, 1-3, 4-7, 8+
+    public static final int HAND_BUCKETS = 4;   // 0-2, 3-4, 5-6, 7+
+    public static final int SIZE =
+        CHARACTERS * CHARACTERS * HP_BUCKETS * HP_BUCKETS * SHIELD_BUCKETS * SHIELD_BUCKETS * HAND_BUCKETS * 2;
+
+    // Таблицы по умолчанию для правил одиночной и сетевой игры (null — ресурса нет)
+    public static final WinProbabilityTable ENGINE = loadDefault("engine");
+    public static final WinProbabilityTable NETWORK = loadDefault("network");
+
+    private final byte[] values;
+
+    private WinProbabilityTable(byte[] values) {
+        this.values = values;
+    }
+
+    /**
+     * Вероятность победы player против opponent; playerTurn — ходит ли сейчас player.
+     */
+    public double winProbability(Player player, Player opponent, boolean playerTurn) {
+        if (!opponent.isAlive()) return player.isAlive() ? 1 : 0;
+        if (!player.isAlive()) return 0;
+        return (values[cell(player.getCharacter().ordinal(), opponent.getCharacter().ordinal(),
+            player.getHealth(), opponent.getHealth(), player.getShield(), opponent.getShield(),
+            player.getHand().size(), playerTurn)] & 0xFF) / 255.0;
+    }
+
+    /**
+     * Квантование состояния в номер ячейки; одно для генератора и чтения.
+     */
+    public static int cell(int playerCharacter, int opponentCharacter, int playerHp, int opponentHp,
+                           int playerShield, int opponentShield, int playerHand, boolean playerTurn) {
+        int c = playerCharacter * CHARACTERS + opponentCharacter;
+        c = c * HP_BUCKETS + hpBucket(playerHp);
+        c = c * HP_BUCKETS + hpBucket(opponentHp);
+        c = c * SHIELD_BUCKETS + shieldBucket(playerShield);
+        c = c * SHIELD_BUCKETS + shieldBucket(opponentShield);
+        c = c * HAND_BUCKETS + handBucket(playerHand);
+        return c * 2 + (playerTurn ? 1 : 0);
+    }
+
+    /**
+     * Грубая ячейка без щитов и руки — для сглаживания редких ячеек при генерации.
+     */
+    public static int coarseCell(int cell) {
+        int turn = cell & 1;
+        int c = cell >> 1;
+        c /= HAND_BUCKETS * SHIELD_BUCKETS * SHIELD_BUCKETS;
+        return c * 2 + turn;
+    }
+
+    static int hpBucket(int hp) {
+        return Math.min(HP_BUCKETS - 1, Math.max(0, (hp - 1) / 5));
+    }
+
+    static int shieldBucket(int shield) {
+        if (shield <= 0) return 0;
+        if (shield <= 3) return 1;
+        if (shield <= 7) return 2;
+        return 3;
+    }
+
+    static int handBucket(int hand) {
+        if (hand <= 2) return 0;
+        if (hand <= 4) return 1;
+        if (hand <= 6) return 2;
+        return 3;
+    }
+
+    // === Файлы ===
+
+    public static void write(Path file, double[] probabilities) throws IOException {
+        if (probabilities.length != SIZE) throw new IllegalArgumentException("Ожидалось " + SIZE + " ячеек");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+            out.writeInt(MAGIC);
+            out.writeShort(VERSION);
+            out.writeShort(CHARACTERS);
+            for (double p : probabilities) {
+                out.writeByte((int) Math.round(Math.max(0, Math.min(1, p)) * 255));
+            }
+        }
+    }
+
+    public static WinProbabilityTable read(InputStream stream) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(stream));
+        if (in.readInt() != MAGIC || in.readShort() != VERSION) {
+            throw new IOException("Это не таблица вероятностей Dungeon Mayhem");
+        }
+        if (in.readShort() != CHARACTERS) throw new IOException("Таблица построена для другого набора персонажей");
+        byte[] values = new byte[SIZE];
+        in.readFully(values);
+        return new WinProbabilityTable(values);
+    }
+
+    /**
+     * Таблица из файла dungeon.winprob.<name>, иначе из ресурса /ai/winprob-<name>.bin; null, если ее нет.
+     */
+    public static WinProbabilityTable loadDefault(String name) {
+        String path = System.getProperty("dungeon.winprob." + name);
+        try (InputStream in = path != null
+                ? Files.newInputStream(Paths.get(path))
+                : WinProbabilityTable.class.getResourceAsStream("/ai/winprob-" + name + ".bin")) {
+            if (in == null) return null;
+            return read(in);
+        } catch (IOException e) {
+            System.err.println("❌ Таблица вероятностей победы (" + name + ") не загружена: " + e.getMessage());
+            return null;
+        }
+    }
+}
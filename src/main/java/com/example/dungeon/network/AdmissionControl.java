@@ -0,0 +1,161 @@
+package com.example.dungeon.network;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.net.Socket;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntSupplier;
+
+/**
+ * AdmissionControl — пускать ли новые соединения, по живым сигналам нагрузки.
+ *
+ * Раз в dungeon.net.loadSampleMillis снимаются:
+ *  - задержка таймера сервера (на сколько позже положенного проснулся планировщик: CPU, паузы GC);
+ *  - глубина исходящих очередей (полосы игроков, очередь ИИ);
+ *  - занятая доля кучи после последней сборки (живые данные, а не еще не собранный мусор).
+ * Перегрузка включается, когда любой сигнал выше порога (dungeon.net.maxLagMillis, maxQueueDepth,
+ * maxHeapRatio), и снимается, только когда все ниже 80% порога, — без дребезга на границе.
+ *
+ * При перегрузке новый игрок получает OVERLOADED с паузой до повтора и сразу закрывается — от него
+ * ничего не читается; зрителю отказывает рукопожатие, а вернувшиеся игроки идущих партий (RESUME)
+ * пускаются всегда. Число одновременных рукопожатий ограничено dungeon.net.maxHandshakes при любой
+ * нагрузке: сверх него соединение просто закрывается.
+ */
+final class AdmissionControl {
+
+    private static final long SAMPLE_MILLIS = Long.getLong("dungeon.net.loadSampleMillis", 100);
+    private static final long MAX_LAG_MILLIS = Long.getLong("dungeon.net.maxLagMillis", 200);
+    private static final int MAX_QUEUE_DEPTH = Integer.getInteger("dungeon.net.maxQueueDepth", 10_000);
+    private static final double MAX_HEAP_RATIO =
+        Double.parseDouble(System.getProperty("dungeon.net.maxHeapRatio", "0.9"));
+    private static final int MAX_HANDSHAKES = Integer.getInteger("dungeon.net.maxHandshakes", 64);
+    private static final long RETRY_AFTER_MILLIS = Long.getLong("dungeon.net.retryAfterMillis", 5000);
+    private static final double RECOVERY = 0.8;
+    private static final long REJECT_CLOSE_MILLIS = 1000;
+
+    private final List<MemoryPoolMXBean> heapPools = ManagementFactory.getMemoryPoolMXBeans().stream()
+        .filter(pool -> pool.getType() == MemoryType.HEAP && pool.isCollectionUsageThresholdSupported())
+        .toList();
+    private final IntSupplier queueDepth;
+    private ScheduledExecutorService scheduler;
+    private long lastSampleNanos = System.nanoTime();
+
+    private volatile long lagMillis;
+    private volatile int depth;
+    private volatile double heapRatio;
+    private volatile String overload; // причина перегрузки или null
+
+    private final AtomicInteger handshakes = new AtomicInteger();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong overloadEpisodes = new AtomicLong();
+
+    AdmissionControl(IntSupplier queueDepth) {
+        this.queueDepth = queueDepth;
+    }
+
+    void start(ScheduledExecutorService scheduler) {
+        this.scheduler = scheduler;
+        scheduler.scheduleWithFixedDelay(this::sample, SAMPLE_MILLIS, SAMPLE_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    private void sample() {
+        long now = System.nanoTime();
+        lagMillis = Math.max(0, TimeUnit.NANOSECONDS.toMillis(now - lastSampleNanos) - SAMPLE_MILLIS);
+        lastSampleNanos = now;
+        depth = queueDepth.getAsInt();
+        heapRatio = liveHeapRatio();
+
+        String reason = null;
+        double limit = overload == null ? 1 : RECOVERY; // выходим из перегрузки с запасом
+        if (lagMillis > MAX_LAG_MILLIS * limit) reason = "задержка таймера " + lagMillis + " мс";
+        else if (depth > MAX_QUEUE_DEPTH * limit) reason = "очереди " + depth + " сообщений";
+        else if (heapRatio > MAX_HEAP_RATIO * limit) reason = String.format("куча занята на %.0f%%", heapRatio * 100);
+
+        if (reason != null && overload == null) {
+            overloadEpisodes.incrementAndGet();
+            System.out.println("🛑 Сервер перегружен (" + reason + ") — новые подключения отклоняются");
+        } else if (reason == null && overload != null) {
+            System.out.println("🟢 Нагрузка в норме — подключения снова принимаются");
+        }
+        overload = reason;
+    }
+
+    private double liveHeapRatio() {
+        double ratio = 0;
+        for (MemoryPoolMXBean pool : heapPools) {
+            MemoryUsage afterGc = pool.getCollectionUsage();
+            long max = pool.getUsage().getMax();
+            if (afterGc != null && max > 0) ratio = Math.max(ratio, (double) afterGc.getUsed() / max);
+        }
+        return ratio;
+    }
+
+    boolean isOverloaded() {
+        return overload != null;
+    }
+
+    /**
+     * Место под рукопожатие; false — их и так слишком много. Занятое место вернуть через endHandshake().
+     */
+    boolean tryBeginHandshake() {
+        if (handshakes.incrementAndGet() <= MAX_HANDSHAKES) return true;
+        handshakes.decrementAndGet();
+        return false;
+    }
+
+    void endHandshake() {
+        handshakes.decrementAndGet();
+    }
+
+    long getRetryAfterMillis() {
+        return RETRY_AFTER_MILLIS;
+    }
+
+    /**
+     * Новому игроку — без чтения: заголовок потока, OVERLOADED с паузой до повтора и FIN следом.
+     * Сам сокет закрывается чуть позже: в нем лежит непрочитанный заголовок клиента, и немедленный
+     * close() ушел бы как RST, а RST стирает у клиента еще не прочитанный отказ.
+     */
+    void reject(Socket socket) {
+        countRejected();
+        try {
+            ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            out.writeObject(new NetworkMessage(MessageType.OVERLOADED, RETRY_AFTER_MILLIS));
+            out.flush();
+            socket.shutdownOutput();
+        } catch (IOException ignored) {
+            // клиент уже ушел — отказ ему и не нужен
+        }
+        try {
+            scheduler.schedule(() -> close(socket), REJECT_CLOSE_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (RuntimeException stopped) {
+            close(socket); // сервер останавливается
+        }
+    }
+
+    private static void close(Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException ignored) {
+            // закрываем и так
+        }
+    }
+
+    void countRejected() {
+        rejected.incrementAndGet();
+    }
+
+    String getStats() {
+        return String.format("отклонено подключений: %d, эпизодов перегрузки: %d, сейчас: задержка %d мс, очереди %d, куча %.0f%%",
+            rejected.get(), overloadEpisodes.get(), lagMillis, depth, heapRatio * 100);
+    }
+}
@@ -0,0 +1,121 @@
+package com.example.dungeon.network;
+
+import com.example.dungeon.game.Card;
+import com.example.dungeon.game.AiStrategies;
+import com.example.dungeon.game.AiStrategy;
+import com.example.dungeon.game.Player;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * AiSeatPool — общий для процесса пул потоков, на котором думают все ИИ-места серверов.
+ *  - фиксированное число потоков: нагрузка на CPU не растет с числом ИИ-мест
+ *  - одна задача на ход и FIFO-очередь: места обслуживаются по очереди, никто не занимает пул надолго
+ *  - бюджет времени на ход отсчитывается с момента постановки в очередь; если задача дождалась
+ *    своей очереди слишком поздно или очередь переполнена — ход делается мгновенно (первая карта в руке)
+ *
+ * Настройки: dungeon.ai.threads, dungeon.ai.queue, dungeon.ai.moveBudgetMillis.
+ */
+public class AiSeatPool {
+
+    private static final AiSeatPool SHARED = new AiSeatPool(
+        Integer.getInteger("dungeon.ai.threads", Math.max(1, Runtime.getRuntime().availableProcessors() / 2)),
+        Integer.getInteger("dungeon.ai.queue", 1024),
+        Long.getLong("dungeon.ai.moveBudgetMillis", 50));
+
+    /**
+     * Позиция для хода: снимок игроков, сделанный в момент, когда задача получила поток.
+     */
+    public static class Position {
+        final Player self;
+        final Player opponent;
+
+        public Position(Player self, Player opponent) {
+            this.self = self;
+            this.opponent = opponent;
+        }
+    }
+
+    private final ThreadPoolExecutor executor;
+    private final long budgetNanos;
+
+    private final AtomicLong decisions = new AtomicLong();
+    private final AtomicLong fallbacks = new AtomicLong();
+    private final AtomicLong maxQueueWaitNanos = new AtomicLong();
+
+    public AiSeatPool(int threads, int queueCapacity, long moveBudgetMillis) {
+        this.budgetNanos = TimeUnit.MILLISECONDS.toNanos(moveBudgetMillis);
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(queueCapacity), new ThreadFactory() {
+                private int count;
+
+                @Override
+                public synchronized Thread newThread(Runnable r) {
+                    Thread t = new Thread(r, "AI-Seat-" + (++count));
+                    t.setDaemon(true);
+                    t.setPriority(Thread.NORM_PRIORITY - 1); // ИИ не должен отнимать CPU у сетевых потоков
+                    return t;
+                }
+            });
+    }
+
+    public static AiSeatPool shared() {
+        return SHARED;
+    }
+
+    /**
+     * Ставит ход в очередь. position снимается уже в потоке пула (под блокировкой вызывающего кода),
+     * onDecision получает выбранную карту (или null, если ходить нечем).
+     */
+    public void decide(AiStrategy ai, Supplier<Position> position, Consumer<Card> onDecision) {
+        long enqueued = System.nanoTime();
+        long deadline = enqueued + budgetNanos;
+        try {
+            executor.execute(() -> {
+                long waited = System.nanoTime() - enqueued;
+                maxQueueWaitNanos.accumulateAndGet(waited, Math::max);
+                run(ai, position, onDecision, deadline);
+            });
+        } catch (RejectedExecutionException e) {
+            // Очередь переполнена — ходим без раздумий. Не в вызывающем потоке:
+            // он может держать блокировку сервера, а onDecision снова заходит в handleCardPlayed
+            fallbacks.incrementAndGet();
+            CompletableFuture.runAsync(() -> {
+                Position p = position.get();
+                if (p != null) onDecision.accept(AiStrategies.fallback(p.self));
+            });
+        }
+    }
+
+    private void run(AiStrategy ai, Supplier<Position> position, Consumer<Card> onDecision, long deadline) {
+        Card card = null;
+        try {
+            Position p = position.get();
+            if (p == null) return;
+            if (System.nanoTime() - deadline > 0) {
+                // Бюджет съела очередь — ход без раздумий
+                fallbacks.incrementAndGet();
+                card = AiStrategies.fallback(p.self);
+            } else {
+                card = AiStrategies.decide(ai, p.self, p.opponent, deadline);
+            }
+            decisions.incrementAndGet();
+        } catch (Exception e) {
+            System.err.println("❌ Ошибка ИИ: " + e.getMessage());
+        }
+        onDecision.accept(card);
+    }
+
+    public int getQueueSize() {
+        return executor.getQueue().size();
+    }
+
+    public String getStats() {
+        return String.format("ходов ИИ: %d, без раздумий: %d, опозданий стратегии: %d, очередь: %d, макс. ожидание: %d мс",
+            decisions.get(), fallbacks.get(), AiStrategies.getLateDecisions(), executor.getQueue().size(),
+            TimeUnit.NANOSECONDS.toMillis(maxQueueWaitNanos.get()));
+    }
+}
@@ -2,24 +2,88 @@ package com.example.dungeon.network;
 
 import com.example.dungeon.game.Card;
 import com.example.dungeon.game.CardType;
+import com.example.dungeon.game.CharacterType;
 import lombok.Getter;
 import lombok.Setter;
 import java.io.*;
 import java.net.*;
+import java.util.Map;
 import java.util.Random;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Consumer;
 
+/**
+ * Client — соединение с сервером.
+ * Команды (ход, чат) уходят с номером requestId и возвращают CompletableFuture: он завершается,
+ * когда сервер ответит ACK, с CommandRejectedException на NACK, с TimeoutException, если ответа
+ * нет за dungeon.net.commandTimeoutMillis, и с IOException при разрыве. Команд в полете может быть сколько угодно.
+ *
+ * Раз в dungeon.net.pingMillis клиент шлет PING и по PONG считает RTT (без времени обработки на сервере),
+ * джиттер и смещение часов сервера (по замеру с минимальным RTT, как в NTP). Зная смещение, клиент
+ * оценивает и путь сервер -> клиент для каждого сообщения.
+ *
+ * Живость: если клиент dungeon.net.heartbeatMillis ничего не отправлял, он шлет HEARTBEAT; если от сервера
+ * ничего не было dungeon.net.idleTimeoutMillis, соединение считается мертвым и закрывается.
+ * PING и проверка heartbeat идут на одном таймере; чтение блокируется без таймаута сокета.
+ *
+ * Разрыв — еще не конец партии: клиент переподключается (с нарастающей паузой, до dungeon.net.resumeMillis)
+ * и шлет RESUME с токеном места и номером последнего полученного сообщения; сервер досылает только
+ * пропущенное. Команды в полете за это время ждут ответа (его может дослать сервер) или истекают по таймауту.
+ * Перегруженный сервер отвечает новому игроку OVERLOADED с паузой до повтора и закрывает соединение.
+ *
+ * Подбор (setMatchmaking до запуска): host:port — это MatchmakingServer. Клиент шлет MATCHMAKE и ждет
+ * MATCH_FOUND сколько потребуется, затем подключается к выданной комнате и первой командой предъявляет
+ * билет места (MATCH_JOIN); дальше — обычная партия, переподключение — тоже в комнату (подбор передаст).
+ *
+ * Зритель (setSpectator(true) до запуска) только слушает: после SPECTATE сервер шлет кадры
+ * "int длина + сериализованное сообщение", клиент ничего не отправляет и не переподключается.
+ */
 public class Client implements Runnable {
     public String host;
     public int port;
     public Consumer<Object> messageHandler;
     public boolean connected;
-    private Socket socket;
+    private volatile Socket socket;
     private ObjectOutputStream out;
     private ObjectInputStream in;
     private ExecutorService messageProcessor;
 
+    private static final long COMMAND_TIMEOUT_MILLIS = Long.getLong("dungeon.net.commandTimeoutMillis", 5000);
+    private final AtomicLong nextRequestId = new AtomicLong();
+    // Команды, ждущие ACK/NACK, по requestId
+    private final Map<Long, CompletableFuture<Void>> pending = new ConcurrentHashMap<>();
+
+    private static final long PING_MILLIS = Long.getLong("dungeon.net.pingMillis", 2000);
+    private static final long HEARTBEAT_MILLIS = Long.getLong("dungeon.net.heartbeatMillis", 2000);
+    private static final long IDLE_TIMEOUT_MILLIS = Long.getLong("dungeon.net.idleTimeoutMillis", 3 * HEARTBEAT_MILLIS);
+    private ScheduledExecutorService timer;
+    private volatile long lastReceivedNanos;
+    private volatile long lastSentNanos;
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    private static final long RESUME_MILLIS = Long.getLong("dungeon.net.resumeMillis", 30_000);
+    private volatile long resumeToken;
+    private long lastSeq; // только поток чтения
+    private volatile boolean stopping;
+
+    @Getter
+    @Setter
+    private volatile boolean spectator;
+    // Подбор: {рейтинг, персонаж или -1}; билет места в комнате, которую выдала очередь
+    private int[] matchRequest;
+    private Long matchTicket;
+    // Сглаженные RTT и джиттер (RFC 3550), смещение часов сервера относительно наших
+    private volatile double rttMillis = -1;
+    private volatile double jitterMillis;
+    private volatile long clockOffsetMillis;
+    private long bestRttMillis = Long.MAX_VALUE;
+    private final LatencyHistogram rtt = new LatencyHistogram();
+    private final LatencyHistogram transit = new LatencyHistogram();
+    @Getter
+    private final LatencyHistogram fxDelay = new LatencyHistogram();
+
     public Client(String host, int port, Consumer<Object> messageHandler) throws IOException {
         this.host = host;
         this.port = port;
@@ -28,39 +92,59 @@ public class Client implements Runnable {
         this.messageProcessor = Executors.newSingleThreadExecutor();
     }
 
+    /**
+     * Искать соперника через MatchmakingServer; character null — любой персонаж.
+     */
+    public void setMatchmaking(int rating, CharacterType character) {
+        this.matchRequest = new int[]{rating, character == null ? -1 : character.ordinal()};
+    }
+
     @Override
     public void run() {
         try {
-            socket = new Socket(host, port);
-            socket.setSoTimeout(10000); // Таймаут 10 секунд
-
-            out = new ObjectOutputStream(socket.getOutputStream());
-            out.flush(); // <- важно: отправляем заголовок немедленно
-            in = new ObjectInputStream(socket.getInputStream());
+            if (matchRequest != null) findMatch();
+            open();
 
             System.out.println("📡 Client: streams initialized, listening for messages...");
 
-            connected = true;
+            // В комнате подбора билет должен уйти первым: без MATCH_JOIN комната места не даст и закроет
+            // соединение. Таймер пишет под этим же монитором, так что PING пойдет после билета
+            CompletableFuture<Void> joined = null;
+            synchronized (this) {
+                connected = true;
+                lastReceivedNanos = lastSentNanos = System.nanoTime();
+                if (matchTicket != null && !spectator) joined = sendCommand(MessageType.MATCH_JOIN, matchTicket);
+            }
             System.out.println("✅ Успешно подключено к " + host + ":" + port);
+            startTimer();
 
             // Уведомляем UI об успешном подключении
             if (messageHandler != null) {
                 messageHandler.accept("CONNECTED:Успешное подключение к серверу");
             }
 
-            // Основной цикл приема сообщений
-            while (connected && !socket.isClosed()) {
-                try {
-                    NetworkMessage message = (NetworkMessage) in.readObject();
-                    processMessage(message);
-                } catch (SocketTimeoutException e) {
-                    // Таймаут - продолжаем слушать
-                    continue;
-                } catch (EOFException | SocketException e) {
-                    System.out.println("🔌 Соединение разорвано");
-                    break;
-                }
+            if (spectator) {
+                sendMessage(new NetworkMessage(MessageType.SPECTATE, null));
+                readFrames();
+                return;
+            }
+
+            if (joined != null) {
+                joined.whenComplete((ok, error) -> {
+                    if (error == null) return;
+                    Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                    System.err.println("❌ Комната не приняла билет: " + cause.getMessage());
+                    if (messageHandler != null) {
+                        messageHandler.accept("ERROR:Не удалось войти в найденную игру: " + cause.getMessage());
+                    }
+                    disconnect();
+                });
             }
+
+            // Основной цикл приема сообщений; после разрыва — попытка продолжить партию
+            do {
+                readLoop();
+            } while (reconnect());
         } catch (ConnectException e) {
             if (messageHandler != null) {
                 messageHandler.accept("ERROR:Не удалось подключиться к серверу. Убедитесь, что сервер запущен.");
@@ -76,47 +160,313 @@ public class Client implements Runnable {
         }
     }
 
+    private void open() throws IOException {
+        Socket newSocket = new Socket(host, port);
+        newSocket.setTcpNoDelay(true); // сообщения мелкие: без Nagle, иначе +40 мс на задержанном ACK
+        ObjectOutputStream newOut = new ObjectOutputStream(new BufferedOutputStream(newSocket.getOutputStream())); // один сегмент на сообщение
+        newOut.flush(); // <- важно: отправляем заголовок немедленно
+        ObjectInputStream newIn = new ObjectInputStream(newSocket.getInputStream());
+        synchronized (this) {
+            socket = newSocket;
+            out = newOut;
+            in = newIn;
+        }
+    }
+
+    /**
+     * Очередь подбора: MATCHMAKE и ожидание MATCH_FOUND без таймаутов (очередь молчит, пока ищет),
+     * после чего port указывает на комнату с партией.
+     */
+    private void findMatch() throws IOException, ClassNotFoundException {
+        open();
+        connected = true;
+        sendMessage(new NetworkMessage(MessageType.MATCHMAKE, matchRequest, nextRequestId.incrementAndGet()));
+        notifyChat("🔎 Ищем соперника (рейтинг " + matchRequest[0] + ")...");
+        long started = System.nanoTime();
+        while (true) {
+            NetworkMessage message = (NetworkMessage) in.readObject();
+            if (message.getType() == MessageType.NACK) {
+                throw new IOException("Подбор отклонен: " + message.getData());
+            }
+            if (message.getType() == MessageType.MATCH_FOUND) {
+                long[] found = (long[]) message.getData();
+                connected = false;
+                dropConnection();
+                port = (int) found[0];
+                matchTicket = found[1];
+                notifyChat("⚔ Соперник найден за " + TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - started)
+                    + " с — входим в игру");
+                return;
+            }
+        }
+    }
+
+    private void readLoop() throws IOException, ClassNotFoundException {
+        while (connected && !socket.isClosed()) {
+            try {
+                NetworkMessage message = (NetworkMessage) in.readObject();
+                processMessage(message);
+            } catch (EOFException | SocketException e) {
+                System.out.println("🔌 Соединение разорвано");
+                return;
+            }
+        }
+    }
+
+    /**
+     * Цикл зрителя: каждый кадр — отдельный поток сериализации (сервер кодирует его один раз на всех).
+     */
+    private void readFrames() throws IOException, ClassNotFoundException {
+        DataInputStream frames = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        while (connected && !socket.isClosed()) {
+            byte[] frame;
+            try {
+                frame = new byte[frames.readInt()];
+                frames.readFully(frame);
+            } catch (EOFException | SocketException e) {
+                System.out.println("🔌 Трансляция завершена");
+                return;
+            }
+            try (ObjectInputStream decoder = new ObjectInputStream(new ByteArrayInputStream(frame))) {
+                processMessage((NetworkMessage) decoder.readObject());
+            }
+        }
+    }
+
+    /**
+     * Переподключение после разрыва. true — соединение снова есть и RESUME отправлен
+     * (отказ сервера закроет клиент), false — продолжить нельзя.
+     */
+    private boolean reconnect() {
+        if (stopping || closed.get() || resumeToken == 0 || RESUME_MILLIS <= 0) return false;
+        connected = false;
+        dropConnection();
+        notifyChat("🔄 Связь с сервером потеряна — переподключаемся...");
+
+        long started = System.nanoTime();
+        long deadline = started + TimeUnit.MILLISECONDS.toNanos(RESUME_MILLIS);
+        long pause = 100;
+        while (!stopping && !closed.get() && System.nanoTime() < deadline) {
+            try {
+                open();
+            } catch (IOException e) {
+                try {
+                    Thread.sleep(pause);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+                pause = Math.min(pause * 2, 2000);
+                continue;
+            }
+            System.out.println("🔁 Переподключено, продолжаем с сообщения " + (lastSeq + 1));
+            // RESUME должен уйти первым: иначе сервер примет сокет за новый вход и откажет. PING и HEARTBEAT
+            // таймера проверяют connected без блокировки, но пишут под этим же монитором — и пойдут после
+            CompletableFuture<Void> resumed;
+            synchronized (this) {
+                connected = true;
+                lastReceivedNanos = lastSentNanos = System.nanoTime();
+                resumed = sendCommand(MessageType.RESUME, new long[]{resumeToken, lastSeq});
+            }
+            resumed.whenComplete((ok, error) -> {
+                if (error == null) {
+                    notifyChat("🔁 Связь восстановлена за "
+                        + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started) + " мс");
+                } else {
+                    Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                    System.err.println("❌ Партию продолжить не удалось: " + cause.getMessage());
+                    if (messageHandler != null) {
+                        messageHandler.accept("ERROR:Партию продолжить не удалось: " + cause.getMessage());
+                    }
+                    disconnect();
+                }
+            });
+            return true;
+        }
+        return false;
+    }
+
+    private void notifyChat(String text) {
+        if (messageHandler != null) messageHandler.accept(text); // строка без префикса — системный чат
+    }
+
     private void processMessage(NetworkMessage message) {
+        message.markReceived();
+        lastReceivedNanos = message.getReceivedAtNanos();
+        if (message.getSeq() != 0) {
+            if (message.getSeq() <= lastSeq) return; // уже получено до разрыва
+            lastSeq = message.getSeq();
+        }
+        if (message.getType() == MessageType.HEARTBEAT) return;
+        if (message.getType() == MessageType.RESUME_TOKEN) {
+            resumeToken = (Long) message.getData();
+            return;
+        }
+        if (message.getType() == MessageType.OVERLOADED) {
+            // Сервер закроет соединение сам; новой партии нечего продолжать — сообщаем, когда пробовать снова
+            long retrySeconds = Math.max(1, (Long) message.getData() / 1000);
+            System.err.println("🛑 Сервер перегружен, повтор через " + retrySeconds + " с");
+            if (messageHandler != null) {
+                messageHandler.accept("ERROR:Сервер перегружен. Попробуйте подключиться через " + retrySeconds + " с.");
+            }
+            return;
+        }
+        if (message.getType() == MessageType.PONG) {
+            onPong((long[]) message.getData(), message.getReceivedAtMillis());
+            return;
+        }
+        if (bestRttMillis != Long.MAX_VALUE && message.getSentAtMillis() != 0) {
+            transit.record(TimeUnit.MILLISECONDS.toNanos(
+                message.getReceivedAtMillis() + clockOffsetMillis - message.getSentAtMillis()));
+        }
+        if (message.getType() == MessageType.ACK || message.getType() == MessageType.NACK) {
+            CompletableFuture<Void> command = pending.remove(message.getRequestId());
+            if (command == null) return; // уже истек таймаут
+            if (message.getType() == MessageType.ACK) command.complete(null);
+            else command.completeExceptionally(new CommandRejectedException(String.valueOf(message.getData())));
+            return;
+        }
         System.out.println("📥 Client: получено сообщение: " + message.getType() + " -> " + (message.getData() != null ? message.getData().toString() : "null"));
         if (messageHandler != null) {
             messageHandler.accept(message);
         }
     }
 
-    public synchronized void sendMessage(NetworkMessage message) {
+    public synchronized boolean sendMessage(NetworkMessage message) {
         if (!connected || out == null) {
             System.err.println("❌ Нельзя отправить сообщение: нет подключения");
-            return;
+            return false;
         }
 
         try {
+            message.markSent();
             out.writeObject(message);
             out.flush();
             out.reset(); // сбрасываем кэш сериализованных объектов — полезно при повторной отправке тех же объектов
+            lastSentNanos = System.nanoTime();
+            if (message.getType() == MessageType.PING || message.getType() == MessageType.HEARTBEAT) {
+                return true; // не засоряем лог
+            }
             System.out.println("📤 Client: отправлено сообщение: " + message.getType() + " -> " + message.getData());
+            return true;
         } catch (IOException e) {
             System.err.println("❌ Ошибка отправки сообщения: " + e.getMessage());
-            disconnect();
+            dropConnection(); // разрыв обработает поток чтения
+            return false;
         }
     }
 
-    public void sendChatMessage(String message) {
-        sendMessage(new NetworkMessage(MessageType.CHAT_MESSAGE, message));
+    /**
+     * Команда с подтверждением: результат — ACK/NACK сервера или таймаут.
+     */
+    public CompletableFuture<Void> sendCommand(MessageType type, Object data) {
+        long requestId = nextRequestId.incrementAndGet();
+        CompletableFuture<Void> command = new CompletableFuture<>();
+        pending.put(requestId, command);
+        command.orTimeout(COMMAND_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)
+            .whenComplete((ok, error) -> pending.remove(requestId));
+
+        NetworkMessage message = new NetworkMessage(type, data, requestId);
+        message.setTraceId(ThreadLocalRandom.current().nextLong());
+        if (!sendMessage(message)) {
+            command.completeExceptionally(new IOException("Нет подключения к серверу"));
+        }
+        return command;
     }
 
-    public void playCard(Card card) {
-        sendMessage(new NetworkMessage(MessageType.CARD_PLAYED, card));
+    public CompletableFuture<Void> sendChatMessage(String message) {
+        return sendCommand(MessageType.CHAT_MESSAGE, message);
+    }
+
+    public CompletableFuture<Void> playCard(Card card) {
+        return sendCommand(MessageType.CARD_PLAYED, card);
+    }
+
+    private void startTimer() {
+        timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "Client-Timer");
+            t.setDaemon(true);
+            return t;
+        });
+        if (PING_MILLIS > 0 && !spectator) {
+            timer.scheduleAtFixedRate(() -> {
+                if (connected) sendMessage(new NetworkMessage(MessageType.PING, System.currentTimeMillis()));
+            }, 0, PING_MILLIS, TimeUnit.MILLISECONDS);
+        }
+        if (HEARTBEAT_MILLIS > 0) {
+            long period = Math.max(1, HEARTBEAT_MILLIS / 2);
+            timer.scheduleAtFixedRate(this::checkHeartbeat, period, period, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void checkHeartbeat() {
+        if (!connected) return; // идет переподключение
+        long now = System.nanoTime();
+        long silentMillis = TimeUnit.NANOSECONDS.toMillis(now - lastReceivedNanos);
+        if (silentMillis > IDLE_TIMEOUT_MILLIS) {
+            System.err.println("💀 Сервер молчит " + silentMillis + " мс — соединение потеряно");
+            dropConnection();
+        } else if (!spectator && TimeUnit.NANOSECONDS.toMillis(now - lastSentNanos) >= HEARTBEAT_MILLIS) {
+            sendMessage(new NetworkMessage(MessageType.HEARTBEAT, null)); // зрителя сервер не читает
+        }
+    }
+
+    /**
+     * PONG: t0 — отправка PING по нашим часам, t1/t2 — прием и ответ по часам сервера, t3 — прием PONG.
+     */
+    private void onPong(long[] times, long t3) {
+        long t0 = times[0], t1 = times[1], t2 = times[2];
+        long sample = Math.max(0, (t3 - t0) - (t2 - t1));
+        rtt.record(TimeUnit.MILLISECONDS.toNanos(sample));
+        if (rttMillis < 0) {
+            rttMillis = sample;
+        } else {
+            jitterMillis += (Math.abs(sample - rttMillis) - jitterMillis) / 16;
+            rttMillis += (sample - rttMillis) / 8;
+        }
+        // Смещение точнее всего у самого быстрого замера: у него меньше всего асимметрии пути
+        if (sample <= bestRttMillis) {
+            bestRttMillis = sample;
+            clockOffsetMillis = ((t1 - t0) + (t2 - t3)) / 2;
+        }
+    }
+
+    /**
+     * Сглаженный RTT в мс или -1, если замеров еще нет.
+     */
+    public long getRttMillis() {
+        return Math.round(rttMillis);
+    }
+
+    public long getJitterMillis() {
+        return Math.round(jitterMillis);
+    }
+
+    public long getClockOffsetMillis() {
+        return clockOffsetMillis;
+    }
+
+    public String getLatencyReport() {
+        return "📶 Задержки клиента:"
+            + "\n  RTT           " + rtt.summary()
+            + "\n  сервер->клиент " + transit.summary()
+            + "\n  очередь FX    " + fxDelay.summary()
+            + "\n  смещение часов " + clockOffsetMillis + " мс";
     }
 
     private void disconnect() {
+        if (closed.getAndSet(true)) return; // таймер heartbeat и поток чтения могут прийти сюда оба
         connected = false;
+        if (timer != null) timer.shutdownNow();
+        IOException lost = new IOException("Соединение с сервером разорвано");
+        pending.values().forEach(command -> command.completeExceptionally(lost));
+        pending.clear();
         if (messageProcessor != null) {
             messageProcessor.shutdown();
         }
 
         try {
-            if (in != null) in.close();
-            if (out != null) out.close();
+            // Только сокет: его потоки закроются с ним, а сброс буфера out на мертвом соединении завис бы
             if (socket != null && !socket.isClosed()) socket.close();
 
             // Уведомляем UI об отключении
@@ -132,7 +482,24 @@ public class Client implements Runnable {
         return connected && socket != null && !socket.isClosed();
     }
 
+    /**
+     * Закрыть только сокет: поток чтения заметит разрыв и попробует продолжить партию.
+     */
+    private void dropConnection() {
+        Socket current = socket;
+        try {
+            if (current != null && !current.isClosed()) current.close();
+        } catch (IOException e) {
+            System.err.println("❌ Ошибка при отключении: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Уход по своей воле: сервер сразу освобождает место, переподключения не будет.
+     */
     public void stop() {
+        stopping = true;
+        if (isConnected() && !spectator) sendMessage(new NetworkMessage(MessageType.LEAVE, null));
         disconnect();
     }
 }
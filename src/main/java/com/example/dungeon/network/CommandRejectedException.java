@@ -0,0 +1,12 @@
+package com.example.dungeon.network;
+
+/**
+ * Сервер отклонил команду клиента (NACK): не ваш ход, карты нет в руке и т.п.
+ */
+public class CommandRejectedException extends Exception {
+    private static final long serialVersionUID = 1L;
+
+    public CommandRejectedException(String reason) {
+        super(reason);
+    }
+}
@@ -0,0 +1,377 @@
+package com.example.dungeon.network;
+
+import com.example.dungeon.game.Card;
+import com.example.dungeon.game.Player;
+import com.example.dungeon.game.StateCodec;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.zip.CRC32;
+
+/**
+ * GameJournal — append-only бинарный журнал игровых сессий сервера.
+ *  - игровой поток только кодирует запись и кладет ее в очередь (без ожидания диска)
+ *  - отдельный поток пишет накопившиеся записи одной пачкой и делает один force() на пачку (group commit)
+ *  - после перезапуска сессии восстанавливаются с последнего снимка + команды после него
+ *  - когда файл разрастается, журнал переписывается только хвостами живых сессий (compaction): новый файл
+ *    сначала целиком ложится на диск, и только потом атомарно подменяет старый; сессии, чей снимок этот
+ *    процесс еще не видел, сжатие откладывают — иначе их записи пропали бы вместе со старым файлом
+ *
+ * Формат записи: [int длина тела][byte тип][int sessionId][данные...][int crc32 тела]
+ */
+public class GameJournal implements Closeable {
+
+    static final byte SNAPSHOT = 1;
+    static final byte CARD_PLAYED = 2;
+    static final byte CARD_DRAWN = 3;
+    static final byte SESSION_END = 4;
+
+    private static final int HEADER_SIZE = 4;
+    private static final int TRAILER_SIZE = 4;
+    private static final long COMPACT_THRESHOLD = 1024 * 1024; // 1 МБ
+    private static final byte[] POISON = new byte[0];
+
+    /**
+     * Получатель записей при восстановлении.
+     */
+    public interface Visitor {
+        void onSnapshot(int sessionId, int currentSeat, Player player1, Player player2);
+        void onCardPlayed(int sessionId, int seat, Card card);
+        void onCardDrawn(int sessionId, int seat, Card card);
+    }
+
+    private final Path file;
+    private FileChannel channel;
+    private final BlockingQueue<byte[]> queue = new LinkedBlockingQueue<>();
+    private final Thread writer;
+    private volatile boolean closed;
+    private long compactAt = COMPACT_THRESHOLD;
+
+    // Хвосты живых сессий (последний снимок + записи после него) — трогает только поток записи
+    private final Map<Integer, List<byte[]>> tails = new HashMap<>();
+    // Сессии с записями, но без снимка в tails: их хвост есть только в файле
+    private final Set<Integer> untracked = new HashSet<>();
+
+    private GameJournal(Path file) throws IOException {
+        this.file = file;
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE,
+            StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+        // Отрезаем недописанную запись, оставшуюся после падения процесса
+        long valid = scanValidLength();
+        if (valid < channel.size()) {
+            System.out.println("⚠ Журнал: отброшен поврежденный хвост (" + (channel.size() - valid) + " байт)");
+            channel.truncate(valid);
+        }
+        channel.position(valid);
+
+        this.writer = new Thread(this::writeLoop, "Journal-Writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    public static GameJournal open(Path file) throws IOException {
+        Path dir = file.toAbsolutePath().getParent();
+        if (dir != null) Files.createDirectories(dir);
+        return new GameJournal(file);
+    }
+
+    /**
+     * Журнал по умолчанию — один файл на процесс сервера (по порту).
+     */
+    public static Path defaultPath(int port) {
+        String dir = System.getProperty("dungeon.journal.dir",
+            System.getProperty("user.home") + File.separator + ".dungeon-mayhem");
+        return Paths.get(dir, "server-" + port + ".journal");
+    }
+
+    // === Запись (вызывается из игровой логики, не блокирует) ===
+
+    public void appendSnapshot(int sessionId, int currentSeat, Player player1, Player player2) {
+        append(SNAPSHOT, sessionId, out -> {
+            out.writeByte(currentSeat);
+            StateCodec.writePlayer(out, player1);
+            StateCodec.writePlayer(out, player2);
+        });
+    }
+
+    public void appendCardPlayed(int sessionId, int seat, Card card) {
+        append(CARD_PLAYED, sessionId, out -> {
+            out.writeByte(seat);
+            StateCodec.writeCard(out, card);
+        });
+    }
+
+    public void appendCardDrawn(int sessionId, int seat, Card card) {
+        append(CARD_DRAWN, sessionId, out -> {
+            out.writeByte(seat);
+            StateCodec.writeCard(out, card);
+        });
+    }
+
+    public void appendSessionEnd(int sessionId) {
+        append(SESSION_END, sessionId, out -> {});
+    }
+
+    private interface Body {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    private void append(byte type, int sessionId, Body body) {
+        if (closed) return;
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(0); // место под длину
+            out.writeByte(type);
+            out.writeInt(sessionId);
+            body.write(out);
+            out.writeInt(0); // место под crc
+            byte[] record = bytes.toByteArray();
+
+            int bodyLength = record.length - HEADER_SIZE - TRAILER_SIZE;
+            CRC32 crc = new CRC32();
+            crc.update(record, HEADER_SIZE, bodyLength);
+            ByteBuffer.wrap(record).putInt(0, bodyLength).putInt(record.length - TRAILER_SIZE, (int) crc.getValue());
+
+            queue.offer(record);
+        } catch (IOException e) {
+            System.err.println("❌ Журнал: не удалось закодировать запись: " + e.getMessage());
+        }
+    }
+
+    // === Поток записи ===
+
+    private void writeLoop() {
+        List<byte[]> batch = new ArrayList<>();
+        try {
+            while (true) {
+                batch.add(queue.take());
+                queue.drainTo(batch);
+
+                boolean stop = batch.remove(POISON);
+                if (!batch.isEmpty()) {
+                    writeBatch(batch);
+                }
+                batch.clear();
+
+                if (stop) break;
+                if (channel.size() > compactAt && untracked.isEmpty()) {
+                    compact();
+                    // Не сжимаем на каждой пачке, если живых хвостов много
+                    compactAt = Math.max(COMPACT_THRESHOLD, channel.size() * 2);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            System.err.println("❌ Журнал: ошибка записи, журналирование остановлено: " + e.getMessage());
+            closed = true;
+        }
+    }
+
+    private void writeBatch(List<byte[]> batch) throws IOException {
+        ByteBuffer[] buffers = new ByteBuffer[batch.size()];
+        for (int i = 0; i < batch.size(); i++) {
+            byte[] record = batch.get(i);
+            buffers[i] = ByteBuffer.wrap(record);
+            trackTail(record);
+        }
+        while (hasRemaining(buffers)) {
+            channel.write(buffers);
+        }
+        channel.force(false); // один fsync на всю пачку
+    }
+
+    private void trackTail(byte[] record) {
+        ByteBuffer buf = ByteBuffer.wrap(record);
+        byte type = buf.get(HEADER_SIZE);
+        int sessionId = buf.getInt(HEADER_SIZE + 1);
+        switch (type) {
+            case SNAPSHOT -> {
+                List<byte[]> tail = new ArrayList<>();
+                tail.add(record);
+                tails.put(sessionId, tail);
+                untracked.remove(sessionId);
+            }
+            case SESSION_END -> {
+                tails.remove(sessionId);
+                untracked.remove(sessionId);
+            }
+            default -> {
+                List<byte[]> tail = tails.get(sessionId);
+                if (tail != null) tail.add(record);
+                else untracked.add(sessionId); // до следующего снимка сжимать нельзя
+            }
+        }
+    }
+
+    /**
+     * Переписывает журнал только хвостами живых сессий и атомарно подменяет файл. Старый файл не трогается,
+     * пока новый не записан и не сброшен на диск; после подмены сбрасывается и каталог, иначе после
+     * падения в нем могла бы остаться старая запись, а дописанное в новый файл — пропасть.
+     */
+    private void compact() throws IOException {
+        long before = channel.size();
+        Path tmp = file.resolveSibling(file.getFileName() + ".compact");
+        try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE,
+            StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            for (List<byte[]> tail : tails.values()) {
+                for (byte[] record : tail) {
+                    ByteBuffer buf = ByteBuffer.wrap(record);
+                    while (buf.hasRemaining()) out.write(buf);
+                }
+            }
+            out.force(true);
+        }
+
+        channel.close();
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        forceDirectory(file.toAbsolutePath().getParent());
+        channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        channel.position(channel.size());
+
+        System.out.println("🗜 Журнал сжат: " + before + " -> " + channel.size() + " байт");
+    }
+
+    private static void forceDirectory(Path dir) {
+        if (dir == null) return;
+        try (FileChannel directory = FileChannel.open(dir, StandardOpenOption.READ)) {
+            directory.force(true);
+        } catch (IOException e) {
+            // Не везде каталог можно открыть (Windows) — там переименование надежно и так
+        }
+    }
+
+    private static boolean hasRemaining(ByteBuffer[] buffers) {
+        for (ByteBuffer b : buffers) {
+            if (b.hasRemaining()) return true;
+        }
+        return false;
+    }
+
+    // === Восстановление ===
+
+    /**
+     * Проигрывает журнал: для каждой незавершенной сессии — последний снимок и команды после него.
+     * Вызывать до первой записи в журнал.
+     */
+    public void replay(Visitor visitor) throws IOException {
+        // Проход 1: позиция последнего снимка каждой сессии, завершенные сессии
+        Map<Integer, Long> lastSnapshot = new HashMap<>();
+        Set<Integer> ended = new HashSet<>();
+        forEachRecord((offset, type, sessionId, body) -> {
+            if (type == SNAPSHOT) {
+                lastSnapshot.put(sessionId, offset);
+                ended.remove(sessionId);
+            } else if (type == SESSION_END) {
+                ended.add(sessionId);
+            }
+        });
+        ended.forEach(lastSnapshot::remove);
+
+        // Проход 2: снимок + команды после него
+        forEachRecord((offset, type, sessionId, body) -> {
+            Long from = lastSnapshot.get(sessionId);
+            if (from == null || offset < from) return;
+
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(body));
+            switch (type) {
+                case SNAPSHOT -> {
+                    int currentSeat = in.readUnsignedByte();
+                    Player p1 = StateCodec.readPlayer(in);
+                    Player p2 = StateCodec.readPlayer(in);
+                    visitor.onSnapshot(sessionId, currentSeat, p1, p2);
+                }
+                case CARD_PLAYED -> {
+                    int seat = in.readUnsignedByte();
+                    visitor.onCardPlayed(sessionId, seat, StateCodec.readCard(in));
+                }
+                case CARD_DRAWN -> {
+                    int seat = in.readUnsignedByte();
+                    visitor.onCardDrawn(sessionId, seat, StateCodec.readCard(in));
+                }
+                default -> { }
+            }
+        });
+    }
+
+    private interface RecordHandler {
+        void handle(long offset, byte type, int sessionId, byte[] body) throws IOException;
+    }
+
+    private void forEachRecord(RecordHandler handler) throws IOException {
+        long end = channel.size();
+        long pos = 0;
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        while (pos + HEADER_SIZE <= end) {
+            header.clear();
+            readFully(header, pos);
+            int length = header.getInt(0);
+
+            ByteBuffer record = ByteBuffer.allocate(length + TRAILER_SIZE);
+            readFully(record, pos + HEADER_SIZE);
+            byte type = record.get(0);
+            int sessionId = record.getInt(1);
+            byte[] body = Arrays.copyOfRange(record.array(), 5, length);
+            handler.handle(pos, type, sessionId, body);
+
+            pos += HEADER_SIZE + length + TRAILER_SIZE;
+        }
+    }
+
+    /**
+     * Длина корректной части файла: до первой обрезанной или битой записи.
+     */
+    private long scanValidLength() throws IOException {
+        long end = channel.size();
+        long pos = 0;
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        CRC32 crc = new CRC32();
+        while (pos + HEADER_SIZE <= end) {
+            header.clear();
+            readFully(header, pos);
+            int length = header.getInt(0);
+            if (length < 5 || pos + HEADER_SIZE + length + TRAILER_SIZE > end) break;
+
+            ByteBuffer record = ByteBuffer.allocate(length + TRAILER_SIZE);
+            readFully(record, pos + HEADER_SIZE);
+            crc.reset();
+            crc.update(record.array(), 0, length);
+            if ((int) crc.getValue() != record.getInt(length)) break;
+
+            pos += HEADER_SIZE + length + TRAILER_SIZE;
+        }
+        return pos;
+    }
+
+    private void readFully(ByteBuffer buf, long position) throws IOException {
+        while (buf.hasRemaining()) {
+            int n = channel.read(buf, position + buf.position());
+            if (n < 0) throw new EOFException("Неожиданный конец журнала");
+        }
+    }
+
+    /**
+     * Дописывает очередь на диск и закрывает файл.
+     */
+    @Override
+    public void close() {
+        if (closed) return;
+        closed = true;
+        queue.offer(POISON);
+        try {
+            writer.join(2000);
+            channel.close();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            System.err.println("❌ Журнал: ошибка при закрытии: " + e.getMessage());
+        }
+    }
+}
@@ -1,17 +1,50 @@
 package com.example.dungeon.network;
 
 import com.example.dungeon.game.Card;
+import com.example.dungeon.game.CardRules;
+import com.example.dungeon.game.CombatEvent;
 import com.example.dungeon.game.GameState;
+import com.example.dungeon.game.LockstepGame;
+import com.example.dungeon.game.MatchRecorder;
+import com.example.dungeon.game.Player;
 import javafx.application.Platform;
+import lombok.Setter;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Адаптер между Client и UI. Делегирует входящие сообщения в NetworkListener.
+ *
+ * В режиме lockstep партию ведет локальный LockstepGame (все вызовы — в JavaFX-потоке):
+ * свой ход применяется сразу и уходит на сервер одним int, ход соперника приходит так же.
+ * UI получает те же onGameUpdate/onYourTurn/onGameOver, что и от авторитетного сервера.
+ *
+ * В режиме авторитетного сервера свой ход предсказывается: эффект карты сразу применяется
+ * к копии последнего состояния сервера (те же CardRules.NETWORK) и показывается, не дожидаясь ответа.
+ * Следующий GAME_UPDATE сверяется с предсказанием; при расхождении UI получает onPredictionCorrected
+ * и плавно переходит к состоянию сервера — сервер остается авторитетным.
  */
 public class GameNetworkController {
 
     private final Client client;
     private final NetworkListener listener;
 
+    // Запись матча в файл повтора (необязательно)
+    @Setter
+    private MatchRecorder recorder;
+
+    // Lockstep: локальная партия и наше место (null — режим авторитетного сервера)
+    private LockstepGame lockstep;
+    private int seat;
+
+    // Предсказание: последнее состояние от сервера и наш еще не подтвержденный ход
+    private GameState serverState;
+    private GameState predicted;
+    private long predictedAtNanos;
+    private int predictions;
+    private int mispredictions;
+
     public interface NetworkListener {
         void onChatMessage(String sender, String message);
         void onGameUpdate(GameState state);
@@ -22,6 +55,12 @@ public class GameNetworkController {
         void onYourTurn(boolean isYourTurn);
         void onGameOver(String result);
         void onPlayerInfo(String info);
+        void onPredictionCorrected(GameState predicted, GameState authoritative);
+
+        /**
+         * Часы хода сервера: у того, кто сейчас ходит, осталось millis.
+         */
+        default void onTurnDeadline(long millis) {}
     }
 
     public GameNetworkController(Client client, NetworkListener listener) {
@@ -41,6 +80,9 @@ public class GameNetworkController {
     private void handleIncoming(Object msg) {
         // UI-вызовы должны выполняться в JavaFX-потоке
         Platform.runLater(() -> {
+            if (msg instanceof NetworkMessage nm && nm.getReceivedAtNanos() != 0) {
+                client.getFxDelay().record(System.nanoTime() - nm.getReceivedAtNanos()); // ожидание в очереди FX
+            }
             if (msg instanceof String s) {
                 handleStringMessage(s);
             } else if (msg instanceof NetworkMessage nm) {
@@ -70,6 +112,8 @@ public class GameNetworkController {
             return;
         }
 
+        record(nm);
+
         switch (nm.getType()) {
             case PLAYER_JOIN -> {
                 // Сообщение о подключении нового игрока
@@ -83,30 +127,200 @@ public class GameNetworkController {
                     listener.onChatMessage("Игрок", String.valueOf(data));
                 }
             }
+            case COMBAT_EVENT -> {
+                String text = CombatEvent.render((int[]) nm.getData());
+                if (!text.isEmpty()) listener.onChatMessage("Действие", text);
+            }
             case CARD_PLAYED -> listener.onCardPlayed((Card) nm.getData());
-            case GAME_UPDATE -> listener.onGameUpdate((GameState) nm.getData());
+            case GAME_UPDATE -> onServerState((GameState) nm.getData());
             case YOUR_TURN -> {
                 Object d = nm.getData();
                 if (d instanceof Boolean b) listener.onYourTurn(b);
                 else listener.onYourTurn(Boolean.parseBoolean(String.valueOf(d)));
             }
-            case GAME_OVER -> listener.onGameOver(String.valueOf(nm.getData()));
+            case GAME_OVER -> {
+                lockstep = null;
+                listener.onGameOver(String.valueOf(nm.getData()));
+            }
             case PLAYER_INFO -> listener.onPlayerInfo(String.valueOf(nm.getData()));
+            case LOCKSTEP_START -> startLockstep((long[]) nm.getData());
+            case LOCKSTEP_INPUT -> applyRemoteInput((Integer) nm.getData());
+            case TURN_DEADLINE -> listener.onTurnDeadline((Long) nm.getData());
             default -> System.out.println("[NET] Unknown type: " + nm.getType());
         }
     }
 
+    private void record(NetworkMessage nm) {
+        if (recorder == null) return;
+        switch (nm.getType()) {
+            case GAME_UPDATE -> recorder.recordState((GameState) nm.getData());
+            case CHAT_MESSAGE -> recorder.recordEvent(MatchRecorder.EVENT_CHAT, String.valueOf(nm.getData()));
+            case YOUR_TURN -> recorder.recordEvent(MatchRecorder.EVENT_TURN,
+                Boolean.parseBoolean(String.valueOf(nm.getData())) ? "🎯 ВАШ ХОД" : "⏳ ХОД ПРОТИВНИКА");
+            case GAME_OVER -> recorder.recordEvent(MatchRecorder.EVENT_GAME_OVER, String.valueOf(nm.getData()));
+            case COMBAT_EVENT -> recorder.recordEvent(MatchRecorder.EVENT_ACTION, CombatEvent.render((int[]) nm.getData()));
+            case CARD_PLAYED -> recorder.recordEvent(MatchRecorder.EVENT_ACTION,
+                "Сыграна карта: " + ((Card) nm.getData()).getName());
+            case LOCKSTEP_START, LOCKSTEP_INPUT, TURN_DEADLINE -> {
+                // Состояние пишет publishLockstep(); часы хода в повторе не нужны
+            }
+            default -> recorder.recordEvent(MatchRecorder.EVENT_INFO, String.valueOf(nm.getData()));
+        }
+    }
+
     // Отправка чата через клиент
-    public void sendChat(String text) {
-        if (client != null && client.isConnected()) {
-            client.sendChatMessage(text);
+    public CompletableFuture<Void> sendChat(String text) {
+        if (client == null || !client.isConnected()) return notConnected();
+        return client.sendChatMessage(text);
+    }
+
+    /**
+     * Ход картой. Future завершается по ACK сервера, с CommandRejectedException — если ход отклонен.
+     */
+    public CompletableFuture<Void> playCard(Card card) {
+        if (client == null || !client.isConnected()) return notConnected();
+        if (lockstep != null) {
+            return playLockstep(card);
         }
+        CompletableFuture<Void> sent = client.playCard(card);
+        predict(card);
+        return sent;
     }
 
-    public void playCard(Card card) {
-        if (client != null && client.isConnected()) {
-            client.playCard(card);
+    private static CompletableFuture<Void> notConnected() {
+        return CompletableFuture.failedFuture(new IOException("Нет подключения к серверу"));
+    }
+
+    // === Предсказание своего хода ===
+
+    /**
+     * Применяет карту к копии последнего состояния сервера и сразу показывает результат.
+     */
+    private void predict(Card card) {
+        if (serverState == null || !serverState.isPlayerTurn() || predicted != null) return;
+        Player me = serverState.getCurrentPlayer().copy();
+        Player opponent = serverState.getOpponentPlayer().copy();
+        Card inHand = me.getHand().stream()
+            .filter(c -> c.getType() == card.getType() && c.getName().equals(card.getName()))
+            .findFirst().orElse(null);
+        if (inHand == null) return; // сервер все равно отклонит — предсказывать нечего
+
+        me.getHand().remove(inHand);
+        CardRules.NETWORK.resolve(inHand, me, opponent); // текст события не нужен
+        predicted = new GameState(me, opponent, false, "⏳ ХОД ПРОТИВНИКА");
+        predictedAtNanos = System.nanoTime();
+        predictions++;
+        listener.onGameUpdate(predicted);
+    }
+
+    /**
+     * Состояние от сервера: первое после нашего хода сверяется с предсказанием.
+     */
+    private void onServerState(GameState state) {
+        serverState = state;
+        if (predicted != null) {
+            long millis = (System.nanoTime() - predictedAtNanos) / 1_000_000;
+            if (sameOutcome(predicted, state)) {
+                System.out.println("✅ Предсказание подтверждено сервером через " + millis + " мс");
+            } else {
+                mispredictions++;
+                System.out.println("↺ Предсказание разошлось с сервером (" + mispredictions + " из " + predictions + ")");
+                listener.onPredictionCorrected(predicted, state);
+            }
+            predicted = null;
+        }
+        listener.onGameUpdate(state);
+    }
+
+    /**
+     * Сравниваем то, что предсказуемо: здоровье и щиты обоих, свою руку и очередь хода.
+     * Руку соперника — нет: добор сервер выдает в зависимости от порядка рассылки.
+     */
+    private static boolean sameOutcome(GameState a, GameState b) {
+        Player me = a.getCurrentPlayer();
+        Player serverMe = b.getCurrentPlayer();
+        return a.isPlayerTurn() == b.isPlayerTurn()
+            && sameVitals(me, serverMe) && me.getHand().size() == serverMe.getHand().size()
+            && sameVitals(a.getOpponentPlayer(), b.getOpponentPlayer());
+    }
+
+    private static boolean sameVitals(Player a, Player b) {
+        return a.getHealth() == b.getHealth() && a.getShield() == b.getShield();
+    }
+
+    // === Lockstep ===
+
+    private void startLockstep(long[] start) {
+        lockstep = new LockstepGame(start[0]);
+        seat = (int) start[1];
+        System.out.println("🔁 Lockstep: партия из seed " + start[0] + ", наше место " + seat);
+        publishLockstep();
+    }
+
+    private CompletableFuture<Void> playLockstep(Card card) {
+        if (lockstep.getCurrentSeat() != seat) {
+            return CompletableFuture.failedFuture(new CommandRejectedException("Сейчас не ваш ход!"));
         }
+        int index = lockstep.indexOf(seat, card);
+        if (index < 0) {
+            return CompletableFuture.failedFuture(new CommandRejectedException("⚠ Карта не найдена в руке!"));
+        }
+        int input = LockstepGame.packInput(lockstep.getTurn(), index);
+        listener.onChatMessage("Действие", lockstep.play(seat, index));
+        CompletableFuture<Void> sent = client.sendCommand(MessageType.LOCKSTEP_INPUT, input);
+        sent.whenComplete((ok, error) -> {
+            // Ход уже применен локально: если сервер его не принял, партии у клиентов разошлись
+            if (error instanceof CommandRejectedException) {
+                Platform.runLater(() -> {
+                    lockstep = null;
+                    listener.onGameOver("⚠ Сервер отклонил ход: " + error.getMessage());
+                });
+            }
+        });
+        afterLockstepTurn();
+        return sent;
+    }
+
+    private void applyRemoteInput(int input) {
+        if (lockstep == null) return;
+        int turn = LockstepGame.inputTurn(input);
+        int index = LockstepGame.inputHandIndex(input);
+        try {
+            if (turn != lockstep.getTurn()) {
+                throw new IllegalStateException("пришел ход " + turn + ", ожидался " + lockstep.getTurn());
+            }
+            int opponentSeat = 3 - seat;
+            Card card = lockstep.getPlayer(opponentSeat).getHand().get(index);
+            listener.onChatMessage("Действие", lockstep.play(opponentSeat, index));
+            listener.onCardPlayed(card);
+        } catch (RuntimeException e) {
+            // Честный соперник такого не пришлет — состояния разошлись
+            System.err.println("❌ Lockstep: недопустимый вход соперника: " + e.getMessage());
+            lockstep = null;
+            listener.onGameOver("⚠ Рассинхронизация: " + e.getMessage());
+            return;
+        }
+        afterLockstepTurn();
+    }
+
+    private void afterLockstepTurn() {
+        if (lockstep.getTurn() % LockstepGame.CHECKSUM_INTERVAL == 0 || lockstep.isOver()) {
+            client.sendMessage(new NetworkMessage(MessageType.LOCKSTEP_CHECKSUM,
+                LockstepGame.packChecksum(lockstep.getTurn(), lockstep.checksum())));
+        }
+        publishLockstep();
+        String victory = lockstep.victoryMessage();
+        if (victory != null) {
+            lockstep = null;
+            listener.onGameOver(victory);
+        }
+    }
+
+    private void publishLockstep() {
+        GameState state = lockstep.state(seat);
+        if (recorder != null) recorder.recordState(state);
+        listener.onGameUpdate(state);
+        listener.onYourTurn(state.isPlayerTurn());
     }
 
     public void sendSurrender() {
@@ -117,6 +331,7 @@ public class GameNetworkController {
 
     public void shutdown() {
         if (client != null) {
+            System.out.println(client.getLatencyReport());
             client.stop();
         }
     }
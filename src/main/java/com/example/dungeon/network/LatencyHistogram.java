@@ -0,0 +1,84 @@
+package com.example.dungeon.network;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * LatencyHistogram — потокобезопасная гистограмма длительностей в наносекундах.
+ * Корзины логарифмические, 8 на октаву (погрешность перцентиля до 12.5%), запись без блокировок и аллокаций.
+ */
+public class LatencyHistogram {
+
+    private static final int BUCKETS = 488; // до 2^62 нс
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong totalNanos = new AtomicLong();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    public void record(long nanos) {
+        if (nanos < 0) nanos = 0; // часы разных машин: отрицательная задержка — это ноль
+        buckets.incrementAndGet(bucket(nanos));
+        count.incrementAndGet();
+        totalNanos.addAndGet(nanos);
+        maxNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    public void add(LatencyHistogram other) {
+        for (int i = 0; i < BUCKETS; i++) {
+            long n = other.buckets.get(i);
+            if (n != 0) buckets.addAndGet(i, n);
+        }
+        count.addAndGet(other.count.get());
+        totalNanos.addAndGet(other.totalNanos.get());
+        maxNanos.accumulateAndGet(other.maxNanos.get(), Math::max);
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    public long getMaxNanos() {
+        return maxNanos.get();
+    }
+
+    public double getMeanNanos() {
+        long n = count.get();
+        return n == 0 ? 0 : (double) totalNanos.get() / n;
+    }
+
+    /**
+     * Верхняя граница корзины, в которую попадает q-й перцентиль (q от 0 до 1).
+     */
+    public long percentile(double q) {
+        long target = Math.max(1, (long) Math.ceil(q * count.get()));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += buckets.get(i);
+            if (seen >= target) return Math.min(upperBound(i), maxNanos.get());
+        }
+        return maxNanos.get();
+    }
+
+    /**
+     * Строка вида "n=120 ср=1.20 p50=0.95 p90=2.10 p99=4.80 макс=6.02 мс".
+     */
+    public String summary() {
+        if (count.get() == 0) return "n=0";
+        return String.format(Locale.ROOT, "n=%d ср=%.2f p50=%.2f p90=%.2f p99=%.2f макс=%.2f мс",
+            count.get(), getMeanNanos() / 1e6, percentile(0.5) / 1e6, percentile(0.9) / 1e6,
+            percentile(0.99) / 1e6, maxNanos.get() / 1e6);
+    }
+
+    static int bucket(long nanos) {
+        if (nanos < 8) return (int) nanos;
+        int msb = 63 - Long.numberOfLeadingZeros(nanos);
+        return (msb - 2) * 8 + (int) ((nanos >> (msb - 3)) & 7);
+    }
+
+    static long upperBound(int bucket) {
+        if (bucket < 8) return bucket;
+        int shift = bucket / 8 - 1;
+        return ((8L + bucket % 8) << shift) + (1L << shift) - 1;
+    }
+}
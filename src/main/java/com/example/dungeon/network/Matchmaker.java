@@ -0,0 +1,211 @@
+package com.example.dungeon.network;
+
+import com.example.dungeon.game.CharacterType;
+
+import java.util.Deque;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+
+/**
+ * Matchmaker — очередь подбора соперников по рейтингу.
+ *
+ * Рейтинг делится на корзины шириной dungeon.match.bucketWidth, у каждой корзины своя неблокирующая
+ * очередь (ConcurrentLinkedDeque), в голове — дольше всех ждущий. Новая заявка сначала ищет пару сама:
+ * своя корзина и соседние в пределах начального окна (dungeon.match.initialWindow корзин в каждую сторону) —
+ * несколько poll, без блокировок и без обхода ожидающих, так что постановка вместе с подбором стоит
+ * микросекунды при любой длине очереди. Пары нет — заявка встает в хвост своей корзины.
+ *
+ * Чем дольше ожидание, тем шире окно: плюс корзина каждые dungeon.match.widenMillis, до
+ * dungeon.match.maxWindow. Расширение отрабатывает обход раз в dungeon.match.sweepMillis: в каждой корзине
+ * пару ищет только самая старшая заявка — у младших той же корзины окно не шире, — поэтому обход стоит
+ * O(корзин × окно), а не O(ожидающих).
+ *
+ * Заявку забирает тот, кто вынул ее из очереди, и двойного подбора не бывает. Состояние — CAS:
+ * ждет -> взята -> сыграна или ждет -> отменена; отмененные выбрасываются из очередей при следующем poll.
+ * Обработчик пары вызывается в потоке, который ее нашел (постановка или обход), и должен быть коротким.
+ */
+final class Matchmaker<T> {
+
+    private static final int BUCKET_WIDTH = Integer.getInteger("dungeon.match.bucketWidth", 50);
+    private static final int MAX_RATING = Integer.getInteger("dungeon.match.maxRating", 4000);
+    private static final int INITIAL_WINDOW = Integer.getInteger("dungeon.match.initialWindow", 1);
+    private static final int MAX_WINDOW = Integer.getInteger("dungeon.match.maxWindow", 10);
+    private static final long WIDEN_MILLIS = Long.getLong("dungeon.match.widenMillis", 2000);
+    private static final long SWEEP_MILLIS = Long.getLong("dungeon.match.sweepMillis", 100);
+
+    private static final int WAITING = 0;
+    private static final int CLAIMED = 1;
+    private static final int MATCHED = 2;
+    private static final int CANCELLED = 3;
+
+    /**
+     * Заявка игрока в очереди. cancel() можно звать из любого потока.
+     */
+    final class Ticket {
+        private final T player;
+        private final int rating;
+        private final CharacterType character; // null — любой
+        private final int bucket;
+        private final long enqueuedNanos = System.nanoTime();
+        private final AtomicInteger state = new AtomicInteger(CLAIMED); // до постановки принадлежит создателю
+
+        private Ticket(T player, int rating, CharacterType character) {
+            this.player = player;
+            this.rating = rating;
+            this.character = character;
+            this.bucket = Math.max(0, Math.min(buckets.length - 1, rating / BUCKET_WIDTH));
+        }
+
+        T getPlayer() {
+            return player;
+        }
+
+        int getRating() {
+            return rating;
+        }
+
+        CharacterType getCharacter() {
+            return character;
+        }
+
+        long waitedMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - enqueuedNanos);
+        }
+
+        /**
+         * Уйти из очереди. false — поздно: пара уже найдена.
+         */
+        boolean cancel() {
+            while (true) {
+                int current = state.get();
+                if (current == MATCHED) return false;
+                if (current == CANCELLED) return true;
+                if (current == WAITING && state.compareAndSet(WAITING, CANCELLED)) {
+                    waiting.decrementAndGet();
+                    cancelled.incrementAndGet();
+                    return true;
+                }
+                Thread.onSpinWait(); // заявку держит подборщик — это доли микросекунды
+            }
+        }
+
+        private int window(long now) {
+            long widened = WIDEN_MILLIS <= 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(now - enqueuedNanos) / WIDEN_MILLIS;
+            return (int) Math.min(MAX_WINDOW, INITIAL_WINDOW + widened);
+        }
+    }
+
+    private final Deque<Ticket>[] buckets;
+    private final BiConsumer<Ticket, Ticket> onMatch;
+
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final AtomicLong enqueued = new AtomicLong();
+    private final AtomicLong matched = new AtomicLong();
+    private final AtomicLong cancelled = new AtomicLong();
+    private final LatencyHistogram enqueueTime = new LatencyHistogram();
+    private final LatencyHistogram waitTime = new LatencyHistogram();
+
+    @SuppressWarnings({"unchecked", "rawtypes"}) // массив обобщенного типа иначе не создать
+    Matchmaker(BiConsumer<Ticket, Ticket> onMatch) {
+        this.onMatch = onMatch;
+        this.buckets = new Deque[MAX_RATING / Math.max(1, BUCKET_WIDTH) + 1];
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new ConcurrentLinkedDeque<>();
+        }
+    }
+
+    void start(ScheduledExecutorService scheduler) {
+        scheduler.scheduleWithFixedDelay(this::sweep, SWEEP_MILLIS, SWEEP_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Поставить игрока в очередь; если пара нашлась сразу, обработчик вызывается еще до возврата.
+     */
+    Ticket enqueue(T player, int rating, CharacterType character) {
+        long started = System.nanoTime();
+        Ticket ticket = new Ticket(player, rating, character);
+        enqueued.incrementAndGet();
+        Ticket partner = findPartner(ticket.bucket, INITIAL_WINDOW);
+        if (partner != null) {
+            waiting.decrementAndGet();
+            match(partner, ticket);
+        } else {
+            waiting.incrementAndGet();
+            ticket.state.set(WAITING);
+            buckets[ticket.bucket].offerLast(ticket);
+        }
+        enqueueTime.record(System.nanoTime() - started);
+        return ticket;
+    }
+
+    int getWaiting() {
+        return waiting.get();
+    }
+
+    String getStats() {
+        return "в очереди: " + waiting.get() + ", заявок: " + enqueued.get() + ", пар: " + matched.get()
+            + ", ушли из очереди: " + cancelled.get()
+            + "\n   постановка: " + enqueueTime.summary()
+            + "\n   ожидание пары: " + waitTime.summary();
+    }
+
+    /**
+     * Обход: старшая заявка каждой корзины ищет пару в своем, уже расширенном окне.
+     */
+    private void sweep() {
+        long now = System.nanoTime();
+        for (int bucket = 0; bucket < buckets.length; bucket++) {
+            Ticket oldest;
+            while ((oldest = claim(bucket)) != null) {
+                Ticket partner = findPartner(bucket, oldest.window(now));
+                if (partner == null) {
+                    // Вернуть на место, в голову: очередность ожидания сохраняется
+                    oldest.state.set(WAITING);
+                    buckets[bucket].offerFirst(oldest);
+                    break;
+                }
+                waiting.addAndGet(-2);
+                match(oldest, partner);
+            }
+        }
+    }
+
+    /**
+     * Ближайшая по рейтингу ждущая заявка в пределах window корзин от bucket; найденная уже взята.
+     */
+    private Ticket findPartner(int bucket, int window) {
+        for (int distance = 0; distance <= window; distance++) {
+            Ticket partner = claim(bucket - distance);
+            if (partner == null && distance > 0) partner = claim(bucket + distance);
+            if (partner != null) return partner;
+        }
+        return null;
+    }
+
+    private Ticket claim(int bucket) {
+        if (bucket < 0 || bucket >= buckets.length) return null;
+        Deque<Ticket> queue = buckets[bucket];
+        Ticket ticket;
+        while ((ticket = queue.pollFirst()) != null) {
+            if (ticket.state.compareAndSet(WAITING, CLAIMED)) return ticket;
+            // отмененная — просто выбрасываем
+        }
+        return null;
+    }
+
+    private void match(Ticket first, Ticket second) {
+        first.state.set(MATCHED);
+        second.state.set(MATCHED);
+        matched.incrementAndGet();
+        waitTime.record(System.nanoTime() - first.enqueuedNanos);
+        try {
+            onMatch.accept(first, second);
+        } catch (RuntimeException e) {
+            System.err.println("❌ Ошибка при передаче пары в игру: " + e.getMessage());
+        }
+    }
+}
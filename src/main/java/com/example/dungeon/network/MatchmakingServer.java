@@ -0,0 +1,227 @@
+package com.example.dungeon.network;
+
+import com.example.dungeon.game.CharacterType;
+
+import java.io.*;
+import java.net.*;
+import java.security.SecureRandom;
+import java.util.Map;
+import java.util.concurrent.*;
+
+/**
+ * MatchmakingServer — подбор соперников вместо ввода IP хоста.
+ *
+ * Клиент подключается к очереди и шлет MATCHMAKE с рейтингом и желаемым персонажем; заявка встает
+ * в Matchmaker. Найденная пара получает новую комнату — Server со своей GameSession, — и каждый игрок
+ * MATCH_FOUND с портом и одноразовым билетом места. Порт — этот же: своего слушающего сокета у комнаты нет,
+ * ее соединения принимает подбор и по первому сообщению передает комнате (MATCH_JOIN — по билету,
+ * RESUME — по токену переподключения). С билетом игрок входит в комнату, и игра начинается
+ * с выбранными персонажами. Пул потоков и планировщик у всех комнат общие с подбором.
+ *
+ * Пока игрок ждет, очередь ему ничего не шлет, а сама только ждет конца потока: разрыв снимает заявку.
+ * Комната без игроков закрывается, когда ее партия сыграна или за dungeon.match.roomJoinMillis никто не пришел.
+ */
+public class MatchmakingServer implements Runnable {
+
+    public static final int DEFAULT_PORT = Integer.getInteger("dungeon.match.port", 12346);
+    private static final int HANDSHAKE_MILLIS = Integer.getInteger("dungeon.net.handshakeMillis", 5000);
+    private static final long ROOM_JOIN_MILLIS = Long.getLong("dungeon.match.roomJoinMillis", 60_000);
+    private static final long REAP_SECONDS = 5;
+
+    private final int port;
+    private volatile boolean running = true;
+    private final ServerSocket serverSocket;
+    private final ExecutorService pool = Executors.newCachedThreadPool();
+    private final ScheduledExecutorService housekeeping;
+    private final Matchmaker<Seeker> matchmaker = new Matchmaker<>(this::onMatch);
+    // Открытые комнаты и когда они созданы (System.nanoTime)
+    private final Map<Server, Long> rooms = new ConcurrentHashMap<>();
+    // Еще не предъявленные билеты мест -> комната
+    private final Map<Long, Server> seatTickets = new ConcurrentHashMap<>();
+    private final SecureRandom tickets = new SecureRandom();
+
+    /**
+     * Игрок в очереди: его соединение, куда придет MATCH_FOUND.
+     */
+    private static final class Seeker {
+        private final Socket socket;
+        private final ObjectOutputStream out;
+
+        Seeker(Socket socket, ObjectOutputStream out) {
+            this.socket = socket;
+            this.out = out;
+        }
+
+        synchronized void send(NetworkMessage message) throws IOException {
+            message.markSent();
+            out.writeObject(message);
+            out.flush();
+            out.reset();
+        }
+    }
+
+    public MatchmakingServer(int port) throws IOException {
+        this.serverSocket = new ServerSocket(port);
+        this.port = serverSocket.getLocalPort();
+        this.housekeeping = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "Matchmaking-Housekeeping");
+            t.setDaemon(true);
+            return t;
+        });
+        matchmaker.start(housekeeping);
+        housekeeping.scheduleWithFixedDelay(this::closeVacantRooms, REAP_SECONDS, REAP_SECONDS, TimeUnit.SECONDS);
+    }
+
+    public static void main(String[] args) throws IOException {
+        new MatchmakingServer(args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT).run();
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    @Override
+    public void run() {
+        System.out.println("🔎 Подбор соперников запущен на порту " + port);
+        try {
+            while (running) {
+                Socket socket = serverSocket.accept();
+                pool.execute(() -> serve(socket));
+            }
+        } catch (IOException | RejectedExecutionException e) {
+            if (running) System.err.println("❌ Ошибка подбора: " + e.getMessage());
+        } finally {
+            shutdown();
+        }
+    }
+
+    /**
+     * Одно соединение: MATCHMAKE — ACK, затем ожидание пары до разрыва; MATCH_JOIN и RESUME уходят
+     * в свою комнату и обслуживаются ею на этом же потоке.
+     */
+    private void serve(Socket socket) {
+        Matchmaker<Seeker>.Ticket ticket = null;
+        try (socket) {
+            socket.setTcpNoDelay(true);
+            socket.setSoTimeout(HANDSHAKE_MILLIS);
+            ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            out.flush();
+            TimestampingInputStream timestamps = new TimestampingInputStream(socket.getInputStream());
+            ObjectInputStream in = new ObjectInputStream(timestamps);
+            NetworkMessage request = (NetworkMessage) in.readObject();
+            socket.setSoTimeout(0);
+
+            Server room = roomFor(request);
+            if (room != null) {
+                room.adopt(socket, out, in, timestamps, request, timestamps.takeFirstByteNanos());
+                return;
+            }
+            Seeker seeker = new Seeker(socket, out);
+            if (request.getType() != MessageType.MATCHMAKE) {
+                String refusal = request.getType() == MessageType.MATCH_JOIN ? "Билет подбора недействителен"
+                    : request.getType() == MessageType.RESUME ? "Игра уже заполнена или сессия истекла" : "Ожидался MATCHMAKE";
+                seeker.send(new NetworkMessage(MessageType.NACK, refusal, request.getRequestId()));
+                return;
+            }
+            if (!(request.getData() instanceof int[] wanted) || wanted.length != 2) {
+                seeker.send(new NetworkMessage(MessageType.NACK, "Неверный запрос подбора", request.getRequestId()));
+                return;
+            }
+            CharacterType character = wanted[1] >= 0 && wanted[1] < CharacterType.values().length
+                ? CharacterType.values()[wanted[1]] : null;
+            // ACK до постановки: MATCH_FOUND может прийти сразу и должен идти после него
+            seeker.send(new NetworkMessage(MessageType.ACK, null, request.getRequestId()));
+            ticket = matchmaker.enqueue(seeker, wanted[0], character);
+
+            // Клиент в очереди молчит; конец потока — он ушел (или получил комнату и закрыл соединение)
+            while (!socket.isClosed()) {
+                in.readObject(); // ничего не ждем, кроме разрыва
+            }
+        } catch (IOException | ClassNotFoundException | ClassCastException e) {
+            // разрыв — обычный выход из очереди
+        } finally {
+            if (ticket != null && ticket.cancel()) {
+                System.out.println("🚪 Игрок ушел из очереди через " + ticket.waitedMillis() + " мс");
+            }
+        }
+    }
+
+    /**
+     * Комната, которой адресовано соединение: по билету места (MATCH_JOIN) или по токену
+     * переподключения (RESUME — перебором комнат, переподключения редки). null — не комнате.
+     */
+    private Server roomFor(NetworkMessage request) {
+        if (request.getType() == MessageType.MATCH_JOIN && request.getData() instanceof Long seat) {
+            return seatTickets.remove(seat);
+        }
+        if (request.getType() == MessageType.RESUME && request.getData() instanceof long[] resume && resume.length == 2) {
+            for (Server room : rooms.keySet()) {
+                if (room.canResume(resume[0])) return room;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Пара найдена (поток подбора): комнату открываем в пуле, чтобы не задерживать очередь.
+     */
+    private void onMatch(Matchmaker<Seeker>.Ticket first, Matchmaker<Seeker>.Ticket second) {
+        pool.execute(() -> openRoom(first, second));
+    }
+
+    private void openRoom(Matchmaker<Seeker>.Ticket first, Matchmaker<Seeker>.Ticket second) {
+        long firstTicket = tickets.nextLong();
+        long secondTicket = tickets.nextLong();
+        Server room = Server.room(Map.of(
+            firstTicket, chosen(first),
+            secondTicket, chosen(second)), port, pool, housekeeping);
+        rooms.put(room, System.nanoTime());
+        seatTickets.put(firstTicket, room);
+        seatTickets.put(secondTicket, room);
+        System.out.println("⚔ Пара " + first.getRating() + " / " + second.getRating() + " -> комната (открыто "
+            + rooms.size() + ", ждали " + first.waitedMillis() + " мс)");
+        invite(first, firstTicket);
+        invite(second, secondTicket);
+    }
+
+    private static CharacterType chosen(Matchmaker<Seeker>.Ticket ticket) {
+        return ticket.getCharacter() != null ? ticket.getCharacter() : CharacterType.getRandom();
+    }
+
+    private void invite(Matchmaker<Seeker>.Ticket ticket, long seatTicket) {
+        try {
+            ticket.getPlayer().send(new NetworkMessage(MessageType.MATCH_FOUND, new long[]{port, seatTicket}));
+        } catch (IOException e) {
+            // Ушел в последний момент: сопернику через dungeon.ai.fillSeconds достанется ИИ
+            System.err.println("❌ Игрок ушел до приглашения в комнату: " + e.getMessage());
+        }
+    }
+
+    private void closeVacantRooms() {
+        long now = System.nanoTime();
+        rooms.forEach((room, createdAt) -> {
+            if (room.isVacant() && now - createdAt > TimeUnit.MILLISECONDS.toNanos(ROOM_JOIN_MILLIS)) {
+                rooms.remove(room);
+                seatTickets.values().removeIf(room::equals);
+                System.out.println("🧹 Комната пуста — закрываем (открыто " + rooms.size() + ")");
+                room.shutdown();
+            }
+        });
+    }
+
+    public synchronized void shutdown() {
+        if (serverSocket.isClosed()) return;
+        running = false;
+        try {
+            serverSocket.close();
+        } catch (IOException e) {
+            System.err.println("❌ Ошибка при закрытии подбора: " + e.getMessage());
+        }
+        housekeeping.shutdownNow();
+        System.out.println("🔎 Подбор: " + matchmaker.getStats() + "\n   комнат открыто: " + rooms.size());
+        rooms.keySet().forEach(Server::shutdown);
+        rooms.clear();
+        seatTickets.clear();
+        pool.shutdownNow();
+    }
+}
@@ -9,5 +9,36 @@ public enum MessageType {
     YOUR_TURN,
     PLAYER_INFO,
     SPECIAL_ABILITY,
-    GAME_OVER
+    GAME_OVER,
+    // Режим lockstep: сервер только пересылает входы и сверяет контрольные суммы (см. LockstepGame)
+    LOCKSTEP_START,     // long[]{seed, место}
+    LOCKSTEP_INPUT,     // int: ход << 8 | номер карты в руке
+    LOCKSTEP_CHECKSUM,  // long: ход << 32 | CRC32 состояния
+    // Ответ сервера на команду с requestId: ACK — выполнена, NACK — отклонена (data — причина)
+    ACK,
+    NACK,
+    // Замер задержки: PING — long время клиента, PONG — long[]{время клиента, прием и отправка на сервере}
+    PING,
+    PONG,
+    // Признак жизни без данных: шлется, только если в эту сторону давно ничего не уходило
+    HEARTBEAT,
+    // Продолжение партии после разрыва: RESUME_TOKEN — long токен места от сервера,
+    // RESUME — long[]{токен, последний полученный seq} (команда, ответ ACK/NACK), LEAVE — клиент уходит сам
+    RESUME_TOKEN,
+    RESUME,
+    LEAVE,
+    // Клиент при занятых местах просит смотреть матч; дальше сервер шлет ему кадры SpectatorHub
+    // (int длина + NetworkMessage в собственном ObjectOutputStream) и ничего от него не читает
+    SPECTATE,
+    // Итог хода: int[]{тип карты, место, персонаж, величина}, текст по шаблону строит клиент (см. CombatEvent)
+    COMBAT_EVENT,
+    // Часы хода: long — сколько миллисекунд осталось у того, кто сейчас ходит (шлется в начале каждого хода)
+    TURN_DEADLINE,
+    // Отказ в подключении из-за перегрузки сервера: long — через сколько миллисекунд пробовать снова
+    OVERLOADED,
+    // Подбор соперника (MatchmakingServer): MATCHMAKE — int[]{рейтинг, персонаж или -1} (команда),
+    // MATCH_FOUND — long[]{порт комнаты (он же порт подбора), билет места}, MATCH_JOIN — long билет, первая команда в комнате
+    MATCHMAKE,
+    MATCH_FOUND,
+    MATCH_JOIN
 }
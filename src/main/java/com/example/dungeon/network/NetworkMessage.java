@@ -3,17 +3,64 @@ package com.example.dungeon.network;
 import java.io.Serializable;
 
 public class NetworkMessage implements Serializable {
+    // Зафиксирован на вычисленном значении исходной версии: новые поля — совместимое изменение,
+    // у старого клиента они просто остаются нулями (requestId 0 — без подтверждения), а не ломают прием
+    private static final long serialVersionUID = 2999501105735656069L;
+
     private MessageType type;
     private Object data;
+    // Номер команды клиента для ACK/NACK (0 — подтверждение не нужно)
+    private long requestId;
+    // Порядковый номер у получателя (0 — служебное сообщение вне нумерации); по нему клиент
+    // при переподключении говорит, что уже получил, а сервер досылает остальное
+    private long seq;
+
+    // Трассировка задержек: id цепочки (команда -> ответ сервера) и время отправки по часам отправителя
+    private long traceId;
+    private long sentAtMillis;
+    // Время приема — только на принимающей стороне
+    private transient long receivedAtMillis;
+    private transient long receivedAtNanos;
 
     public NetworkMessage(MessageType type, Object data) {
         this.type = type;
         this.data = data;
     }
 
+    public NetworkMessage(MessageType type, Object data, long requestId) {
+        this(type, data);
+        this.requestId = requestId;
+    }
+
     public MessageType getType() { return type; }
     public Object getData() { return data; }
+    public long getRequestId() { return requestId; }
+    public long getSeq() { return seq; }
+    public long getTraceId() { return traceId; }
+    public long getSentAtMillis() { return sentAtMillis; }
+    public long getReceivedAtMillis() { return receivedAtMillis; }
+    public long getReceivedAtNanos() { return receivedAtNanos; }
     public void setType(MessageType type) { this.type = type; }
     public void setData(Object data) { this.data = data; }
-}
+    public void setTraceId(long traceId) { this.traceId = traceId; }
 
+    /**
+     * Копия с номером seq. Одно сообщение рассылается нескольким получателям, а нумерация у каждого своя.
+     * Данные общие — копируется только конверт.
+     */
+    public NetworkMessage withSeq(long seq) {
+        NetworkMessage copy = new NetworkMessage(type, data, requestId);
+        copy.traceId = traceId;
+        copy.seq = seq;
+        return copy;
+    }
+
+    public void markSent() {
+        sentAtMillis = System.currentTimeMillis();
+    }
+
+    public void markReceived() {
+        receivedAtMillis = System.currentTimeMillis();
+        receivedAtNanos = System.nanoTime();
+    }
+}
@@ -5,14 +5,36 @@ import lombok.Getter;
 import lombok.Setter;
 import java.io.*;
 import java.net.*;
+import java.security.SecureRandom;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Server — улучшенная версия.
  *  - clients: synchronized list
  *  - клиент сообщает серверу о готовности streams -> сервер ждёт готовых клиентов перед startGame()
  *  - generateInitialHand безопасен и не вызывает OOB
+ *  - режим lockstep (-Ddungeon.net.lockstep=true): клиенты сами ведут партию из общего seed,
+ *    сервер пересылает только входы, следит за очередностью ходов и сверяет контрольные суммы
+ *  - живость соединений: один общий таймер раз в полпериода HEARTBEAT шлет HEARTBEAT молчащим
+ *    соединениям и закрывает те, от кого ничего не было dungeon.net.idleTimeoutMillis
+ *  - разрыв не завершает партию: место держится dungeon.net.resumeGraceMillis, а переподключившийся
+ *    клиент по токену (RESUME) получает только пропущенные сообщения из кольцевого буфера отправленных
+ *  - зрители (SPECTATE при занятых местах): все общие сообщения и нейтральное состояние матча
+ *    через SpectatorHub — кодирование один раз на всех, игроков зрители не тормозят
+ *  - исходящие сообщения клиенту идут полосами со строгим приоритетом: служебные, игра, чат;
+ *    очередь чата ограничена dungeon.net.chatQueue, так что поток чата не задерживает ход
+ *  - входящие ограничены ведрами жетонов на соединение (все сообщения, команды, чат) еще до блокировки
+ *    сервера; отказанное получает NACK, а соединение, которое упорно превышает лимиты, закрывается
+ *  - часы хода (dungeon.net.turnSeconds) в общем для процесса колесе таймеров TurnWheel: по истечении
+ *    за игрока ходит сервер, после нескольких пропусков подряд — техническое поражение
+ *  - допуск по нагрузке (AdmissionControl): при перегрузке новые игроки и зрители сразу получают отказ
+ *    с паузой до повтора, а вернувшиеся игроки идущих партий пускаются; рукопожатия ограничены по числу
+ *    и по времени (dungeon.net.handshakeMillis)
+ *  - комнаты подбора (Server.room, их открывает MatchmakingServer): свободный порт, без журнала,
+ *    место дается только по билету (MATCH_JOIN первым сообщением, иначе NACK и закрытие), игра стартует,
+ *    когда оба игрока вошли по билетам, с выбранными персонажами
  */
 public class Server implements Runnable {
     private int port;
@@ -22,27 +44,218 @@ public class Server implements Runnable {
     private Set<ClientHandler> readyHandlers;
     private GameSession gameSession;
     private ExecutorService pool;
+    private GameJournal journal;
+    private SessionHibernator hibernator;
+    private ScheduledExecutorService housekeeping;
+    private ScheduledFuture<?> heartbeats;
+    private final SpectatorHub spectators;
+    // Что видит каждый получатель: у соперника только открытое, кэш на версию состояния
+    private final StateViews views = new StateViews();
+
+    // Через столько секунд ожидания второго игрока его место занимает ИИ (0 — не занимать)
+    private static final long AI_FILL_SECONDS = Long.getLong("dungeon.ai.fillSeconds", 30);
+
+    // Снимок состояния в журнал пишется раз в столько ходов
+    private static final int SNAPSHOT_INTERVAL = 10;
+
+    // Сетевой режим: авторитетный сервер (по умолчанию) или lockstep
+    private static final boolean LOCKSTEP = Boolean.getBoolean("dungeon.net.lockstep");
+    // Lockstep: номер ожидаемого хода и первые пришедшие контрольные суммы по ходам (ждут сверки)
+    private int lockstepTurn;
+    // Lockstep: ход -> контрольные суммы мест 1 и 2 (null — место еще не прислало)
+    private final Map<Integer, Long[]> lockstepChecksums = new HashMap<>();
+
+    // Задержки по этапам обработки; отчет в лог раз в столько секунд (0 — только при остановке)
+    private final ServerMetrics metrics = new ServerMetrics();
+    private static final long METRICS_SECONDS = Long.getLong("dungeon.net.metricsSeconds", 60);
+    private long reportedTurns;
+
+    // Heartbeat: период отправки при простое и срок молчания, после которого клиент считается мертвым
+    static final long HEARTBEAT_MILLIS = Long.getLong("dungeon.net.heartbeatMillis", 2000);
+    static final long IDLE_TIMEOUT_MILLIS = Long.getLong("dungeon.net.idleTimeoutMillis", 3 * HEARTBEAT_MILLIS);
+
+    // Продолжение после разрыва: сколько держим место, сколько последних сообщений помним для досылки
+    private static final long RESUME_GRACE_MILLIS = Long.getLong("dungeon.net.resumeGraceMillis", 30_000);
+    private static final int REPLAY_BUFFER = Integer.getInteger("dungeon.net.replayBuffer", 256);
+    // Сколько ждать заголовок потока и первое сообщение нового соединения
+    private static final int HANDSHAKE_MILLIS = Integer.getInteger("dungeon.net.handshakeMillis", 5000);
+
+    // Исходящая очередь чата на одного клиента: при переполнении теряются самые старые реплики
+    private static final int CHAT_QUEUE = Integer.getInteger("dungeon.net.chatQueue", 64);
+    // Буфер отправки сокета игрока. То, что уже ушло в ядро, полосы обогнать не могут, а автоподстройка
+    // раздувает буфер до мегабайт — с явным размером очередь остается в полосах. Сообщения по 0.3-3 КБ
+    private static final int SEND_BUFFER_BYTES = 64 * 1024;
+
+    // Лимиты входящих на соединение (dungeon.net.{имя}PerSecond / {имя}Burst): все сообщения, команды, чат.
+    // Отказы тратят "штрафы"; кончились — соединение закрывается, место не держится
+    private static final TokenBucket.Limit MESSAGE_LIMIT = TokenBucket.Limit.configured("messages", 50, 100);
+    private static final TokenBucket.Limit COMMAND_LIMIT = TokenBucket.Limit.configured("commands", 5, 10);
+    private static final TokenBucket.Limit CHAT_LIMIT = TokenBucket.Limit.configured("chat", 2, 5);
+    // Часы хода (0 — без ограничения): по истечении за игрока ходит сервер, а после
+    // dungeon.net.turnTimeoutsToForfeit пропусков подряд засчитывается техническое поражение
+    private static final long TURN_SECONDS = Long.getLong("dungeon.net.turnSeconds", 60);
+    private static final int TURN_FORFEIT_AFTER = Integer.getInteger("dungeon.net.turnTimeoutsToForfeit", 2);
+    private static final TokenBucket.Limit STRIKE_LIMIT = TokenBucket.Limit.configured("strikes", 1, 20);
+    // Часы текущего хода в общем колесе таймеров; поколение отсекает сработавший, но уже отмененный таймер
+    private TurnWheel.Timeout turnClock;
+    private long turnClockGeneration;
+    private final int[] missedTurns = new int[3];
+    private final AtomicLong rateLimited = new AtomicLong();
+    private final AtomicLong abusersDisconnected = new AtomicLong();
+    private final SecureRandom tokens = new SecureRandom();
+    private final Map<Long, ClientHandler> resumable = new ConcurrentHashMap<>();
+    private final AdmissionControl admission = new AdmissionControl(this::outboundDepth);
+    // Комната подбора: еще не предъявленные билеты мест -> персонаж (null — обычный сервер)
+    private final Map<Long, CharacterType> matchSeats;
+    private final CharacterType[] seatCharacters = new CharacterType[3];
 
     // Статический экземпляр для доступа из контроллеров
     private static Server instance;
 
     public Server(int port) throws IOException {
-        this.port = port;
+        this(new ServerSocket(port), 0, null, Executors.newCachedThreadPool(), Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "Server-Housekeeping");
+            t.setDaemon(true);
+            return t;
+        }));
+    }
+
+    /**
+     * Комната для пары из подбора: билет места -> персонаж игрока. Своего порта у комнаты нет — соединения
+     * (MATCH_JOIN, RESUME) ей передает MatchmakingServer через adopt(), а потоки и планировщик общие с ним,
+     * поэтому run() для комнаты не вызывают. Без журнала и без выборки допуска: партия всегда новая,
+     * а перегрузку меряет не комната.
+     */
+    static Server room(Map<Long, CharacterType> seats, int lobbyPort,
+                       ExecutorService pool, ScheduledExecutorService housekeeping) {
+        return new Server(null, lobbyPort, new ConcurrentHashMap<>(seats), pool, housekeeping);
+    }
+
+    private Server(ServerSocket serverSocket, int lobbyPort, Map<Long, CharacterType> matchSeats,
+                   ExecutorService pool, ScheduledExecutorService housekeeping) {
+        this.matchSeats = matchSeats;
         this.running = true;
-        this.serverSocket = new ServerSocket(port);
+        this.serverSocket = serverSocket;
+        this.port = serverSocket != null ? serverSocket.getLocalPort() : lobbyPort;
         // синхронный список — безопаснее при многопоточном доступе
         this.clients = Collections.synchronizedList(new ArrayList<>());
         this.readyHandlers = ConcurrentHashMap.newKeySet();
-        this.pool = Executors.newCachedThreadPool();
-        this.gameSession = new GameSession();
+        this.pool = pool;
+        this.gameSession = new GameSession(1);
+        this.housekeeping = housekeeping;
+        this.spectators = new SpectatorHub(pool, housekeeping);
+
+        if (matchSeats == null) {
+            openJournal();
+            if (METRICS_SECONDS > 0) {
+                housekeeping.scheduleAtFixedRate(this::logMetrics, METRICS_SECONDS, METRICS_SECONDS, TimeUnit.SECONDS);
+            }
+            admission.start(housekeeping);
+        }
+        if (HEARTBEAT_MILLIS > 0) {
+            long period = Math.max(1, HEARTBEAT_MILLIS / 2);
+            heartbeats = housekeeping.scheduleAtFixedRate(this::checkHeartbeats, period, period, TimeUnit.MILLISECONDS);
+        }
+
+        try {
+            hibernator = SessionHibernator.shared();
+            hibernator.register(gameSession);
+        } catch (IOException e) {
+            System.err.println("❌ Выгрузка простаивающих сессий отключена: " + e.getMessage());
+        }
+
+        if (matchSeats == null) instance = this; // контроллерам нужен сервер хоста, а не комнаты подбора
+    }
+
+    /**
+     * Открывает журнал и восстанавливает незавершенную сессию после падения процесса.
+     * Ошибки журнала не мешают игре — сервер просто работает без него.
+     */
+    private void openJournal() {
+        try {
+            journal = GameJournal.open(GameJournal.defaultPath(port));
+            journal.replay(new GameJournal.Visitor() {
+                @Override
+                public void onSnapshot(int sessionId, int currentSeat, Player player1, Player player2) {
+                    gameSession = new GameSession(sessionId);
+                    gameSession.restore(currentSeat, player1, player2);
+                }
+
+                @Override
+                public void onCardPlayed(int sessionId, int seat, Card card) {
+                    if (gameSession.getId() != sessionId) return;
+                    if (gameSession.checkMove(card, seat) != null) return;
+                    gameSession.playCard(card, seat);
+                    gameSession.switchTurn();
+                }
+
+                @Override
+                public void onCardDrawn(int sessionId, int seat, Card card) {
+                    if (gameSession.getId() != sessionId) return;
+                    gameSession.getPlayer(seat).getHand().add(card);
+                }
+            });
 
-        instance = this;
+            if (gameSession.isRestored()) {
+                // Свежий снимок: дальше журнал можно сжимать, не теряя восстановленную сессию
+                snapshot();
+                System.out.println("♻ Сессия " + gameSession.getId() + " восстановлена из журнала. Ходит: " +
+                    gameSession.getCurrentPlayer().getName());
+            }
+        } catch (IOException e) {
+            System.err.println("❌ Журнал недоступен, сессии не будут переживать перезапуск: " + e.getMessage());
+            journal = null;
+        }
+    }
+
+    /**
+     * Отмечает активность сессии и поднимает ее с диска, если она была выгружена.
+     */
+    private void touchSession() {
+        if (hibernator != null) hibernator.touch(gameSession);
+    }
+
+    private void snapshot() {
+        if (journal == null) return;
+        journal.appendSnapshot(gameSession.getId(), gameSession.isPlayer1Turn() ? 1 : 2,
+            gameSession.getPlayer1(), gameSession.getPlayer2());
     }
 
     public static Server getInstance() {
         return instance;
     }
 
+    public int getPort() {
+        return port;
+    }
+
+    /**
+     * Токен переподключения (RESUME) принадлежит игроку этого сервера.
+     */
+    boolean canResume(long token) {
+        return resumable.containsKey(token);
+    }
+
+    /**
+     * Ни одного игрока (и ИИ) на местах.
+     */
+    boolean isVacant() {
+        synchronized (clients) {
+            return clients.isEmpty();
+        }
+    }
+
+    public ServerMetrics getMetrics() {
+        return metrics;
+    }
+
+    private void logMetrics() {
+        long turns = metrics.get(ServerMetrics.Stage.TURN).getCount();
+        if (turns == reportedTurns) return; // ходов не было — не засоряем лог
+        reportedTurns = turns;
+        System.out.println(metrics.report());
+    }
+
     @Override
     public void run() {
         System.out.println("🎮 Сервер запущен на порту " + port);
@@ -53,15 +266,26 @@ public class Server implements Runnable {
                 System.out.println("🔌 Новое подключение: " + clientSocket.getInetAddress());
 
                 synchronized (clients) {
-                    if (clients.size() < 2) {
-                        ClientHandler clientHandler = new ClientHandler(clientSocket, this, clients.size() + 1);
+                    if (clients.size() < 2 && admission.isOverloaded()) {
+                        // Новая партия подождет; идущие партии важнее
+                        System.out.println("🛑 Перегрузка: новому игроку отказано, повтор через "
+                            + admission.getRetryAfterMillis() / 1000 + " с");
+                        admission.reject(clientSocket);
+                    } else if (clients.size() < 2 && matchSeats == null && resumable.isEmpty()) {
+                        ClientHandler clientHandler = new ClientHandler(clientSocket, this, freeSeat());
                         clients.add(clientHandler);
                         pool.execute(clientHandler);
 
                         // Не назначаем роль и не стартуем игру здесь —
                         // дождёмся, пока клиент инициализирует streams и вызовет onClientReady().
+                    } else if (admission.tryBeginHandshake()) {
+                        // Кто-то уже сидит: это может быть вернувшийся игрок (RESUME), зритель (SPECTATE)
+                        // или новый игрок — решает первое сообщение. В комнате подбора и свободное место
+                        // достается только по билету (MATCH_JOIN)
+                        pool.execute(() -> handshake(clientSocket));
                     } else {
-                        System.out.println("❌ Игра уже заполнена, отказ в подключении");
+                        System.out.println("🛑 Слишком много рукопожатий одновременно — соединение закрыто");
+                        admission.countRejected();
                         clientSocket.close();
                     }
                 }
@@ -73,6 +297,111 @@ public class Server implements Runnable {
         }
     }
 
+    /**
+     * Новое соединение, когда за столом уже кто-то есть (в комнате подбора — любое). SPECTATE — зритель;
+     * RESUME с токеном одного из игроков — сокет передается его ClientHandler, даже если второе место
+     * свободно; MATCH_JOIN в комнате — вход по билету; любое другое сообщение (или молчание до таймаута —
+     * так входит старый клиент) при свободном месте — новый игрок. Иначе — NACK и закрытие.
+     */
+    private void handshake(Socket socket) {
+        ObjectOutputStream out;
+        ObjectInputStream in;
+        TimestampingInputStream timestamps;
+        NetworkMessage request;
+        long firstByteAt;
+        try {
+            try {
+                socket.setTcpNoDelay(true);
+                socket.setSendBufferSize(SEND_BUFFER_BYTES);
+                // Таймаут и на заголовок потока: молчащее соединение не держит место рукопожатия
+                socket.setSoTimeout(HANDSHAKE_MILLIS);
+                out = new ObjectOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+                out.flush();
+                timestamps = new TimestampingInputStream(socket.getInputStream());
+                in = new ObjectInputStream(timestamps);
+                try {
+                    request = (NetworkMessage) in.readObject();
+                } catch (SocketTimeoutException e) {
+                    // Вернувшийся игрок и зритель говорят сразу; молчит только новый игрок. В комнату так не войти
+                    if (matchSeats != null) throw e;
+                    request = null;
+                }
+                socket.setSoTimeout(0);
+                firstByteAt = timestamps.takeFirstByteNanos();
+            } finally {
+                admission.endHandshake();
+            }
+        } catch (IOException | ClassNotFoundException | ClassCastException e) {
+            System.err.println("❌ Ошибка рукопожатия: " + e.getMessage());
+            try {
+                socket.close();
+            } catch (IOException ignored) {}
+            return;
+        }
+        adopt(socket, out, in, timestamps, request, firstByteAt);
+    }
+
+    /**
+     * Соединение с уже прочитанным первым сообщением (null — клиент промолчал); разбор — как в handshake().
+     * В комнату подбора соединения приходят только так — от MatchmakingServer, принявшего их на своем порту.
+     */
+    void adopt(Socket socket, ObjectOutputStream out, ObjectInputStream in, TimestampingInputStream timestamps,
+               NetworkMessage request, long firstByteAt) {
+        try {
+            if (request != null && request.getType() == MessageType.SPECTATE) {
+                // Дальше зрителю идут только кадры SpectatorHub
+                if (admission.isOverloaded()) {
+                    admission.countRejected();
+                    SpectatorHub.reject(socket, "⏳ Сервер перегружен — попробуйте через "
+                        + admission.getRetryAfterMillis() / 1000 + " с");
+                } else if (LOCKSTEP) {
+                    SpectatorHub.reject(socket, "❌ В режиме lockstep зрители не поддерживаются");
+                } else if (!spectators.add(socket)) {
+                    SpectatorHub.reject(socket, "❌ Мест для зрителей нет");
+                }
+                return;
+            }
+
+            if (request != null && request.getType() == MessageType.MATCH_JOIN && matchSeats != null) {
+                joinMatch(socket, out, in, timestamps, request);
+                return;
+            }
+
+            long[] resume = request != null && request.getType() == MessageType.RESUME ? (long[]) request.getData() : null;
+            ClientHandler handler = resume == null ? null : resumable.get(resume[0]);
+            if (handler == null && resume == null && matchSeats == null
+                    && takeFreeSeat(socket, out, in, timestamps, request, firstByteAt)) {
+                return;
+            }
+            if (handler == null) {
+                String refusal = matchSeats != null && !matchSeats.isEmpty()
+                    ? "В комнату подбора входят только по билету (MATCH_JOIN)" : "Игра уже заполнена или сессия истекла";
+                System.out.println("❌ " + refusal + ", отказ в подключении");
+                out.writeObject(new NetworkMessage(MessageType.NACK, refusal, request == null ? 0 : request.getRequestId()));
+                out.flush();
+                socket.close();
+                return;
+            }
+            handler.resume(socket, out, in, timestamps, request, resume[1]);
+        } catch (IOException | ClassCastException e) {
+            System.err.println("❌ Ошибка рукопожатия: " + e.getMessage());
+            try {
+                socket.close();
+            } catch (IOException ignored) {}
+        }
+    }
+
+    /**
+     * Текущее состояние места заново — когда пропущенное уже выпало из буфера досылки.
+     */
+    private synchronized void resendState(ClientHandler client) {
+        if (LOCKSTEP) return;
+        touchSession(); // вернувшийся мог прийти к выгруженной сессии
+        if (gameSession.getPlayer1() == null) return;
+        client.sendMessage(new NetworkMessage(MessageType.GAME_UPDATE, viewFor(client.getPlayerId())));
+        client.sendMessage(new NetworkMessage(MessageType.YOUR_TURN, gameSession.isPlayerTurn(client.getPlayer())));
+    }
+
     /**
      * Вызывается из ClientHandler после успешной инициализации streams.
      */
@@ -85,7 +414,8 @@ public class Server implements Runnable {
         synchronized (clients) {
             idx = clients.indexOf(handler);
         }
-        String playerRole = (idx == 0) ? "Игрок 1 (Создатель)" : "Игрок 2 (Присоединившийся)";
+        String playerRole = (idx == 0) ? "Игрок 1 (Создатель)"
+            : (handler instanceof AiClientHandler) ? "Игрок 2 (🤖 ИИ)" : "Игрок 2 (Присоединившийся)";
         handler.setPlayerName(playerRole);
 
         // Рассылаем всем, что этот игрок подключился
@@ -94,53 +424,196 @@ public class Server implements Runnable {
 
         System.out.println("▶ Клиент готов: " + playerRole + " (готовых " + readyHandlers.size() + ")");
 
-        // Если все клиенты готовы и их ровно 2 — стартуем игру
-        if (readyHandlers.size() == clients.size() && clients.size() == 2) {
+        // Если все клиенты готовы и их ровно 2 — стартуем игру (в комнате подбора оба уже вошли по билетам)
+        if (readyToStart()) {
             System.out.println("🎲 Все клиенты готовы — стартуем игру");
             startGame();
+        } else if (clients.size() == 1 && AI_FILL_SECONDS > 0 && !LOCKSTEP) {
+            housekeeping.schedule(this::fillWithAi, AI_FILL_SECONDS, TimeUnit.SECONDS);
+        }
+    }
+
+    private boolean readyToStart() {
+        return readyHandlers.size() == clients.size() && clients.size() == 2
+            && (matchSeats == null || matchSeats.isEmpty());
+    }
+
+    /**
+     * Новый игрок, пришедший через рукопожатие: свободное место с уже открытыми потоками, первое сообщение
+     * (если было) обработчик разберет после входа. false — мест уже нет.
+     */
+    private boolean takeFreeSeat(Socket socket, ObjectOutputStream out, ObjectInputStream in,
+                                 TimestampingInputStream timestamps, NetworkMessage first, long firstByteAt) {
+        ClientHandler handler;
+        synchronized (clients) {
+            if (clients.size() >= 2) return false;
+            handler = new ClientHandler(socket, out, in, timestamps, this, freeSeat());
+            clients.add(handler);
+        }
+        handler.enter(first, firstByteAt);
+        return true;
+    }
+
+    /**
+     * Номер места для нового игрока (под clients): 1, если его никто не держит, иначе 2.
+     */
+    private int freeSeat() {
+        for (ClientHandler client : clients) {
+            if (client.getPlayerId() == 1) return 2;
+        }
+        return 1;
+    }
+
+    /**
+     * Вход в комнату подбора: место и ClientHandler появляются только после проверки билета, так что
+     * соединение без билета места не займет. Билет одноразовый; неверный — NACK и закрытие.
+     * Дальше — обычный вход на этом потоке, и готовность последнего игрока стартует игру.
+     */
+    private void joinMatch(Socket socket, ObjectOutputStream out, ObjectInputStream in,
+                           TimestampingInputStream timestamps, NetworkMessage request) throws IOException {
+        ClientHandler handler = null;
+        CharacterType character = null;
+        synchronized (clients) {
+            if (clients.size() < 2 && request.getData() instanceof Long ticket) character = matchSeats.remove(ticket);
+            if (character != null) {
+                handler = new ClientHandler(socket, out, in, timestamps, this, freeSeat());
+                seatCharacters[handler.getPlayerId()] = character;
+                clients.add(handler);
+            }
+        }
+        if (handler == null) {
+            System.out.println("❌ Недействительный билет подбора, отказ в подключении");
+            out.writeObject(new NetworkMessage(MessageType.NACK, "Билет подбора недействителен", request.getRequestId()));
+            out.flush();
+            socket.close();
+            return;
+        }
+        System.out.println("🎫 Игрок " + handler.getPlayerId() + " вошел по билету подбора: " + character.getName());
+        handler.acknowledge(request, null);
+        handler.run();
+    }
+
+    /**
+     * Если второй игрок так и не пришел — его место занимает серверный ИИ.
+     */
+    private void fillWithAi() {
+        AiClientHandler ai;
+        synchronized (clients) {
+            if (!running || clients.size() != 1 || !readyHandlers.contains(clients.get(0))) return;
+            ai = new AiClientHandler(this, 2);
+            clients.add(ai);
+            if (matchSeats != null) matchSeats.clear(); // соперник из подбора не пришел — его место у ИИ
         }
+        System.out.println("🤖 Второй игрок не подключился — место занимает ИИ");
+        broadcast(new NetworkMessage(MessageType.CHAT_MESSAGE,
+            "🤖 Соперник не найден за " + AI_FILL_SECONDS + " с — с вами сыграет ИИ"), null);
+        onClientReady(ai);
     }
 
     private void startGame() {
         System.out.println("=== НАЧАЛО ИГРЫ ===");
         System.out.println("Клиентов: " + clients.size());
 
-        gameSession.initializeGame();
+        if (LOCKSTEP) {
+            startLockstep();
+            return;
+        }
 
+        touchSession();
+        // Сессия, восстановленная из журнала, продолжается с того же места (только эта партия)
+        boolean resumed = gameSession.takeRestored();
+        if (!resumed) {
+            gameSession.initializeGame(seatCharacters[1], seatCharacters[2]);
+            // Раздаем обоим до рассылки: каждый должен видеть, сколько карт у соперника
+            gameSession.getPlayer1().getHand().addAll(generateInitialHand());
+            gameSession.getPlayer2().getHand().addAll(generateInitialHand());
+        }
+        views.invalidate();
+
+        // Представление — по месту игрока, а не по позиции в списке: после ухода первого второй окажется в начале
         for (int i = 0; i < clients.size(); i++) {
             ClientHandler client = clients.get(i);
-            Player player = (i == 0) ? gameSession.getPlayer1() : gameSession.getPlayer2();
-            Player opponent = (i == 0) ? gameSession.getPlayer2() : gameSession.getPlayer1();
+            int seat = client.getPlayerId();
+            Player player = client.getPlayer();
 
-            // Четко определяем, чей сейчас ход - только первый игрок!
-            boolean isPlayerTurn = (i == 0);
+            // Четко определяем, чей сейчас ход - в новой игре только первый игрок!
+            boolean isPlayerTurn = gameSession.isPlayerTurn(player);
 
-            System.out.println("Игрок " + (i+1) + ": " + player.getName() +
+            System.out.println("Игрок " + seat + ": " + player.getName() +
                 " | Ход: " + (isPlayerTurn ? "ДА" : "НЕТ"));
 
-            GameState playerGameState = new GameState(
-                player,
-                opponent,
-                isPlayerTurn,
-                isPlayerTurn ? "Ваш ход! Выберите карту" : "Ход противника. Ожидайте..."
-            );
-
-            // Отправляем начальные карты (без аварий)
-            List<Card> initialHand = generateInitialHand();
-            player.getHand().addAll(initialHand);
-
             // Отправляем состояние клиенту
-            client.sendMessage(new NetworkMessage(MessageType.GAME_UPDATE, playerGameState));
-            client.sendMessage(new NetworkMessage(MessageType.CHAT_MESSAGE,
-                "🎮 Игра началась! Вы " + (i == 0 ? "игрок 1 (ходит первым)" : "игрок 2 (ожидайте)")));
+            client.sendMessage(new NetworkMessage(MessageType.GAME_UPDATE, viewFor(seat)));
+            client.sendMessage(new NetworkMessage(MessageType.CHAT_MESSAGE, resumed
+                ? "♻ Игра восстановлена после перезапуска сервера. Вы игрок " + seat
+                : "🎮 Игра началась! Вы " + (seat == 1 ? "игрок 1 (ходит первым)" : "игрок 2 (ожидайте)")));
 
             // Отправляем явное сообщение о ходе
             client.sendMessage(new NetworkMessage(MessageType.YOUR_TURN, isPlayerTurn));
         }
 
+        if (!resumed) {
+            snapshot();
+        }
+        publishSpectatorState();
+
         broadcast(new NetworkMessage(MessageType.CHAT_MESSAGE,
             "⚔ БИТВА НАЧАЛАСЬ! ⚔"), null);
         System.out.println("▶ Отправлены GAME_UPDATE и YOUR_TURN всем клиентам");
+        armTurnClock();
+    }
+
+    /**
+     * Lockstep: вместо состояния клиенты получают общий seed и свое место, дальше партию ведут сами.
+     */
+    private synchronized void startLockstep() {
+        long seed = new Random().nextLong();
+        lockstepTurn = 0;
+        lockstepChecksums.clear();
+        for (int i = 0; i < clients.size(); i++) {
+            ClientHandler client = clients.get(i);
+            // Место — то же, по которому handleLockstepInput проверяет очередь хода
+            client.sendMessage(new NetworkMessage(MessageType.LOCKSTEP_START, new long[]{seed, client.getPlayerId()}));
+        }
+        broadcast(new NetworkMessage(MessageType.CHAT_MESSAGE, "⚔ БИТВА НАЧАЛАСЬ! ⚔ (режим lockstep)"), null);
+        System.out.println("▶ Lockstep: seed " + seed + " отправлен всем клиентам");
+    }
+
+    /**
+     * Lockstep: вход пересылается сопернику, если пришел от того, чей ход, и с ожидаемым номером хода.
+     * Возвращает причину отказа или null.
+     */
+    public synchronized String handleLockstepInput(int input, ClientHandler sender) {
+        int turn = LockstepGame.inputTurn(input);
+        int expectedSeat = lockstepTurn % 2 == 0 ? 1 : 2;
+        if (sender.getPlayerId() != expectedSeat || turn != lockstepTurn) {
+            System.out.println("⚠ Lockstep: отклонен ход " + turn + " игрока " + sender.getPlayerId() +
+                " (ожидался ход " + lockstepTurn + " игрока " + expectedSeat + ")");
+            return "⚠ Не ваш ход!";
+        }
+        lockstepTurn++;
+        broadcast(new NetworkMessage(MessageType.LOCKSTEP_INPUT, input), sender);
+        return null;
+    }
+
+    /**
+     * Lockstep: контрольные суммы обоих мест за один ход должны совпасть, иначе партия останавливается.
+     * Сравниваем, только когда прислали оба места; повтор от того же места ничего не меняет.
+     */
+    public synchronized void handleLockstepChecksum(long packed, ClientHandler sender) {
+        int seat = sender.getPlayerId();
+        if (seat != 1 && seat != 2) return;
+        int turn = LockstepGame.checksumTurn(packed);
+        Long[] reported = lockstepChecksums.computeIfAbsent(turn, t -> new Long[2]);
+        if (reported[seat - 1] != null) return; // дубль
+        reported[seat - 1] = packed;
+        if (reported[0] == null || reported[1] == null) return;
+        lockstepChecksums.remove(turn);
+        if (!reported[0].equals(reported[1])) {
+            System.err.println("❌ Lockstep: рассинхронизация на ходу " + turn);
+            broadcast(new NetworkMessage(MessageType.GAME_OVER,
+                "⚠ Рассинхронизация на ходу " + turn + " — партия остановлена"), null);
+        }
     }
 
     /**
@@ -192,62 +665,151 @@ public class Server implements Runnable {
         }
     }
 
-    public synchronized void handleCardPlayed(Card card, ClientHandler player) {
+    /**
+     * Ход игрока. Возвращает причину отказа ("⚠ ...") или null, если ход принят.
+     */
+    public String handleCardPlayed(Card card, ClientHandler player) {
+        return handleCardPlayed(card, player, null);
+    }
+
+    private synchronized String handleCardPlayed(Card card, ClientHandler player, TurnTrace trace) {
+        long lockedAt = System.nanoTime();
+        if (trace != null) {
+            trace.queueNanos = lockedAt - trace.decodedAt;
+            metrics.record(ServerMetrics.Stage.QUEUE, trace.queueNanos);
+        }
         System.out.println("🎴 Игрок " + player.getPlayerId() + " сыграл карту: " + card.getName());
 
-        // Применяем эффект карты в игровой сессии
-        String result = gameSession.playCard(card, player.getPlayerId());
+        touchSession();
 
-        // Если ход был успешным, меняем текущего игрока
-        if (!result.startsWith("⚠")) {
+        // Применяем эффект карты в игровой сессии
+        String rejected = gameSession.checkMove(card, player.getPlayerId());
+        int[] event = null;
+
+        // Если ход был успешным, меняем текущего игрока, и он добирает карту
+        Card newCard = null;
+        if (rejected == null) {
+            missedTurns[player.getPlayerId()] = 0; // ход за истекшее время onTurnTimeout засчитает сам
+            event = gameSession.playCard(card, player.getPlayerId());
             gameSession.switchTurn();
+            if (journal != null) journal.appendCardPlayed(gameSession.getId(), player.getPlayerId(), card);
+            newCard = drawRandomCard();
+            if (newCard != null) {
+                gameSession.getCurrentPlayer().getHand().add(newCard);
+                if (journal != null) {
+                    journal.appendCardDrawn(gameSession.getId(), gameSession.isPlayer1Turn() ? 1 : 2, newCard);
+                }
+            }
+            views.invalidate();
         }
+        long logicNanos = System.nanoTime() - lockedAt;
+        metrics.record(ServerMetrics.Stage.LOGIC, logicNanos);
+        if (trace != null) trace.logicNanos = logicNanos;
 
-        // Отправляем результат всем игрокам
-        broadcast(new NetworkMessage(MessageType.CHAT_MESSAGE, result), null);
+        // Отправляем результат всем игрокам; причину отказа игрок получит в NACK
+        if (event != null) {
+            broadcast(new NetworkMessage(MessageType.COMBAT_EVENT, event), null);
+        }
 
-        // Обновляем состояние у всех игроков
+        // Обновляем состояние у всех игроков (каждому — представление его места)
         for (int i = 0; i < clients.size(); i++) {
             ClientHandler client = clients.get(i);
-            Player currentPlayer = (i == 0) ? gameSession.getPlayer1() : gameSession.getPlayer2();
-            Player opponent = (i == 0) ? gameSession.getPlayer2() : gameSession.getPlayer1();
+            Player currentPlayer = client.getPlayer();
 
             // Определяем, чей сейчас ход
             boolean isPlayerTurn = gameSession.isPlayerTurn(currentPlayer);
 
-            GameState updatedState = new GameState(
-                currentPlayer,
-                opponent,
-                isPlayerTurn,
-                isPlayerTurn ? "🎯 ВАШ ХОД" : "⏳ ХОД ПРОТИВНИКА"
-            );
-
-            client.sendMessage(new NetworkMessage(MessageType.GAME_UPDATE, updatedState));
+            client.sendMessage(new NetworkMessage(MessageType.GAME_UPDATE, viewFor(client.getPlayerId())));
 
             // Отправляем явное указание о ходе
             client.sendMessage(new NetworkMessage(MessageType.YOUR_TURN, isPlayerTurn));
 
-            // Если ход клиента, даем ему новую карту (только если ход успешный)
-            if (isPlayerTurn && !result.startsWith("⚠") && gameSession.getCurrentPlayer().equals(currentPlayer)) {
-                Card newCard = drawRandomCard();
-                if (newCard != null) {
-                    currentPlayer.getHand().add(newCard);
-                    client.sendMessage(new NetworkMessage(MessageType.CHAT_MESSAGE,
-                        "🎴 Вы получили новую карту: " + newCard.getName()));
-                }
+            if (isPlayerTurn && newCard != null) {
+                client.sendMessage(new NetworkMessage(MessageType.CHAT_MESSAGE,
+                    "🎴 Вы получили новую карту: " + newCard.getName()));
             }
         }
+        publishSpectatorState();
 
         // Проверяем условия победы
         String victoryMessage = gameSession.checkVictory();
         if (victoryMessage != null) {
-            broadcast(new NetworkMessage(MessageType.CHAT_MESSAGE, victoryMessage), null);
-            broadcast(new NetworkMessage(MessageType.CHAT_MESSAGE,
-                "🔄 Игра завершена. Создайте новую игру для повторной битвы."), null);
+            finishGame(victoryMessage);
+        } else if (rejected == null) {
+            armTurnClock();
+            if (gameSession.nextTurn() % SNAPSHOT_INTERVAL == 0) snapshot();
+        }
+        return rejected;
+    }
+
+    private synchronized void finishGame(String victoryMessage) {
+        stopTurnClock();
+        if (journal != null) journal.appendSessionEnd(gameSession.getId());
+
+        broadcast(new NetworkMessage(MessageType.CHAT_MESSAGE, victoryMessage), null);
+        broadcast(new NetworkMessage(MessageType.CHAT_MESSAGE,
+            "🔄 Игра завершена. Создайте новую игру для повторной битвы."), null);
+
+        // Отправляем сообщение о завершении игры
+        broadcast(new NetworkMessage(MessageType.GAME_OVER, victoryMessage), null);
+    }
+
+    // === Часы хода ===
+
+    /**
+     * Заводит часы для игрока, который сейчас ходит (прежние отменяются), и сообщает всем, сколько осталось.
+     */
+    private synchronized void armTurnClock() {
+        if (TURN_SECONDS <= 0) return;
+        stopTurnClock();
+        long generation = ++turnClockGeneration;
+        // Поток колеса только передает срабатывание на пул
+        turnClock = TurnWheel.shared().schedule(() -> pool.execute(() -> onTurnTimeout(generation)),
+            TURN_SECONDS, TimeUnit.SECONDS);
+        broadcast(new NetworkMessage(MessageType.TURN_DEADLINE, TimeUnit.SECONDS.toMillis(TURN_SECONDS)), null);
+    }
 
-            // Отправляем сообщение о завершении игры
-            broadcast(new NetworkMessage(MessageType.GAME_OVER, victoryMessage), null);
+    private synchronized void stopTurnClock() {
+        if (turnClock != null) {
+            turnClock.cancel();
+            turnClock = null;
+        }
+    }
+
+    /**
+     * Время хода вышло: сервер ходит за игрока первой картой руки, а после TURN_FORFEIT_AFTER
+     * пропусков подряд (или если ходить нечем) — техническое поражение.
+     */
+    private synchronized void onTurnTimeout(long generation) {
+        if (generation != turnClockGeneration || !running) return; // ход уже сделан
+        turnClock = null;
+        touchSession();
+        if (gameSession.checkVictory() != null || clients.size() < 2) return;
+
+        int seat = gameSession.isPlayer1Turn() ? 1 : 2;
+        Player player = gameSession.getCurrentPlayer();
+        ClientHandler client = null;
+        for (ClientHandler c : clients) {
+            if (c.getPlayerId() == seat) client = c;
+        }
+        int missed = missedTurns[seat] + 1;
+        System.out.println("⏰ Игрок " + seat + " не сходил за " + TURN_SECONDS + " с (пропусков подряд: " + missed + ")");
+
+        if (missed >= TURN_FORFEIT_AFTER || player.getHand().isEmpty() || client == null) {
+            broadcast(new NetworkMessage(MessageType.CHAT_MESSAGE, "🏳 " + player.getName()
+                + " пропускает ходов подряд: " + missed + " — техническое поражение"), null);
+            player.setHealth(0);
+            views.invalidate();
+            publishSpectatorState();
+            finishGame(gameSession.checkVictory());
+            return;
         }
+
+        Card card = player.getHand().get(0);
+        broadcast(new NetworkMessage(MessageType.CHAT_MESSAGE,
+            "⏰ Время хода вышло — за " + player.getName() + " сыграна карта: " + card.getName()), null);
+        handleCardPlayed(card, client);
+        missedTurns[seat] = missed;
     }
 
     private Card drawRandomCard() {
@@ -291,6 +853,58 @@ public class Server implements Runnable {
                 client.sendMessage(message);
             }
         }
+        spectators.publish(message);
+    }
+
+    /**
+     * Состояние для зрителей: обе руки закрыты; открытыми их видно только при трансляции с задержкой
+     * не меньше 30 с (SpectatorHub.OPEN_HANDS, см. StateViews).
+     */
+    private void publishSpectatorState() {
+        spectators.publishState(new NetworkMessage(MessageType.GAME_UPDATE, viewFor(StateViews.SPECTATOR)));
+    }
+
+    /**
+     * Сигнал нагрузки для AdmissionControl: сообщения, ждущие отправки игрокам, и ходы в очереди ИИ.
+     */
+    private int outboundDepth() {
+        ClientHandler[] snapshot;
+        synchronized (clients) {
+            snapshot = clients.toArray(new ClientHandler[0]);
+        }
+        int depth = AiSeatPool.shared().getQueueSize();
+        for (ClientHandler client : snapshot) {
+            depth += client.outboundDepth();
+        }
+        return depth;
+    }
+
+    private GameState viewFor(int seat) {
+        return views.view(seat, gameSession.getPlayer1(), gameSession.getPlayer2(), gameSession.isPlayer1Turn());
+    }
+
+    /**
+     * Проход общего таймера по соединениям: молчуны отключаются, простаивающим уходит HEARTBEAT.
+     * sendMessage только ставит в очередь — зависшая отправка мертвому клиенту таймер не останавливает.
+     */
+    private void checkHeartbeats() {
+        ClientHandler[] snapshot;
+        synchronized (clients) {
+            snapshot = clients.toArray(new ClientHandler[0]);
+        }
+        long now = System.nanoTime();
+        for (ClientHandler client : snapshot) {
+            if (client instanceof AiClientHandler || !client.connected) continue;
+            long silentMillis = TimeUnit.NANOSECONDS.toMillis(now - client.lastReceivedNanos);
+            if (silentMillis > IDLE_TIMEOUT_MILLIS) {
+                System.out.println("💀 Игрок " + client.getPlayerId() + " молчит " + silentMillis + " мс — отключаем");
+                client.disconnect();
+            } else if (TimeUnit.NANOSECONDS.toMillis(now - client.lastSentNanos) >= HEARTBEAT_MILLIS) {
+                client.lastSentNanos = now; // не ставим в очередь второй, пока первый не ушел
+                client.sendMessage(new NetworkMessage(MessageType.HEARTBEAT, null));
+            }
+        }
+        spectators.heartbeat(HEARTBEAT_MILLIS);
     }
 
     public void removeClient(ClientHandler client) {
@@ -301,7 +915,16 @@ public class Server implements Runnable {
 
         System.out.println("👋 Клиент отключен. Осталось игроков: " + clients.size());
 
+        // Без людей ИИ играть не с кем — освобождаем и его место
+        synchronized (clients) {
+            if (clients.stream().allMatch(c -> c instanceof AiClientHandler)) {
+                clients.forEach(readyHandlers::remove);
+                clients.clear();
+            }
+        }
+
         if (clients.size() < 2) {
+            stopTurnClock(); // партия на паузе — часы не идут
             broadcast(new NetworkMessage(MessageType.CHAT_MESSAGE,
                 "⚠ Один из игроков покинул игру. Игра приостановлена."), null);
         }
@@ -309,7 +932,23 @@ public class Server implements Runnable {
 
     public void shutdown() {
         running = false;
-        pool.shutdownNow();
+        stopTurnClock();
+        if (heartbeats != null) heartbeats.cancel(false);
+        if (matchSeats != null) {
+            // Потоки и планировщик комнаты принадлежат подбору; общие отчеты процесса — тоже его дело
+            System.out.println("🏁 Комната закрыта: " + metrics.get(ServerMetrics.Stage.TURN).getCount() + " ходов");
+        } else {
+            pool.shutdownNow();
+            housekeeping.shutdownNow();
+            printStats();
+        }
+        spectators.close();
+        if (journal != null) {
+            journal.close();
+        }
+        if (hibernator != null) {
+            hibernator.unregister(gameSession); // выгрузчик общий для процесса — закрывать его не нам
+        }
         try {
             if (serverSocket != null && !serverSocket.isClosed()) {
                 serverSocket.close();
@@ -326,20 +965,65 @@ public class Server implements Runnable {
         }
     }
 
+    private void printStats() {
+        System.out.println("🤖 ИИ: " + AiSeatPool.shared().getStats());
+        System.out.println(metrics.report());
+        System.out.println("👁 Трансляция: " + spectators.getStats());
+        System.out.println("🪞 Представления: " + views.getStats());
+        System.out.println("⏰ Часы хода: " + TurnWheel.shared().getStats());
+        System.out.println("🛑 Допуск: " + admission.getStats());
+        System.out.println("🚦 Лимиты: отклонено сообщений: " + rateLimited.get() + ", отключено соединений: " + abusersDisconnected.get());
+        if (hibernator != null) System.out.println("💤 Выгрузка сессий: " + hibernator.getStats());
+    }
+
+    /**
+     * Трассировка одного хода: моменты прихода и декодирования, ожидание очереди и логика.
+     */
+    private static class TurnTrace {
+        final long traceId;
+        final long firstByteAt;
+        final long decodedAt;
+        long queueNanos;
+        long logicNanos;
+
+        TurnTrace(long traceId, long firstByteAt, long decodedAt) {
+            this.traceId = traceId;
+            this.firstByteAt = firstByteAt;
+            this.decodedAt = decodedAt;
+        }
+    }
+
     // Внутренний класс для обработки игровой сессии (без изменений)
-    private class GameSession {
+    private class GameSession implements SessionHibernator.Hibernatable {
+        private final int id;
         private Player player1;
         private Player player2;
         private Player currentPlayer; // Текущий игрок
         private Random random;
+        private int turn;
+        private boolean restored;
 
-        public GameSession() {
+        public GameSession(int id) {
+            this.id = id;
             this.random = new Random();
         }
 
-        public void initializeGame() {
-            player1 = new Player("Игрок 1");
-            player2 = new Player("Игрок 2");
+        /**
+         * Восстановление из снимка журнала.
+         */
+        public void restore(int currentSeat, Player player1, Player player2) {
+            this.player1 = player1;
+            this.player2 = player2;
+            this.currentPlayer = (currentSeat == 1) ? player1 : player2;
+            this.restored = true;
+        }
+
+        /**
+         * Новая партия; персонаж null — случайный.
+         */
+        public void initializeGame(CharacterType character1, CharacterType character2) {
+            player1 = character1 != null ? new Player("Игрок 1", character1) : new Player("Игрок 1");
+            player2 = character2 != null ? new Player("Игрок 2", character2) : new Player("Игрок 2");
             currentPlayer = player1; // Первый игрок ходит первым
             System.out.println("🔄 Игровая сессия инициализирована. Первый ход: " + currentPlayer.getName());
         }
@@ -357,9 +1041,11 @@ public class Server implements Runnable {
             return currentPlayer != null && currentPlayer.equals(player);
         }
 
-        public String playCard(Card card, int playerId) {
+        /**
+         * Причина, по которой ход нельзя сделать, или null.
+         */
+        public String checkMove(Card card, int playerId) {
             Player currentPlayer = (playerId == 1) ? player1 : player2;
-            Player opponent = (playerId == 1) ? player2 : player1;
 
             // Проверяем, правильный ли игрок ходит
             if (!isPlayerTurn(currentPlayer)) {
@@ -370,102 +1056,32 @@ public class Server implements Runnable {
             }
 
             // Проверяем, есть ли карта в руке
-            Optional<Card> cardInHand = currentPlayer.getHand().stream()
-                .filter(c -> c.getName().equals(card.getName()) && c.getType() == card.getType())
-                .findFirst();
-
-            if (cardInHand.isEmpty()) {
+            if (findInHand(currentPlayer, card).isEmpty()) {
                 return "⚠ Карта не найдена в руке!";
             }
+            return null;
+        }
 
-            // Удаляем карту из руки
-            currentPlayer.getHand().remove(cardInHand.get());
+        /**
+         * Ход, уже прошедший checkMove. Возвращает событие для COMBAT_EVENT.
+         */
+        public int[] playCard(Card card, int playerId) {
+            Player currentPlayer = (playerId == 1) ? player1 : player2;
+            Player opponent = (playerId == 1) ? player2 : player1;
 
-            // Применяем эффект карты
-            String actionMessage = applyCardEffect(card, currentPlayer, opponent);
+            // Удаляем карту из руки
+            Card inHand = findInHand(currentPlayer, card).orElseThrow();
+            currentPlayer.getHand().remove(inHand);
 
-            return actionMessage;
+            // Применяем эффект карты (правила общие с ИИ, см. NetworkCardRules)
+            int amount = CardRules.NETWORK.resolve(card, currentPlayer, opponent);
+            return CombatEvent.of(card, playerId, currentPlayer, amount);
         }
 
-        private String applyCardEffect(Card card, Player currentPlayer, Player opponent) {
-            StringBuilder message = new StringBuilder();
-
-            // Применяем множители персонажа
-            switch (card.getType()) {
-                case ATTACK:
-                case DOUBLE_ATTACK:
-                case BACKSTAB:
-                case FIREBALL:
-                    int baseDamage = card.getValue();
-                    int actualDamage = currentPlayer.calculateAttackDamage(baseDamage);
-
-                    if (card.getType() == CardType.FIREBALL) {
-                        opponent.takeDamage(actualDamage);
-                        message.append("🔥 ").append(currentPlayer.getName())
-                            .append(" (").append(currentPlayer.getCharacter().getName())
-                            .append(") бросает огненный шар! Нанесено ")
-                            .append(actualDamage).append(" урона.");
-                    } else {
-                        opponent.takeDamage(actualDamage);
-                        message.append("⚔ ").append(currentPlayer.getName())
-                            .append(" (").append(currentPlayer.getCharacter().getName())
-                            .append(") атакует! Нанесено ")
-                            .append(actualDamage).append(" урона.");
-
-                        if (card.getType() == CardType.BACKSTAB) {
-                            message.append(" (Игнорирует защиту!)");
-                        }
-                    }
-                    break;
-
-                case DEFEND:
-                case SUPER_SHIELD:
-                    int baseShield = card.getValue();
-                    int actualShield = currentPlayer.calculateShield(baseShield);
-                    currentPlayer.addShield(actualShield);
-
-                    message.append("🛡 ").append(currentPlayer.getName())
-                        .append(" (").append(currentPlayer.getCharacter().getName())
-                        .append(") ставит щит! +").append(actualShield)
-                        .append(" защиты.");
-                    break;
-
-                case HEAL:
-                case ULTIMATE_HEAL:
-                    int baseHeal = card.getValue();
-                    int actualHeal = currentPlayer.calculateHealing(baseHeal);
-                    currentPlayer.heal(actualHeal);
-
-                    message.append("❤ ").append(currentPlayer.getName())
-                        .append(" (").append(currentPlayer.getCharacter().getName())
-                        .append(") лечится! +").append(actualHeal)
-                        .append(" здоровья.");
-                    break;
-
-                case BERSERK_RAGE:
-                    int rageDamage = currentPlayer.calculateAttackDamage(card.getValue());
-                    opponent.takeDamage(rageDamage);
-                    currentPlayer.takeDamage(2); // Сам получает урон
-
-                    message.append("😡 ").append(currentPlayer.getName())
-                        .append(" (").append(currentPlayer.getCharacter().getName())
-                        .append(") впадает в ярость! Нанесено ")
-                        .append(rageDamage).append(" урона, но сам получил 2 урона.");
-                    break;
-
-                case HOLY_LIGHT:
-                    int holyHeal = currentPlayer.calculateHealing(card.getValue());
-                    currentPlayer.heal(holyHeal);
-                    currentPlayer.addShield(1);
-
-                    message.append("✨ ").append(currentPlayer.getName())
-                        .append(" (").append(currentPlayer.getCharacter().getName())
-                        .append(") использует святой свет! +")
-                        .append(holyHeal).append(" здоровья и +1 защита.");
-                    break;
-            }
-
-            return message.toString();
+        private Optional<Card> findInHand(Player player, Card card) {
+            return player.getHand().stream()
+                .filter(c -> c.getName().equals(card.getName()) && c.getType() == card.getType())
+                .findFirst();
         }
 
         public String checkVictory() {
@@ -477,6 +1093,62 @@ public class Server implements Runnable {
             return null;
         }
 
+        // === Выгрузка на диск (под блокировкой сервера, как и ходы, см. SessionHibernator) ===
+
+        @Override
+        public Object monitor() {
+            return Server.this;
+        }
+
+        @Override
+        public boolean canHibernate() {
+            return player1 != null && player2 != null;
+        }
+
+        @Override
+        public void writeState(DataOutputStream out) throws IOException {
+            out.writeByte(isPlayer1Turn() ? 1 : 2);
+            out.writeInt(turn);
+            StateCodec.writePlayer(out, player1);
+            StateCodec.writePlayer(out, player2);
+        }
+
+        /**
+         * Отпускает граф партии целиком: игроков, готовые представления и буферы досылки (в них те же
+         * снимки состояния). Вернувшемуся после выгрузки игроку сервер пришлет текущее состояние заново.
+         */
+        @Override
+        public void evict() {
+            player1 = null;
+            player2 = null;
+            currentPlayer = null;
+            views.clear();
+            ClientHandler[] seated;
+            synchronized (clients) {
+                seated = clients.toArray(new ClientHandler[0]);
+            }
+            for (ClientHandler client : seated) client.dropReplay(); // монитор обработчика — не под clients
+        }
+
+        @Override
+        public void readState(DataInputStream in) throws IOException {
+            int currentSeat = in.readUnsignedByte();
+            turn = in.readInt();
+            player1 = StateCodec.readPlayer(in);
+            player2 = StateCodec.readPlayer(in);
+            currentPlayer = (currentSeat == 1) ? player1 : player2;
+        }
+
+        @Override
+        public int getId() { return id; }
+        public boolean isRestored() { return restored; }
+        public boolean takeRestored() {
+            boolean was = restored;
+            restored = false; // следующая партия на этом сервере — новая
+            return was;
+        }
+        public int nextTurn() { return ++turn; }
+        public Player getPlayer(int seat) { return seat == 1 ? player1 : player2; }
         public Player getPlayer1() { return player1; }
         public Player getPlayer2() { return player2; }
         public boolean isPlayer1Turn() { return currentPlayer == player1; }
@@ -485,16 +1157,52 @@ public class Server implements Runnable {
 
     // Внутренний класс для обработки клиентов
     private class ClientHandler implements Runnable {
-        private Socket socket;
+        private volatile Socket socket;
         private Server server;
         private ObjectOutputStream out;
         private ObjectInputStream in;
+        private TimestampingInputStream timestamps;
         @Getter
         private int playerId;
         @Getter
         @Setter
         private String playerName;
         private volatile boolean connected;
+        // Время последнего принятого и отправленного сообщения (System.nanoTime) — для heartbeat
+        private volatile long lastReceivedNanos = System.nanoTime();
+        private volatile long lastSentNanos = System.nanoTime();
+
+        // Продолжение после разрыва. generation растет при каждом переподключении: поток чтения
+        // и таймер старого соединения по ней понимают, что они уже не актуальны
+        private final long resumeToken;
+        private int generation;
+        private volatile boolean detached;
+        private volatile boolean leaving;
+        private long lastSeq;
+        private final ArrayDeque<NetworkMessage> sentLog = new ArrayDeque<>();
+
+        // Исходящие полосы (под this): служебные, затем игра, затем чат. Пишет один поток записи
+        // на пуле, каждый раз беря сообщение из старшей непустой полосы, так что YOUR_TURN и
+        // GAME_UPDATE обгоняют накопившийся чат. Номер seq дается при записи — в порядке выхода в сокет.
+        private final ArrayDeque<NetworkMessage> controlLane = new ArrayDeque<>();
+        private final ArrayDeque<NetworkMessage> gameLane = new ArrayDeque<>();
+        private final ArrayDeque<NetworkMessage> chatLane = new ArrayDeque<>();
+        // Досылка после переподключения: уже с номерами seq и уже в sentLog, идет раньше всех полос
+        private final ArrayDeque<NetworkMessage> replayLane = new ArrayDeque<>();
+        private boolean writing;
+        private volatile boolean closeWhenDrained;
+        private long chatDropped;
+        // Запись в сокет и подмена потоков при переподключении
+        private final Object writeLock = new Object();
+        // Первое сообщение, прочитанное рукопожатием до выдачи места: разбирается сразу после входа
+        private NetworkMessage firstMessage;
+        private long firstMessageAt;
+
+        // Лимиты входящих: трогает только поток чтения, поэтому без блокировок (см. TokenBucket)
+        private final TokenBucket messageBucket = new TokenBucket(MESSAGE_LIMIT);
+        private final TokenBucket commandBucket = new TokenBucket(COMMAND_LIMIT);
+        private final TokenBucket chatBucket = new TokenBucket(CHAT_LIMIT);
+        private final TokenBucket strikes = new TokenBucket(STRIKE_LIMIT);
 
         public ClientHandler(Socket socket, Server server, int playerId) {
             this.socket = socket;
@@ -502,17 +1210,40 @@ public class Server implements Runnable {
             this.playerId = playerId;
             this.connected = true;
             this.playerName = "Игрок " + playerId;
+            this.resumeToken = socket == null ? 0 : tokens.nextLong() | 1; // 0 — "токена нет"
+        }
+
+        /**
+         * Игрок, вошедший через рукопожатие (по билету подбора или на свободное место): потоки уже открыты.
+         */
+        ClientHandler(Socket socket, ObjectOutputStream out, ObjectInputStream in, TimestampingInputStream timestamps,
+                      Server server, int playerId) {
+            this(socket, server, playerId);
+            this.out = out;
+            this.in = in;
+            this.timestamps = timestamps;
         }
 
         @Override
         public void run() {
             try {
-                out = new ObjectOutputStream(socket.getOutputStream());
-                out.flush(); // <- важно
-                in = new ObjectInputStream(socket.getInputStream());
+                if (out == null) { // вход по билету приходит с готовыми потоками
+                    socket.setTcpNoDelay(true); // сообщения мелкие: без Nagle, иначе +40 мс на задержанном ACK
+                    socket.setSendBufferSize(SEND_BUFFER_BYTES);
+                    socket.setSoTimeout(HANDSHAKE_MILLIS); // молчащий клиент не займет место навсегда
+                    out = new ObjectOutputStream(new BufferedOutputStream(socket.getOutputStream())); // один сегмент на сообщение
+                    out.flush(); // <- важно
+                    timestamps = new TimestampingInputStream(socket.getInputStream());
+                    in = new ObjectInputStream(timestamps);
+                    socket.setSoTimeout(0);
+                    timestamps.takeFirstByteNanos(); // заголовок потока — не сообщение
+                }
 
                 System.out.println("🔗 ClientHandler[" + playerId + "]: streams initialized for " + socket.getInetAddress());
 
+                resumable.put(resumeToken, this);
+                sendMessage(new NetworkMessage(MessageType.RESUME_TOKEN, resumeToken));
+
                 // Сообщаем серверу, что этот handler готов (streams готовы)
                 server.onClientReady(this);
 
@@ -525,11 +1256,47 @@ public class Server implements Runnable {
                         "⏳ Ожидайте начала игры..."));
                 }
 
-                // Основной цикл обработки сообщений
+                if (firstMessage != null) {
+                    NetworkMessage first = firstMessage;
+                    firstMessage = null;
+                    first.markReceived();
+                    handleMessage(first, firstMessageAt);
+                }
+
+            } catch (IOException e) {
+                System.err.println("❌ Ошибка обработки клиента " + playerId + ": " + e.getMessage());
+                connected = false; // до конца входа держать нечего
+                closeSocket();
+                forget();
+                return;
+            }
+            readLoop(0, socket, in, timestamps);
+        }
+
+        /**
+         * Вход на свободное место через рукопожатие (на потоке рукопожатия): first — уже прочитанное
+         * первое сообщение или null, если клиент молчал.
+         */
+        void enter(NetworkMessage first, long firstByteAt) {
+            firstMessage = first;
+            firstMessageAt = firstByteAt;
+            run();
+        }
+
+        /**
+         * Основной цикл обработки сообщений одного соединения. Потоки — локальные:
+         * после переподключения поля уже указывают на новый сокет.
+         */
+        private void readLoop(int gen, Socket socket, ObjectInputStream in, TimestampingInputStream timestamps) {
+            try {
                 while (connected && !socket.isClosed()) {
                     try {
                         NetworkMessage message = (NetworkMessage) in.readObject();
-                        handleMessage(message);
+                        long firstByteAt = timestamps.takeFirstByteNanos();
+                        message.markReceived();
+                        lastReceivedNanos = message.getReceivedAtNanos();
+                        metrics.record(ServerMetrics.Stage.DECODE, message.getReceivedAtNanos() - firstByteAt);
+                        handleMessage(message, firstByteAt);
                     } catch (EOFException | SocketException e) {
                         System.out.println("📡 Клиент " + playerId + " отключился: " + e.getMessage());
                         break; // Клиент отключился
@@ -540,19 +1307,86 @@ public class Server implements Runnable {
             } catch (IOException e) {
                 System.err.println("❌ Ошибка обработки клиента " + playerId + ": " + e.getMessage());
             } finally {
-                disconnect();
+                connectionLost(gen);
             }
         }
 
-        private void handleMessage(NetworkMessage message) {
+        /**
+         * Вернувшийся игрок: новый сокет вместо старого (если сервер еще не заметил разрыв — старый
+         * закрываем), досылка всего, что после lastSeen, и дальше обычный цикл чтения на этом потоке.
+         */
+        void resume(Socket newSocket, ObjectOutputStream newOut, ObjectInputStream newIn,
+                    TimestampingInputStream newTimestamps, NetworkMessage request, long lastSeen) {
+            closeSocket(); // разблокирует запись, зависшую на старом соединении
+            int gen;
+            int replayed;
+            synchronized (writeLock) {
+                synchronized (this) {
+                    socket = newSocket;
+                    out = newOut;
+                    in = newIn;
+                    timestamps = newTimestamps;
+                    gen = ++generation;
+                    detached = false;
+                    connected = true;
+                    lastReceivedNanos = lastSentNanos = System.nanoTime();
+                    replayed = replay(lastSeen);
+                    startWriting(); // досылку и то, что накопилось в полосах за время разрыва, пишет поток записи
+                }
+            }
+            if (replayed < 0) resendState(this);
+            acknowledge(request, null);
+
+            System.out.println("🔁 Игрок " + playerId + " вернулся: " + (replayed < 0
+                ? "буфер досылки переполнен, отправлено текущее состояние" : "к досылке сообщений: " + replayed));
+            broadcast(new NetworkMessage(MessageType.CHAT_MESSAGE, "🔁 " + playerName + " снова в игре"), this);
+            readLoop(gen, newSocket, newIn, newTimestamps);
+        }
+
+        /**
+         * Ставит сообщения после lastSeen из буфера в полосу досылки (под this, в сокет не пишет);
+         * -1, если часть уже вытеснена.
+         */
+        private int replay(long lastSeen) {
+            replayLane.clear(); // недосланное прошлым соединением снова возьмем из sentLog
+            NetworkMessage oldest = sentLog.peekFirst();
+            if (lastSeen < lastSeq && (oldest == null || oldest.getSeq() > lastSeen + 1)) return -1;
+            for (NetworkMessage message : sentLog) {
+                if (message.getSeq() > lastSeen) replayLane.addLast(message);
+            }
+            return replayLane.size();
+        }
+
+        private void handleMessage(NetworkMessage message, long firstByteAt) {
+            TurnTrace trace = null;
             try {
                 if (message == null || message.getType() == null) return;
+                if (closeWhenDrained) return; // соединение закрывается: ждем, пока уйдет последний ответ
+                String limited = admit(message);
+                if (limited != null) {
+                    acknowledge(message, limited);
+                    return;
+                }
+                if (message.getType() == MessageType.HEARTBEAT) return; // время приема уже отмечено
+
+                // Любая команда поднимает выгруженную сессию (служебный PING — нет)
+                if (message.getType() != MessageType.PING) server.touchSession();
 
+                // Причина отказа для NACK (null — команда выполнена)
+                String rejected = null;
                 switch (message.getType()) {
                     case CARD_PLAYED -> {
                         Card card = (Card) message.getData();
-                        server.handleCardPlayed(card, this);
+                        trace = new TurnTrace(message.getTraceId(), firstByteAt, message.getReceivedAtNanos());
+                        rejected = server.handleCardPlayed(card, this, trace);
                     }
+                    case PING -> sendMessage(withTrace(new NetworkMessage(MessageType.PONG, new long[]{
+                        (Long) message.getData(), message.getReceivedAtMillis(), System.currentTimeMillis()}), message));
+                    case RESUME -> rejected = "Сессия не найдена или истекла"; // свободное место — это новый вход
+                    case LEAVE -> leaving = true;
+                    case MATCH_JOIN -> rejected = "Билет подбора предъявляют только при входе";
+                    case LOCKSTEP_INPUT -> rejected = server.handleLockstepInput((Integer) message.getData(), this);
+                    case LOCKSTEP_CHECKSUM -> server.handleLockstepChecksum((Long) message.getData(), this);
                     case CHAT_MESSAGE -> {
                         String chatMessage = (String) message.getData();
                         // Форматируем сообщение
@@ -562,41 +1396,268 @@ public class Server implements Runnable {
                     }
                     default -> {
                         System.out.println("❓ Неизвестный тип сообщения от игрока " + playerId + ": " + message.getType());
+                        rejected = "Неизвестная команда " + message.getType();
                     }
                 }
+                acknowledge(message, rejected);
+                if (trace != null) {
+                    metrics.recordTurn(trace.traceId, trace.decodedAt - trace.firstByteAt, trace.queueNanos,
+                        trace.logicNanos, System.nanoTime() - trace.firstByteAt);
+                }
             } catch (Exception e) {
                 System.err.println("❌ Ошибка обработки сообщения от игрока " + playerId + ": " + e.getMessage());
+                acknowledge(message, "Ошибка сервера: " + e.getMessage());
+            }
+        }
+
+        /**
+         * Лимиты до любой работы (и до блокировки сервера): null — сообщение принято, иначе причина отказа.
+         * Время — уже снятое при приеме, так что проверка обходится в пару сравнений.
+         */
+        private String admit(NetworkMessage message) {
+            long now = message.getReceivedAtNanos();
+            TokenBucket bucket = switch (message.getType()) {
+                case CHAT_MESSAGE -> chatBucket;
+                case CARD_PLAYED, LOCKSTEP_INPUT, LOCKSTEP_CHECKSUM, RESUME, MATCH_JOIN -> commandBucket;
+                default -> null;
+            };
+            if (messageBucket.tryAcquire(now) && (bucket == null || bucket.tryAcquire(now))) return null;
+
+            rateLimited.incrementAndGet();
+            if (!strikes.tryAcquire(now)) {
+                abusersDisconnected.incrementAndGet();
+                System.out.println("🚫 Игрок " + playerId + " превышает лимиты сообщений — отключаем");
+                leaving = true; // место не держим
+                closeWhenDrained = true; // закроет поток записи, отправив этот NACK
+                return "Соединение закрыто: слишком много сообщений";
             }
+            return message.getType() == MessageType.CHAT_MESSAGE
+                ? "Слишком часто — сообщение не отправлено"
+                : "Слишком много команд — подождите";
+        }
+
+        /**
+         * ACK/NACK на команду с requestId (старые клиенты шлют 0 — им не отвечаем).
+         */
+        private void acknowledge(NetworkMessage message, String rejected) {
+            if (message == null || message.getRequestId() == 0) return;
+            sendMessage(withTrace(rejected == null
+                ? new NetworkMessage(MessageType.ACK, null, message.getRequestId())
+                : new NetworkMessage(MessageType.NACK, rejected, message.getRequestId()), message));
+        }
+
+        private NetworkMessage withTrace(NetworkMessage reply, NetworkMessage request) {
+            reply.setTraceId(request.getTraceId());
+            return reply;
+        }
+
+        public Player getPlayer() {
+            return playerId == 1 ? gameSession.getPlayer1() : gameSession.getPlayer2();
         }
 
+        /**
+         * Ставит сообщение в его полосу и будит поток записи; сеть вызывающий поток не ждет.
+         * Пока игрок отключен, сообщения копятся в полосах (HEARTBEAT и PONG — нет) и уйдут после досылки.
+         */
         public synchronized void sendMessage(NetworkMessage message) {
-            if (!connected || out == null) return;
+            switch (message.getType()) {
+                case HEARTBEAT -> {
+                    // Любое служебное сообщение в очереди и так покажет, что сервер жив
+                    if (!connected || !controlLane.isEmpty()) return;
+                    controlLane.addLast(message);
+                }
+                case PONG -> {
+                    if (!connected) return;
+                    controlLane.addLast(message);
+                }
+                case ACK, NACK, RESUME_TOKEN -> controlLane.addLast(message);
+                case CHAT_MESSAGE -> {
+                    if (chatLane.size() >= CHAT_QUEUE) {
+                        chatLane.removeFirst();
+                        if (chatDropped++ % 100 == 0) {
+                            System.out.println("💬 Игрок " + playerId + " не успевает читать чат — старые сообщения отброшены ("
+                                + chatDropped + ")");
+                        }
+                    }
+                    chatLane.addLast(message);
+                }
+                default -> gameLane.addLast(message);
+            }
+            startWriting();
+        }
+
+        private void startWriting() {
+            if (writing || !connected || out == null) return;
+            writing = true;
             try {
+                pool.execute(this::drain);
+            } catch (RejectedExecutionException e) {
+                writing = false; // сервер останавливается
+            }
+        }
+
+        /**
+         * Поток записи: сначала досылка, затем по одному сообщению из старшей полосы, пока есть что
+         * писать и живо соединение. В сокет пишет только он, и только вне монитора обработчика.
+         */
+        private void drain() {
+            synchronized (writeLock) {
+                while (true) {
+                    NetworkMessage message = null;
+                    synchronized (this) {
+                        if (connected && out != null && !socket.isClosed()) {
+                            message = replayLane.pollFirst(); // seq и место в sentLog у нее уже есть
+                            if (message == null) {
+                                message = nextMessage();
+                                if (message != null && message.getType() != MessageType.HEARTBEAT
+                                        && message.getType() != MessageType.PONG) {
+                                    message = message.withSeq(++lastSeq);
+                                    sentLog.addLast(message);
+                                    if (sentLog.size() > REPLAY_BUFFER) sentLog.removeFirst();
+                                }
+                            }
+                        }
+                        if (message == null) {
+                            writing = false;
+                            if (closeWhenDrained) closeSocket();
+                            return;
+                        }
+                    }
+                    write(message);
+                }
+            }
+        }
+
+        /**
+         * Сессию выгрузили: буфер досылки держит ее снимки. Без него переподключение получит текущее состояние.
+         */
+        synchronized void dropReplay() {
+            sentLog.clear();
+        }
+
+        synchronized int outboundDepth() {
+            return replayLane.size() + controlLane.size() + gameLane.size() + chatLane.size();
+        }
+
+        private NetworkMessage nextMessage() {
+            NetworkMessage message = controlLane.pollFirst();
+            if (message == null) message = gameLane.pollFirst();
+            if (message == null) message = chatLane.pollFirst();
+            return message;
+        }
+
+        private void write(NetworkMessage message) {
+            try {
+                message.markSent();
+                long start = System.nanoTime();
                 out.writeObject(message);
+                long encoded = System.nanoTime();
                 out.flush();
+                metrics.record(ServerMetrics.Stage.ENCODE, encoded - start);
+                lastSentNanos = System.nanoTime();
+                metrics.record(ServerMetrics.Stage.FLUSH, lastSentNanos - encoded);
                 out.reset();
+                if (message.getType() == MessageType.HEARTBEAT || message.getType() == MessageType.PONG) return;
                 System.out.println("📤 Server -> player" + playerId + ": " + message.getType() +
                     (message.getData() != null ? " (данные отправлены)" : " (без данных)"));
             } catch (IOException e) {
                 System.err.println("❌ Ошибка отправки сообщения игроку " + playerId + ": " + e.getMessage());
-                disconnect();
+                closeSocket(); // разрыв обработает поток чтения
             }
         }
 
+        /**
+         * Закрыть соединение. Поток чтения увидит это и решит, держать ли место (connectionLost).
+         */
         private void disconnect() {
-            if (!connected) return;
+            closeSocket();
+        }
 
-            connected = false;
+        private void closeSocket() {
+            Socket current = socket;
             try {
-                if (in != null) in.close();
-                if (out != null) out.close();
-                if (socket != null && !socket.isClosed()) socket.close();
-                server.removeClient(this);
-
-                System.out.println("👋 Игрок " + playerId + " отключен");
+                // Закрываем только сокет (его потоки закроются с ним): закрытие out сбрасывает буфер
+                // и на мертвом соединении зависло бы
+                if (current != null && !current.isClosed()) current.close();
             } catch (IOException e) {
                 System.err.println("❌ Ошибка при отключении игрока " + playerId + ": " + e.getMessage());
             }
         }
+
+        /**
+         * Соединение поколения gen потеряно. Если игрок не уходил сам, место ждет его RESUME_GRACE_MILLIS.
+         */
+        private void connectionLost(int gen) {
+            boolean hold;
+            synchronized (this) {
+                if (gen != generation || !connected) return; // уже переподключился или обработано
+                connected = false;
+                hold = !leaving && running && RESUME_GRACE_MILLIS > 0 && clients.contains(this);
+                detached = hold;
+            }
+            closeSocket();
+            if (!hold) {
+                forget();
+                return;
+            }
+            System.out.println("📴 Игрок " + playerId + " потерял связь — место ждет его "
+                + RESUME_GRACE_MILLIS / 1000 + " с");
+            broadcast(new NetworkMessage(MessageType.CHAT_MESSAGE, "📴 " + playerName
+                + " потерял связь. Ждем переподключения до " + RESUME_GRACE_MILLIS / 1000 + " с..."), this);
+            housekeeping.schedule(() -> expire(gen), RESUME_GRACE_MILLIS, TimeUnit.MILLISECONDS);
+        }
+
+        private void expire(int gen) {
+            synchronized (this) {
+                if (gen != generation || !detached) return;
+                detached = false;
+            }
+            System.out.println("⌛ Игрок " + playerId + " не вернулся за " + RESUME_GRACE_MILLIS / 1000 + " с");
+            forget();
+        }
+
+        private void forget() {
+            resumable.remove(resumeToken);
+            server.removeClient(this);
+            System.out.println("👋 Игрок " + playerId + " отключен");
+        }
+    }
+
+    /**
+     * Серверное ИИ-место: вместо сокета решения принимаются на общем пуле AiSeatPool.
+     * Ход ИИ проходит через тот же handleCardPlayed, что и ход человека.
+     */
+    private class AiClientHandler extends ClientHandler {
+        private final AiStrategy ai = AiStrategies.configured("network", "model");
+
+        AiClientHandler(Server server, int playerId) {
+            super(null, server, playerId);
+        }
+
+        @Override
+        public void run() {
+            // Потока чтения у ИИ нет
+        }
+
+        @Override
+        public void sendMessage(NetworkMessage message) {
+            if (message.getType() != MessageType.YOUR_TURN || !Boolean.TRUE.equals(message.getData())) return;
+
+            AiSeatPool.shared().decide(ai, () -> {
+                // Снимок позиции под блокировкой сервера, думаем уже без нее
+                synchronized (Server.this) {
+                    touchSession();
+                    if (!clients.contains(this) || gameSession.checkVictory() != null) return null;
+                    Player self = getPlayer();
+                    if (!gameSession.isPlayerTurn(self)) return null;
+                    Player opponent = getPlayerId() == 1 ? gameSession.getPlayer2() : gameSession.getPlayer1();
+                    return new AiSeatPool.Position(self.copy(), opponent.copy());
+                }
+            }, card -> {
+                if (card != null && clients.contains(this)) {
+                    handleCardPlayed(card, this);
+                }
+            });
+        }
     }
 }
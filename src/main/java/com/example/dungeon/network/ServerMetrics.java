@@ -0,0 +1,55 @@
+package com.example.dungeon.network;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * ServerMetrics — гистограммы задержек сервера по этапам обработки хода.
+ *  DECODE — от первого байта сообщения до готового объекта
+ *  QUEUE  — ожидание блокировки сервера (ходы обрабатываются по одному)
+ *  LOGIC  — игровая логика хода
+ *  ENCODE — сериализация одного исходящего сообщения
+ *  FLUSH  — отправка его в сокет
+ *  TURN   — весь ход: от первого байта CARD_PLAYED до отправленного ACK
+ */
+public class ServerMetrics {
+
+    public enum Stage { DECODE, QUEUE, LOGIC, ENCODE, FLUSH, TURN }
+
+    // Ход дольше этого порога печатается с разбивкой по этапам
+    private static final long SLOW_TURN_NANOS = Long.getLong("dungeon.net.slowTurnMillis", 100) * 1_000_000;
+
+    private final Map<Stage, LatencyHistogram> histograms = new EnumMap<>(Stage.class);
+
+    public ServerMetrics() {
+        for (Stage stage : Stage.values()) {
+            histograms.put(stage, new LatencyHistogram());
+        }
+    }
+
+    public void record(Stage stage, long nanos) {
+        histograms.get(stage).record(nanos);
+    }
+
+    public LatencyHistogram get(Stage stage) {
+        return histograms.get(stage);
+    }
+
+    /**
+     * Итог хода с трассировкой: медленные ходы попадают в лог целиком.
+     */
+    public void recordTurn(long traceId, long decodeNanos, long queueNanos, long logicNanos, long totalNanos) {
+        record(Stage.TURN, totalNanos);
+        if (totalNanos > SLOW_TURN_NANOS) {
+            System.out.printf("🐢 Медленный ход (trace %016x): декодирование %.1f, очередь %.1f, логика %.1f, всего %.1f мс%n",
+                traceId, decodeNanos / 1e6, queueNanos / 1e6, logicNanos / 1e6, totalNanos / 1e6);
+        }
+    }
+
+    public String report() {
+        StringBuilder report = new StringBuilder("📊 Задержки сервера:");
+        histograms.forEach((stage, histogram) ->
+            report.append("\n   ").append(String.format("%-7s", stage)).append(histogram.summary()));
+        return report.toString();
+    }
+}
@@ -0,0 +1,210 @@
+package com.example.dungeon.network;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * SessionHibernator — выгрузка простаивающих сессий на диск.
+ *  - сессия без активности дольше idleMillis сериализуется в компактный бинарный файл и отпускает объекты игроков
+ *  - если резидентных сессий больше бюджета, выгружаются самые давно активные
+ *  - при следующем входящем сообщении сессия прозрачно поднимается обратно (время подъема учитывается в метриках)
+ *  - один выгрузчик на процесс (shared()): бюджет dungeon.hibernate.maxResident общий для всех комнат
+ *    и серверов процесса, обход идет в одном потоке
+ */
+public class SessionHibernator implements Closeable {
+
+    private static final long MIN_IDLE_FOR_BUDGET = TimeUnit.SECONDS.toNanos(1);
+
+    private static SessionHibernator shared;
+
+    /**
+     * Сессия, которую можно выгрузить. Все методы вызываются под monitor() — той же блокировкой,
+     * под которой с сессией работает игра, иначе выгрузка могла бы пройти посреди хода.
+     */
+    interface Hibernatable {
+        int getId();
+        default Object monitor() {
+            return this;
+        }
+        boolean canHibernate();
+        void writeState(DataOutputStream out) throws IOException;
+        void evict();
+        void readState(DataInputStream in) throws IOException;
+    }
+
+    private static class Entry {
+        final Hibernatable session;
+        final long key; // номера сессий в разных комнатах совпадают, файлы — нет
+        volatile long lastActivity = System.nanoTime();
+        volatile boolean hibernated;
+
+        Entry(Hibernatable session, long key) {
+            this.session = session;
+            this.key = key;
+        }
+    }
+
+    private final Path dir;
+    private final long idleNanos;
+    private final int maxResident;
+    private final Map<Hibernatable, Entry> entries = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService sweeper;
+    private final AtomicLong nextKey = new AtomicLong();
+
+    // Метрики
+    private final AtomicLong hibernations = new AtomicLong();
+    private final AtomicLong restores = new AtomicLong();
+    private final AtomicLong restoreNanosTotal = new AtomicLong();
+    private final AtomicLong restoreNanosMax = new AtomicLong();
+
+    public SessionHibernator(Path dir, long idleMillis, int maxResident) throws IOException {
+        this.dir = Files.createDirectories(dir);
+        this.idleNanos = TimeUnit.MILLISECONDS.toNanos(idleMillis);
+        this.maxResident = maxResident;
+        this.sweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "Session-Hibernator");
+            t.setDaemon(true);
+            return t;
+        });
+        sweeper.scheduleWithFixedDelay(this::sweep, 1, 1, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Настройки из system properties: dungeon.hibernate.idleSeconds, dungeon.hibernate.maxResident.
+     */
+    public static SessionHibernator fromSystemProperties(Path dir) throws IOException {
+        long idleSeconds = Long.getLong("dungeon.hibernate.idleSeconds", 60);
+        int maxResident = Integer.getInteger("dungeon.hibernate.maxResident", 64);
+        return new SessionHibernator(dir, TimeUnit.SECONDS.toMillis(idleSeconds), maxResident);
+    }
+
+    /**
+     * Выгрузчик процесса (создается при первом обращении, каталог — рядом с журналами, свой у каждого процесса).
+     */
+    public static synchronized SessionHibernator shared() throws IOException {
+        if (shared == null) {
+            shared = fromSystemProperties(
+                GameJournal.defaultPath(0).resolveSibling("hibernated-" + ProcessHandle.current().pid()));
+        }
+        return shared;
+    }
+
+    public void register(Hibernatable session) {
+        entries.put(session, new Entry(session, nextKey.incrementAndGet()));
+    }
+
+    public void unregister(Hibernatable session) {
+        Entry entry = entries.remove(session);
+        if (entry != null && entry.hibernated) {
+            try {
+                Files.deleteIfExists(fileFor(entry));
+            } catch (IOException ignored) {}
+        }
+    }
+
+    /**
+     * Отмечает активность сессии; выгруженную сессию сначала поднимает с диска.
+     * Вызывать перед любым обращением к состоянию сессии.
+     */
+    public void touch(Hibernatable session) {
+        Entry entry = entries.get(session);
+        if (entry == null) return;
+
+        synchronized (session.monitor()) {
+            if (entry.hibernated) {
+                restore(entry);
+            }
+            entry.lastActivity = System.nanoTime();
+        }
+    }
+
+    private void restore(Entry entry) {
+        long start = System.nanoTime();
+        Path file = fileFor(entry);
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            entry.session.readState(in);
+        } catch (IOException e) {
+            // Без состояния сессия не может продолжаться — это ошибка, а не тихий сброс
+            throw new UncheckedIOException("Не удалось поднять сессию " + entry.session.getId(), e);
+        }
+        entry.hibernated = false;
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException ignored) {}
+
+        long took = System.nanoTime() - start;
+        restores.incrementAndGet();
+        restoreNanosTotal.addAndGet(took);
+        restoreNanosMax.accumulateAndGet(took, Math::max);
+        System.out.println("♻ Сессия " + entry.session.getId() + " поднята с диска за " +
+            TimeUnit.NANOSECONDS.toMicros(took) + " мкс");
+    }
+
+    private void sweep() {
+        try {
+            long now = System.nanoTime();
+            List<Entry> resident = new ArrayList<>();
+            for (Entry entry : entries.values()) {
+                if (entry.hibernated) continue;
+                if (now - entry.lastActivity > idleNanos) {
+                    hibernate(entry, now);
+                } else {
+                    resident.add(entry);
+                }
+            }
+
+            // Бюджет: выгружаем самые давно активные сессии сверх лимита
+            // (только заметно простаивающие — сессию посреди хода не трогаем)
+            if (resident.size() > maxResident) {
+                resident.sort(Comparator.comparingLong(e -> e.lastActivity));
+                for (int i = 0; i < resident.size() - maxResident; i++) {
+                    Entry entry = resident.get(i);
+                    if (now - entry.lastActivity < MIN_IDLE_FOR_BUDGET) break;
+                    hibernate(entry, now);
+                }
+            }
+        } catch (Exception e) {
+            System.err.println("❌ Ошибка выгрузки сессий: " + e.getMessage());
+        }
+    }
+
+    private void hibernate(Entry entry, long sweepStart) {
+        Hibernatable session = entry.session;
+        synchronized (session.monitor()) {
+            // Сессию могли тронуть, пока шел обход
+            if (entry.hibernated || entry.lastActivity > sweepStart || !session.canHibernate()) return;
+
+            Path file = fileFor(entry);
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+                session.writeState(out);
+            } catch (IOException e) {
+                System.err.println("❌ Не удалось выгрузить сессию " + session.getId() + ": " + e.getMessage());
+                return;
+            }
+            session.evict();
+            entry.hibernated = true;
+        }
+        hibernations.incrementAndGet();
+        System.out.println("💤 Сессия " + session.getId() + " выгружена на диск");
+    }
+
+    private Path fileFor(Entry entry) {
+        return dir.resolve("session-" + entry.session.getId() + "-" + entry.key + ".bin");
+    }
+
+    public String getStats() {
+        long count = restores.get();
+        long avgMicros = count == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(restoreNanosTotal.get() / count);
+        return String.format("выгружено: %d, поднято: %d, подъем avg/max: %d/%d мкс",
+            hibernations.get(), count, avgMicros, TimeUnit.NANOSECONDS.toMicros(restoreNanosMax.get()));
+    }
+
+    @Override
+    public void close() {
+        sweeper.shutdownNow();
+    }
+}
@@ -0,0 +1,225 @@
+package com.example.dungeon.network;
+
+import java.io.*;
+import java.net.Socket;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * SpectatorHub — трансляция матча зрителям.
+ *
+ * Сообщение для зрителей сериализуется один раз в кадр (int длина + байты ObjectOutputStream со своим
+ * заголовком), и этот же массив пишется в сокет каждого зрителя — после кодирования кадр не меняется.
+ * По умолчанию зрители видят то же, что соперник: руки закрыты, и трансляция идет без задержки.
+ * Открытые руки — только с задержкой трансляции dungeon.net.spectatorDelayMillis, не меньше
+ * MIN_OPEN_HANDS_DELAY_MILLIS: SPECTATE не требует входа, и без задержки игрок со второго клиента видел бы
+ * карты соперника вживую. Новый зритель сразу получает последний выпущенный кадр состояния.
+ *
+ * Публикация только раскладывает ссылку на кадр по очередям и никогда не ждет сеть. У каждого зрителя
+ * своя ограниченная очередь (dungeon.net.spectatorQueue кадров) и свой поток записи на пуле сервера;
+ * зритель, у которого очередь переполнилась, отключается — медленный зритель не задерживает ни игроков,
+ * ни других зрителей.
+ */
+class SpectatorHub {
+
+    // Меньшая задержка открытых рук еще позволяет подсказывать с соседнего клиента по ходу партии
+    static final long MIN_OPEN_HANDS_DELAY_MILLIS = 30_000;
+    private static final long CONFIGURED_DELAY_MILLIS = Long.getLong("dungeon.net.spectatorDelayMillis", 0);
+    // Задержка задана — зрителям открыты руки, и задержка не меньше минимальной
+    static final boolean OPEN_HANDS = CONFIGURED_DELAY_MILLIS > 0;
+    private static final long DELAY_MILLIS =
+        OPEN_HANDS ? Math.max(CONFIGURED_DELAY_MILLIS, MIN_OPEN_HANDS_DELAY_MILLIS) : 0;
+    private static final int QUEUE_FRAMES = Integer.getInteger("dungeon.net.spectatorQueue", 256);
+    private static final int MAX_SPECTATORS = Integer.getInteger("dungeon.net.maxSpectators", 500);
+
+    private final ExecutorService writers;
+    private final ScheduledExecutorService scheduler;
+    private final Set<Spectator> spectators = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger admitted = new AtomicInteger(); // места зрителей, включая еще подключаемых
+    private volatile byte[] lastState;
+    private volatile long lastReleaseNanos = System.nanoTime();
+
+    private final AtomicLong framesEncoded = new AtomicLong();
+    private final AtomicLong bytesEncoded = new AtomicLong();
+    private final AtomicLong framesWritten = new AtomicLong();
+    private final AtomicLong slowDropped = new AtomicLong();
+
+    SpectatorHub(ExecutorService writers, ScheduledExecutorService scheduler) {
+        this.writers = writers;
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * Новый зритель (заголовок ObjectOutputStream ему уже отправлен при рукопожатии).
+     * false — мест для зрителей нет.
+     */
+    boolean add(Socket socket) throws IOException {
+        if (admitted.incrementAndGet() > MAX_SPECTATORS) {
+            admitted.decrementAndGet();
+            return false;
+        }
+        Spectator spectator;
+        try {
+            spectator = new Spectator(socket);
+        } catch (IOException e) {
+            admitted.decrementAndGet();
+            throw e;
+        }
+        // Под монитором release(): последний кадр состояния встает в очередь раньше любого более нового
+        synchronized (this) {
+            byte[] state = lastState;
+            if (state != null) spectator.offer(state);
+            spectators.add(spectator);
+        }
+        spectator.writer = writers.submit(spectator);
+        System.out.println("👁 Зритель подключился: " + socket.getInetAddress() + " (зрителей " + spectators.size() + ")");
+        return true;
+    }
+
+    /**
+     * Разово отправить кадр одному сокету — отказ при рукопожатии, когда зрителем он так и не стал.
+     */
+    static void reject(Socket socket, String reason) throws IOException {
+        OutputStream out = socket.getOutputStream();
+        out.write(encode(new NetworkMessage(MessageType.CHAT_MESSAGE, reason)));
+        out.flush();
+        socket.close();
+    }
+
+    void publish(NetworkMessage message) {
+        publish(message, false);
+    }
+
+    /**
+     * Полное состояние матча: его же получит зритель, подключившийся позже.
+     */
+    void publishState(NetworkMessage message) {
+        publish(message, true);
+    }
+
+    private void publish(NetworkMessage message, boolean state) {
+        if (spectators.isEmpty() && !state) return; // некому — и кодировать незачем
+        byte[] frame;
+        try {
+            frame = encode(message);
+        } catch (IOException e) {
+            System.err.println("❌ Кадр для зрителей не закодирован: " + e.getMessage());
+            return;
+        }
+        framesEncoded.incrementAndGet();
+        bytesEncoded.addAndGet(frame.length);
+        if (DELAY_MILLIS > 0) {
+            // Один поток планировщика и одинаковая задержка — кадры выходят в порядке публикации
+            scheduler.schedule(() -> release(frame, state), DELAY_MILLIS, TimeUnit.MILLISECONDS);
+        } else {
+            release(frame, state);
+        }
+    }
+
+    private synchronized void release(byte[] frame, boolean state) {
+        if (state) lastState = frame;
+        lastReleaseNanos = System.nanoTime();
+        for (Spectator spectator : spectators) {
+            spectator.offer(frame);
+        }
+    }
+
+    /**
+     * Вызывается таймером heartbeat сервера: если зрителям давно ничего не уходило — HEARTBEAT без задержки.
+     */
+    void heartbeat(long intervalMillis) {
+        if (spectators.isEmpty()) return;
+        if (TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - lastReleaseNanos) < intervalMillis) return;
+        try {
+            release(encode(new NetworkMessage(MessageType.HEARTBEAT, null)), false);
+        } catch (IOException e) {
+            System.err.println("❌ Heartbeat для зрителей не закодирован: " + e.getMessage());
+        }
+    }
+
+    static byte[] encode(NetworkMessage message) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(512);
+        DataOutputStream data = new DataOutputStream(bytes);
+        data.writeInt(0); // место под длину
+        message.markSent();
+        try (ObjectOutputStream out = new ObjectOutputStream(data)) {
+            out.writeObject(message);
+        }
+        byte[] frame = bytes.toByteArray();
+        int length = frame.length - 4;
+        frame[0] = (byte) (length >>> 24);
+        frame[1] = (byte) (length >>> 16);
+        frame[2] = (byte) (length >>> 8);
+        frame[3] = (byte) length;
+        return frame;
+    }
+
+    int size() {
+        return spectators.size();
+    }
+
+    String getStats() {
+        return String.format("зрителей: %d, кадров закодировано: %d (%d КБ), записано: %d, отключено медленных: %d",
+            spectators.size(), framesEncoded.get(), bytesEncoded.get() / 1024, framesWritten.get(), slowDropped.get());
+    }
+
+    void close() {
+        for (Spectator spectator : spectators) {
+            spectator.close();
+        }
+    }
+
+    private final class Spectator implements Runnable {
+        private final Socket socket;
+        private final OutputStream out;
+        private final BlockingQueue<byte[]> queue = new ArrayBlockingQueue<>(QUEUE_FRAMES);
+        private volatile Future<?> writer;
+
+        Spectator(Socket socket) throws IOException {
+            this.socket = socket;
+            this.out = new BufferedOutputStream(socket.getOutputStream());
+        }
+
+        void offer(byte[] frame) {
+            if (queue.offer(frame)) return;
+            slowDropped.incrementAndGet();
+            System.out.println("🐌 Зритель " + socket.getInetAddress() + " не успевает за трансляцией — отключаем");
+            close();
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (!Thread.currentThread().isInterrupted()) {
+                    byte[] frame = queue.take();
+                    int written = 0;
+                    // Все, что накопилось, — одной пачкой и одним flush
+                    do {
+                        out.write(frame);
+                        written++;
+                    } while ((frame = queue.poll()) != null);
+                    out.flush();
+                    framesWritten.addAndGet(written);
+                }
+            } catch (IOException e) {
+                System.out.println("👁 Зритель отключился: " + e.getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                close();
+            }
+        }
+
+        void close() {
+            if (!spectators.remove(this)) return;
+            admitted.decrementAndGet();
+            try {
+                socket.close();
+            } catch (IOException ignored) {}
+            Future<?> current = writer;
+            if (current != null) current.cancel(true);
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.dungeon.network;
+
+import com.example.dungeon.game.Card;
+import com.example.dungeon.game.CardType;
+import com.example.dungeon.game.GameState;
+import com.example.dungeon.game.Player;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+
+/**
+ * StateViews — что из состояния партии видит каждый получатель.
+ *
+ * Игрок видит себя целиком, а у соперника — только открытое: персонажа, здоровье, щит и число карт
+ * (карты заменены одной общей рубашкой HIDDEN_CARD — в сериализации это ссылки на один объект,
+ * статистика за партию обнулена). Зрители видят обоих так же, закрытыми; целиком — только если
+ * трансляция идет с задержкой (SpectatorHub.OPEN_HANDS), иначе игрок со второго клиента видел бы чужую руку.
+ *
+ * Представления — снимки-копии, строятся один раз на версию: сервер вызывает invalidate() после
+ * каждого изменения партии, а повторные рассылки той же версии (отказ хода, переподключение, зрители)
+ * берут готовые. После построения снимки не меняются, поэтому их можно держать в буфере досылки.
+ */
+class StateViews {
+
+    static final int SPECTATOR = 0;
+    static final Card HIDDEN_CARD = new Card(CardType.ATTACK, "🂠", 0);
+
+    static {
+        HIDDEN_CARD.setDescription("Карта соперника");
+    }
+
+    private long version = 1;
+    private final GameState[] views = new GameState[3];
+    private final long[] builtFor = new long[3];
+    private long built;
+    private long reused;
+
+    synchronized void invalidate() {
+        version++;
+    }
+
+    /**
+     * Сессию выгрузили на диск: готовые представления больше не держим.
+     */
+    synchronized void clear() {
+        version++;
+        Arrays.fill(views, null);
+    }
+
+    /**
+     * Представление для места seat (1, 2) или SPECTATOR.
+     */
+    synchronized GameState view(int seat, Player player1, Player player2, boolean player1Turn) {
+        if (views[seat] != null && builtFor[seat] == version) {
+            reused++;
+            return views[seat];
+        }
+        GameState view;
+        if (seat == SPECTATOR) {
+            Player current = player1Turn ? player1 : player2;
+            view = SpectatorHub.OPEN_HANDS
+                ? new GameState(player1.copy(), player2.copy(), false, "👁 Ходит: " + current.getName())
+                : new GameState(hidden(player1), hidden(player2), false, "👁 Ходит: " + current.getName());
+        } else {
+            Player self = seat == 1 ? player1 : player2;
+            Player opponent = seat == 1 ? player2 : player1;
+            boolean myTurn = (seat == 1) == player1Turn;
+            view = new GameState(self.copy(), hidden(opponent), myTurn, myTurn ? "🎯 ВАШ ХОД" : "⏳ ХОД ПРОТИВНИКА");
+        }
+        views[seat] = view;
+        builtFor[seat] = version;
+        built++;
+        return view;
+    }
+
+    /**
+     * Соперник глазами игрока: открытые параметры и рубашки вместо карт.
+     */
+    static Player hidden(Player player) {
+        Player view = player.copy();
+        view.setHand(new ArrayList<>(Collections.nCopies(player.getHand().size(), HIDDEN_CARD)));
+        view.setTotalDamageDealt(0);
+        view.setTotalDamageTaken(0);
+        view.setTotalHealing(0);
+        view.setCardsPlayed(0);
+        return view;
+    }
+
+    synchronized String getStats() {
+        return "представлений построено: " + built + ", взято из кэша: " + reused;
+    }
+}
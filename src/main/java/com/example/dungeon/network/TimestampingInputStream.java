@@ -0,0 +1,51 @@
+package com.example.dungeon.network;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectStreamConstants;
+
+/**
+ * Запоминает момент прихода первого байта очередного сообщения — от него считается время декодирования.
+ * Приблизительно: если ObjectInputStream уже прочитал начало следующего сообщения вместе с текущим,
+ * его декодирование будет занижено.
+ * Маркер TC_RESET отправитель шлет сразу после своего сообщения (ObjectOutputStream.reset()),
+ * поэтому он не считается началом следующего.
+ */
+class TimestampingInputStream extends FilterInputStream {
+    private long firstByteNanos;
+    private boolean armed = true;
+
+    TimestampingInputStream(InputStream in) {
+        super(in);
+    }
+
+    @Override
+    public int read() throws IOException {
+        int b = super.read();
+        if (b >= 0 && !(armed && b == ObjectStreamConstants.TC_RESET)) stamp();
+        return b;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+        int n = super.read(buffer, offset, length);
+        if (n > 0) stamp();
+        return n;
+    }
+
+    private void stamp() {
+        if (armed) {
+            firstByteNanos = System.nanoTime();
+            armed = false;
+        }
+    }
+
+    /**
+     * Время первого байта прочитанного сообщения; дальше ждем начало следующего.
+     */
+    long takeFirstByteNanos() {
+        armed = true;
+        return firstByteNanos;
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.dungeon.network;
+
+/**
+ * Ведро жетонов для входящих сообщений одного соединения: perSecond в среднем и не больше burst подряд.
+ *
+ * Хранится одно число — момент, когда ведро снова станет полным (GCRA, эквивалент ведра жетонов):
+ * проверка — сравнение и сложение, без деления и без блокировок. Ведро принадлежит потоку чтения
+ * своего соединения, поэтому и атомарные операции не нужны.
+ */
+final class TokenBucket {
+
+    /**
+     * Лимит из свойств dungeon.net.{name}PerSecond и dungeon.net.{name}Burst; perSecond 0 — без лимита.
+     */
+    record Limit(double perSecond, int burst) {
+        static Limit configured(String name, double perSecond, int burst) {
+            return new Limit(
+                Double.parseDouble(System.getProperty("dungeon.net." + name + "PerSecond", String.valueOf(perSecond))),
+                Integer.getInteger("dungeon.net." + name + "Burst", burst));
+        }
+    }
+
+    private final boolean unlimited;
+    private final long intervalNanos;   // один жетон
+    private final long toleranceNanos;  // сколько можно уйти вперед: burst - 1 жетонов
+    private long fullAt;
+
+    TokenBucket(Limit limit) {
+        this.unlimited = limit.perSecond() <= 0;
+        this.intervalNanos = unlimited ? 0 : (long) (1_000_000_000L / limit.perSecond());
+        this.toleranceNanos = intervalNanos * (Math.max(1, limit.burst()) - 1);
+        this.fullAt = System.nanoTime();
+    }
+
+    /**
+     * Взять жетон в момент now (System.nanoTime). false — лимит превышен, жетон не списан.
+     */
+    boolean tryAcquire(long now) {
+        if (unlimited) return true;
+        long from = fullAt - now > 0 ? fullAt : now;
+        if (from - now > toleranceNanos) return false;
+        fullAt = from + intervalNanos;
+        return true;
+    }
+}
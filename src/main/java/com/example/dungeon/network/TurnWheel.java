@@ -0,0 +1,190 @@
+package com.example.dungeon.network;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * TurnWheel — общее для процесса колесо таймеров (hashed timing wheel): часы хода всех сессий.
+ *
+ * Вместо задачи планировщика на каждый ход — массив слотов, по которому раз в тик проходит один поток.
+ * Таймер попадает в слот (срок / тик) & (слотов - 1) с числом полных оборотов до срабатывания.
+ * Постановка и отмена — O(1) и без блокировок: новые таймеры и отмены копятся в очередях, и поток колеса
+ * разбирает их в начале тика, так что списки слотов трогает только он. Точность — один тик, для часов
+ * хода в десятки секунд этого достаточно.
+ *
+ * Задача выполняется в потоке колеса: она должна быть короткой (переложить работу на пул сервера).
+ * Настройки: dungeon.net.wheelTickMillis, dungeon.net.wheelSlots (степень двойки).
+ */
+final class TurnWheel {
+
+    private static final TurnWheel SHARED = new TurnWheel(
+        Long.getLong("dungeon.net.wheelTickMillis", 100), Integer.getInteger("dungeon.net.wheelSlots", 512));
+
+    private static final int PENDING = 0;
+    private static final int CANCELLED = 1;
+    private static final int EXPIRED = 2;
+
+    /**
+     * Поставленный таймер. cancel() можно звать из любого потока.
+     */
+    final class Timeout {
+        private final Runnable task;
+        private final long deadline; // нс от старта колеса
+        private final AtomicInteger state = new AtomicInteger(PENDING);
+        // Дальше — только поток колеса
+        private long rounds;
+        private Slot slot;
+        private Timeout prev;
+        private Timeout next;
+
+        private Timeout(Runnable task, long deadline) {
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        /**
+         * false — таймер уже сработал или отменен.
+         */
+        boolean cancel() {
+            if (!state.compareAndSet(PENDING, CANCELLED)) return false;
+            cancelledQueue.add(this);
+            return true;
+        }
+
+        private void expire() {
+            if (!state.compareAndSet(PENDING, EXPIRED)) return;
+            expired.incrementAndGet();
+            try {
+                task.run();
+            } catch (Throwable e) {
+                System.err.println("❌ Ошибка в таймере хода: " + e.getMessage());
+            }
+        }
+    }
+
+    private static final class Slot {
+        private Timeout head;
+        private Timeout tail;
+
+        void add(Timeout timeout) {
+            timeout.slot = this;
+            if (head == null) {
+                head = tail = timeout;
+            } else {
+                tail.next = timeout;
+                timeout.prev = tail;
+                tail = timeout;
+            }
+        }
+
+        void remove(Timeout timeout) {
+            if (timeout.prev != null) timeout.prev.next = timeout.next;
+            else head = timeout.next;
+            if (timeout.next != null) timeout.next.prev = timeout.prev;
+            else tail = timeout.prev;
+            timeout.prev = timeout.next = null;
+            timeout.slot = null;
+        }
+    }
+
+    private final long tickNanos;
+    private final Slot[] slots;
+    private final int mask;
+    private final long startNanos = System.nanoTime();
+    private final Queue<Timeout> addedQueue = new ConcurrentLinkedQueue<>();
+    private final Queue<Timeout> cancelledQueue = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean started = new AtomicBoolean();
+    private long tick; // только поток колеса
+
+    private final AtomicLong scheduled = new AtomicLong();
+    private final AtomicLong cancelled = new AtomicLong();
+    private final AtomicLong expired = new AtomicLong();
+
+    TurnWheel(long tickMillis, int slotCount) {
+        if (Integer.bitCount(slotCount) != 1) throw new IllegalArgumentException("Число слотов должно быть степенью двойки: " + slotCount);
+        this.tickNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, tickMillis));
+        this.slots = new Slot[slotCount];
+        for (int i = 0; i < slotCount; i++) {
+            slots[i] = new Slot();
+        }
+        this.mask = slotCount - 1;
+    }
+
+    static TurnWheel shared() {
+        return SHARED;
+    }
+
+    Timeout schedule(Runnable task, long delay, TimeUnit unit) {
+        Timeout timeout = new Timeout(task, System.nanoTime() - startNanos + unit.toNanos(delay));
+        addedQueue.add(timeout);
+        scheduled.incrementAndGet();
+        if (!started.get() && started.compareAndSet(false, true)) {
+            Thread worker = new Thread(this::run, "Turn-Wheel");
+            worker.setDaemon(true);
+            worker.start();
+        }
+        return timeout;
+    }
+
+    String getStats() {
+        long done = cancelled.get() + expired.get();
+        return String.format("таймеров поставлено: %d, отменено: %d, сработало: %d, ждут: %d",
+            scheduled.get(), cancelled.get(), expired.get(), scheduled.get() - done);
+    }
+
+    private void run() {
+        while (true) {
+            long tickEnd = tickNanos * (tick + 1);
+            long sleepNanos = tickEnd - (System.nanoTime() - startNanos);
+            if (sleepNanos > 0) {
+                try {
+                    Thread.sleep(TimeUnit.NANOSECONDS.toMillis(sleepNanos + 999_999));
+                } catch (InterruptedException e) {
+                    return;
+                }
+                continue; // проснулись раньше — досыпаем
+            }
+            removeCancelled();
+            transferAdded();
+            expireSlot(slots[(int) (tick & mask)], tickEnd);
+            tick++;
+        }
+    }
+
+    private void removeCancelled() {
+        Timeout timeout;
+        while ((timeout = cancelledQueue.poll()) != null) {
+            cancelled.incrementAndGet();
+            if (timeout.slot != null) timeout.slot.remove(timeout);
+        }
+    }
+
+    private void transferAdded() {
+        Timeout timeout;
+        while ((timeout = addedQueue.poll()) != null) {
+            if (timeout.state.get() != PENDING) continue; // отменен до попадания в слот
+            long ticks = timeout.deadline / tickNanos;
+            timeout.rounds = Math.max(0, (ticks - tick) / slots.length);
+            // Просроченный еще до постановки — в текущий слот, сработает в этом же тике
+            slots[(int) (Math.max(ticks, tick) & mask)].add(timeout);
+        }
+    }
+
+    private void expireSlot(Slot slot, long tickEnd) {
+        Timeout timeout = slot.head;
+        while (timeout != null) {
+            Timeout next = timeout.next;
+            if (timeout.rounds <= 0 && timeout.deadline <= tickEnd) {
+                slot.remove(timeout);
+                timeout.expire();
+            } else if (timeout.rounds > 0) {
+                timeout.rounds--;
+            }
+            timeout = next;
+        }
+    }
+}
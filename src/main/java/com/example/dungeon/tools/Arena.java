@@ -0,0 +1,224 @@
+package com.example.dungeon.tools;
+
+import com.example.dungeon.game.*;
+import com.example.dungeon.network.LatencyHistogram;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Arena — круговой турнир стратегий ИИ (AiStrategy из ServiceLoader) для сравнения силы и цены.
+ *
+ * Каждая пара играет games партий (случайные персонажи, места чередуются); партии пачками
+ * раскладываются по пулу потоков. Каждое решение идет через AiStrategies.decide с бюджетом budget-ms:
+ * опоздавший ответ заменяется первой картой руки, как на сервере.
+ *
+ * Итог: рейтинг Эло (модель Брэдли-Терри по всем партиям, среднее 1500), доля очков,
+ * время решения (среднее, p50, p99, максимум) и число опозданий; затем таблица очков пар.
+ *
+ * Запуск: java -cp ... com.example.dungeon.tools.Arena --rules network --strategies random,greedy,model,lookahead
+ *   --games 1000 --budget-ms 5
+ */
+public class Arena {
+
+    private static final int GAMES_PER_TASK = 50;
+
+    /**
+     * Время решений одной стратегии и число опозданий.
+     */
+    static class Timing {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        long late;
+
+        void record(long nanos, boolean wasLate) {
+            histogram.record(nanos);
+            if (wasLate) late++;
+        }
+
+        void add(Timing other) {
+            histogram.add(other.histogram);
+            late += other.late;
+        }
+    }
+
+    /**
+     * Итог пачки партий пары (a, b): очки a и время решений обеих сторон.
+     */
+    static class PairResult {
+        final int a;
+        final int b;
+        double scoreA;
+        int games;
+        final Timing timingA = new Timing();
+        final Timing timingB = new Timing();
+
+        PairResult(int a, int b) {
+            this.a = a;
+            this.b = b;
+        }
+    }
+
+    private final String rulesName;
+    private final List<String> names;
+    private final long budgetNanos;
+    private final DuelSimulator simulator;
+
+    public Arena(String rulesName, List<String> names, long budgetNanos) {
+        this.rulesName = rulesName;
+        this.names = names;
+        this.budgetNanos = budgetNanos;
+        this.simulator = new DuelSimulator(CardRules.byName(rulesName));
+    }
+
+    private DuelSimulator.Policy timed(AiStrategy strategy, Timing timing) {
+        return (self, opponent, rnd) -> {
+            long start = System.nanoTime();
+            long deadline = start + budgetNanos;
+            Card card = AiStrategies.decide(strategy, self, opponent, deadline);
+            long elapsed = System.nanoTime() - start;
+            timing.record(elapsed, elapsed - budgetNanos > AiStrategies.LATE_TOLERANCE_NANOS);
+            return card;
+        };
+    }
+
+    PairResult playBatch(int a, int b, int firstGame, int games, long seed) {
+        PairResult result = new PairResult(a, b);
+        Random rnd = new Random(seed);
+        DuelSimulator.Policy policyA = timed(AiStrategies.create(names.get(a), rulesName), result.timingA);
+        DuelSimulator.Policy policyB = timed(AiStrategies.create(names.get(b), rulesName), result.timingB);
+        CharacterType[] characters = CharacterType.values();
+
+        for (int g = firstGame; g < firstGame + games; g++) {
+            CharacterType characterA = characters[rnd.nextInt(characters.length)];
+            CharacterType characterB = characters[rnd.nextInt(characters.length)];
+            boolean aFirst = g % 2 == 0;
+            int winner = aFirst
+                ? simulator.play(characterA, characterB, policyA, policyB, rnd, null)
+                : simulator.play(characterB, characterA, policyB, policyA, rnd, null);
+            if (winner == 0) result.scoreA += 0.5;
+            else if ((winner == 1) == aFirst) result.scoreA += 1;
+            result.games++;
+        }
+        return result;
+    }
+
+    /**
+     * Рейтинги Эло по матрице очков: максимальное правдоподобие Брэдли-Терри (MM-итерации),
+     * с одной виртуальной ничьей против каждого соперника, чтобы 0% или 100% не давали бесконечность.
+     */
+    static double[] elo(double[][] score, int[][] games) {
+        int n = score.length;
+        double[] strength = new double[n];
+        Arrays.fill(strength, 1);
+        for (int iteration = 0; iteration < 10_000; iteration++) {
+            double maxChange = 0;
+            for (int i = 0; i < n; i++) {
+                double wins = 0;
+                double denominator = 0;
+                for (int j = 0; j < n; j++) {
+                    if (i == j) continue;
+                    wins += score[i][j] + 0.5;
+                    denominator += (games[i][j] + 1) / (strength[i] + strength[j]);
+                }
+                double updated = wins / denominator;
+                maxChange = Math.max(maxChange, Math.abs(Math.log(updated / strength[i])));
+                strength[i] = updated;
+            }
+            // Нормировка: среднее геометрическое 1 (средний рейтинг 1500)
+            double logMean = Arrays.stream(strength).map(Math::log).average().orElse(0);
+            for (int i = 0; i < n; i++) strength[i] /= Math.exp(logMean);
+            if (maxChange < 1e-9) break;
+        }
+        double[] ratings = new double[n];
+        for (int i = 0; i < n; i++) ratings[i] = 1500 + 400 * Math.log10(strength[i]);
+        return ratings;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = SelfPlayTrainer.parseOptions(args);
+        String rulesName = options.getOrDefault("rules", "network");
+        List<String> names = options.containsKey("strategies")
+            ? Arrays.asList(options.get("strategies").split(","))
+            : new ArrayList<>(AiStrategies.names());
+        int games = Integer.parseInt(options.getOrDefault("games", "400"));
+        long budgetNanos = TimeUnit.MICROSECONDS.toNanos(
+            (long) (Double.parseDouble(options.getOrDefault("budget-ms", "5")) * 1000));
+        long seed = Long.parseLong(options.getOrDefault("seed", "1"));
+        int threads = Integer.parseInt(options.getOrDefault("threads",
+            String.valueOf(Runtime.getRuntime().availableProcessors())));
+
+        for (String name : names) {
+            AiStrategies.create(name, rulesName); // неизвестное имя — ошибка до начала турнира
+        }
+
+        Arena arena = new Arena(rulesName, names, budgetNanos);
+        int n = names.size();
+        System.out.printf("🏟 Арена (%s): %s, по %d партий на пару, бюджет %.1f мс, потоков %d%n",
+            rulesName, names, games, budgetNanos / 1e6, threads);
+
+        long start = System.nanoTime();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<PairResult>> batches = new ArrayList<>();
+        for (int a = 0; a < n; a++) {
+            for (int b = a + 1; b < n; b++) {
+                for (int first = 0; first < games; first += GAMES_PER_TASK) {
+                    int pairA = a;
+                    int pairB = b;
+                    int firstGame = first;
+                    int count = Math.min(GAMES_PER_TASK, games - first);
+                    long batchSeed = seed * 1_000_003L + (a * 31L + b) * 65_537L + first;
+                    batches.add(pool.submit(() -> arena.playBatch(pairA, pairB, firstGame, count, batchSeed)));
+                }
+            }
+        }
+
+        double[][] score = new double[n][n];
+        int[][] played = new int[n][n];
+        Timing[] timing = new Timing[n];
+        for (int i = 0; i < n; i++) timing[i] = new Timing();
+        for (Future<PairResult> batch : batches) {
+            PairResult r = batch.get();
+            score[r.a][r.b] += r.scoreA;
+            score[r.b][r.a] += r.games - r.scoreA;
+            played[r.a][r.b] += r.games;
+            played[r.b][r.a] += r.games;
+            timing[r.a].add(r.timingA);
+            timing[r.b].add(r.timingB);
+        }
+        pool.shutdown();
+
+        double[] ratings = elo(score, played);
+        Integer[] order = new Integer[n];
+        for (int i = 0; i < n; i++) order[i] = i;
+        Arrays.sort(order, Comparator.comparingDouble(i -> -ratings[i]));
+
+        System.out.printf("%n%-12s %6s %7s %10s %9s %9s %9s %9s %7s%n",
+            "стратегия", "Эло", "очки", "решений", "ср. мкс", "p50 мкс", "p99 мкс", "макс мс", "опозд.");
+        for (int i : order) {
+            double points = 0;
+            int total = 0;
+            for (int j = 0; j < n; j++) {
+                points += score[i][j];
+                total += played[i][j];
+            }
+            LatencyHistogram h = timing[i].histogram;
+            System.out.printf(Locale.ROOT, "%-12s %6.0f %6.1f%% %10d %9.1f %9.1f %9.1f %9.2f %7d%n",
+                names.get(i), ratings[i], total == 0 ? 0 : points / total * 100, h.getCount(),
+                h.getMeanNanos() / 1e3, h.percentile(0.5) / 1e3, h.percentile(0.99) / 1e3,
+                h.getMaxNanos() / 1e6, timing[i].late);
+        }
+
+        System.out.printf("%nОчки строки против столбца:%n%-12s", "");
+        for (int j : order) System.out.printf(" %10s", names.get(j));
+        System.out.println();
+        for (int i : order) {
+            System.out.printf("%-12s", names.get(i));
+            for (int j : order) {
+                if (i == j) System.out.printf(" %10s", "—");
+                else System.out.printf(Locale.ROOT, " %9.1f%%", score[i][j] / played[i][j] * 100);
+            }
+            System.out.println();
+        }
+        System.out.printf("%n⏱ Турнир занял %d мс%n", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+}
@@ -0,0 +1,209 @@
+package com.example.dungeon.tools;
+
+import com.example.dungeon.game.*;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * BalanceSweep — подбор баланса персонажей симуляциями (без UI).
+ * Для одного персонажа перебирается сетка его параметров (здоровье и множители), остальные персонажи
+ * остаются как в CharacterType. В каждой точке сетки играется games партий против каждого персонажа
+ * (места чередуются), партии раскладываются по всем ядрам. Для каждого матчапа — доля побед
+ * и 95% доверительный интервал Вильсона.
+ *
+ * Результаты точек кэшируются на диске (~/.dungeon-mayhem/balance-cache-<rules>.tsv): повторный запуск
+ * с пересекающейся сеткой считает только новые точки.
+ *
+ * Диапазоны: начало:конец:шаг или одно значение. Пример:
+ *   java -cp ... com.example.dungeon.tools.BalanceSweep --character ROGUE --health 20:30:5 --attack 1.5:1.9:0.2
+ *     --games 2000 --csv rogue.csv
+ */
+public class BalanceSweep {
+
+    private static final double Z = 1.96; // 95%
+
+    private final DuelSimulator simulator;
+    private final EvalModel model;
+    private final ExecutorService pool;
+    private final int threads;
+    private final Path cacheFile;
+    private final Map<String, double[]> cache = new HashMap<>();
+
+    public BalanceSweep(String rulesName, int threads, Path cacheFile) throws IOException {
+        this.simulator = new DuelSimulator(CardRules.byName(rulesName));
+        this.model = EvalModel.loadDefault(rulesName);
+        this.threads = threads;
+        this.pool = Executors.newFixedThreadPool(threads);
+        this.cacheFile = cacheFile;
+        loadCache();
+    }
+
+    /**
+     * Результат матчапа в точке сетки: очки (победа 1, ничья 0.5) и число партий.
+     */
+    static class Matchup {
+        final CharacterType opponent;
+        final double score;
+        final int games;
+
+        Matchup(CharacterType opponent, double score, int games) {
+            this.opponent = opponent;
+            this.score = score;
+            this.games = games;
+        }
+
+        double rate() { return score / games; }
+
+        /**
+         * Интервал Вильсона [low, high].
+         */
+        double[] wilson() {
+            double p = rate();
+            double n = games;
+            double denominator = 1 + Z * Z / n;
+            double center = (p + Z * Z / (2 * n)) / denominator;
+            double half = Z * Math.sqrt(p * (1 - p) / n + Z * Z / (4 * n * n)) / denominator;
+            return new double[]{center - half, center + half};
+        }
+    }
+
+    /**
+     * Матчап hero (с параметрами stats) против opponent (с параметрами из enum).
+     */
+    Matchup evaluate(CharacterType hero, CharacterStats stats, CharacterType opponent, int games, long seed)
+            throws InterruptedException, ExecutionException, IOException {
+        String key = hero + "|" + stats + "|" + opponent + "|" + games + "|" + seed;
+        double[] cached = cache.get(key);
+        if (cached != null) return new Matchup(opponent, cached[0], (int) cached[1]);
+
+        List<Future<Double>> parts = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int part = t;
+            parts.add(pool.submit(() -> {
+                Random rnd = new Random(seed * 1_000_003L + part);
+                OpponentAI ai = new OpponentAI(simulator.getRules(), model);
+                DuelSimulator.Policy policy = (self, other, r) ->
+                    ai.chooseCard(self, other, System.nanoTime() + TimeUnit.SECONDS.toNanos(1));
+                double score = 0;
+                for (int g = part; g < games; g += threads) {
+                    Player heroPlayer = DuelSimulator.newPlayer("Герой", hero, rnd);
+                    heroPlayer.setStats(stats);
+                    Player opponentPlayer = DuelSimulator.newPlayer("Соперник", opponent, rnd);
+                    boolean heroFirst = g % 2 == 0;
+                    int winner = heroFirst
+                        ? simulator.play(heroPlayer, opponentPlayer, policy, policy, rnd, null)
+                        : simulator.play(opponentPlayer, heroPlayer, policy, policy, rnd, null);
+                    if (winner == 0) score += 0.5;
+                    else if ((winner == 1) == heroFirst) score += 1;
+                }
+                return score;
+            }));
+        }
+        double score = 0;
+        for (Future<Double> part : parts) {
+            score += part.get();
+        }
+
+        cache.put(key, new double[]{score, games});
+        appendCache(key, score, games);
+        return new Matchup(opponent, score, games);
+    }
+
+    // === Кэш: строки "ключ<TAB>очки<TAB>партий" ===
+
+    private void loadCache() throws IOException {
+        if (!Files.exists(cacheFile)) return;
+        for (String line : Files.readAllLines(cacheFile, StandardCharsets.UTF_8)) {
+            String[] parts = line.split("\t");
+            if (parts.length != 3) continue; // оборванная последняя строка
+            cache.put(parts[0], new double[]{Double.parseDouble(parts[1]), Double.parseDouble(parts[2])});
+        }
+    }
+
+    private void appendCache(String key, double score, int games) throws IOException {
+        Files.createDirectories(cacheFile.toAbsolutePath().getParent());
+        Files.writeString(cacheFile, key + "\t" + score + "\t" + games + "\n", StandardCharsets.UTF_8,
+            StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    public void close() {
+        pool.shutdownNow();
+    }
+
+    static double[] range(String spec, double fallback) {
+        if (spec == null) return new double[]{fallback};
+        String[] parts = spec.split(":");
+        if (parts.length == 1) return new double[]{Double.parseDouble(parts[0])};
+        double from = Double.parseDouble(parts[0]);
+        double to = Double.parseDouble(parts[1]);
+        double step = parts.length > 2 ? Double.parseDouble(parts[2]) : 0.1;
+        List<Double> values = new ArrayList<>();
+        for (double v = from; v <= to + step * 1e-6; v += step) {
+            values.add(Math.round(v * 1e6) / 1e6);
+        }
+        return values.stream().mapToDouble(Double::doubleValue).toArray();
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = SelfPlayTrainer.parseOptions(args);
+        String rulesName = options.getOrDefault("rules", "network");
+        CharacterType hero = CharacterType.valueOf(options.getOrDefault("character", "BARBARIAN"));
+        int games = Integer.parseInt(options.getOrDefault("games", "2000"));
+        long seed = Long.parseLong(options.getOrDefault("seed", "1"));
+        int threads = Integer.parseInt(options.getOrDefault("threads",
+            String.valueOf(Runtime.getRuntime().availableProcessors())));
+        Path cacheFile = Paths.get(options.getOrDefault("cache", Paths.get(System.getProperty("user.home"),
+            ".dungeon-mayhem", "balance-cache-" + rulesName + ".tsv").toString()));
+
+        double[] healths = range(options.get("health"), hero.getBaseHealth());
+        double[] attacks = range(options.get("attack"), hero.getAttackMultiplier());
+        double[] defenses = range(options.get("defense"), hero.getDefenseMultiplier());
+        double[] heals = range(options.get("heal"), hero.getHealMultiplier());
+
+        BalanceSweep sweep = new BalanceSweep(rulesName, threads, cacheFile);
+        PrintWriter csv = options.containsKey("csv")
+            ? new PrintWriter(Files.newBufferedWriter(Paths.get(options.get("csv")), StandardCharsets.UTF_8)) : null;
+        if (csv != null) csv.println("character,health,attack,defense,heal,opponent,games,win_rate,ci_low,ci_high");
+
+        long start = System.nanoTime();
+        int points = 0;
+        try {
+            for (double health : healths) {
+                for (double attack : attacks) {
+                    for (double defense : defenses) {
+                        for (double heal : heals) {
+                            CharacterStats stats = new CharacterStats((int) health, attack, defense, heal);
+                            StringBuilder line = new StringBuilder(String.format("%-10s %s |", hero, stats));
+                            double total = 0;
+                            for (CharacterType opponent : CharacterType.values()) {
+                                Matchup m = sweep.evaluate(hero, stats, opponent, games, seed);
+                                double[] ci = m.wilson();
+                                total += m.rate();
+                                line.append(String.format(Locale.ROOT, " %s %.1f%% [%.1f-%.1f]",
+                                    opponent.getIcon(), m.rate() * 100, ci[0] * 100, ci[1] * 100));
+                                if (csv != null) {
+                                    csv.printf(Locale.ROOT, "%s,%d,%.4f,%.4f,%.4f,%s,%d,%.4f,%.4f,%.4f%n",
+                                        hero, stats.getBaseHealth(), attack, defense, heal, opponent, m.games,
+                                        m.rate(), ci[0], ci[1]);
+                                }
+                            }
+                            line.append(String.format(Locale.ROOT, " | среднее %.1f%%",
+                                total / CharacterType.values().length * 100));
+                            System.out.println(line);
+                            points++;
+                        }
+                    }
+                }
+            }
+        } finally {
+            sweep.close();
+            if (csv != null) csv.close();
+        }
+        System.out.printf("⚖ Точек: %d, партий на матчап: %d, время: %d с%n", points, games,
+            TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start));
+    }
+}
@@ -0,0 +1,253 @@
+package com.example.dungeon.tools;
+
+import com.example.dungeon.game.*;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * SelfPlayTrainer — офлайн-обучение оценки позиции для ИИ (без UI).
+ *  1. параллельная самоигра (DuelSimulator) на реальных правилах и персонажах
+ *  2. пары (признаки позиции, исход партии) — в память и, при --log, в бинарный лог
+ *  3. логистическая регрессия (SGD) — веса EvalModel
+ *  4. следующая итерация играет уже новой моделью; в конце — контрольный матч против эвристики
+ *
+ * Запуск: java -cp ... com.example.dungeon.tools.SelfPlayTrainer --rules engine --games 20000 --iterations 3
+ *   --out src/main/resources/ai/eval-engine.bin
+ */
+public class SelfPlayTrainer {
+
+    private final DuelSimulator simulator;
+    private final int threads;
+    private final double epsilon;
+
+    public SelfPlayTrainer(CardRules rules, int threads, double epsilon) {
+        this.simulator = new DuelSimulator(rules);
+        this.threads = threads;
+        this.epsilon = epsilon;
+    }
+
+    /**
+     * Набор примеров: признаки подряд в одном массиве (FEATURES на пример) и метки.
+     */
+    static class Samples {
+        float[] x = new float[EvalModel.FEATURES * 1024];
+        float[] y = new float[1024];
+        int size;
+
+        void add(float[] features, float label) {
+            if (size == y.length) {
+                x = Arrays.copyOf(x, x.length * 2);
+                y = Arrays.copyOf(y, y.length * 2);
+            }
+            System.arraycopy(features, 0, x, size * EvalModel.FEATURES, EvalModel.FEATURES);
+            y[size++] = label;
+        }
+
+        void addAll(Samples other) {
+            for (int i = 0; i < other.size; i++) {
+                if (size == y.length) {
+                    x = Arrays.copyOf(x, x.length * 2);
+                    y = Arrays.copyOf(y, y.length * 2);
+                }
+                System.arraycopy(other.x, i * EvalModel.FEATURES, x, size * EvalModel.FEATURES, EvalModel.FEATURES);
+                y[size++] = other.y[i];
+            }
+        }
+    }
+
+    /**
+     * Стратегия самоигры: жадный выбор по модели (или эвристике), с вероятностью epsilon — случайная карта.
+     */
+    private DuelSimulator.Policy policy(EvalModel model, double epsilon) {
+        OpponentAI ai = new OpponentAI(simulator.getRules(), model);
+        DuelSimulator.Policy random = DuelSimulator.randomPolicy();
+        return (self, opponent, rnd) -> rnd.nextDouble() < epsilon
+            ? random.choose(self, opponent, rnd)
+            : ai.chooseCard(self, opponent, System.nanoTime() + TimeUnit.SECONDS.toNanos(1));
+    }
+
+    /**
+     * Играет games партий на threads потоках и собирает примеры.
+     */
+    public Samples selfPlay(EvalModel model, int games, long seed) throws InterruptedException, ExecutionException {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Samples>> parts = new ArrayList<>();
+            CharacterType[] characters = CharacterType.values();
+            for (int t = 0; t < threads; t++) {
+                int part = t;
+                parts.add(pool.submit(() -> {
+                    Random rnd = new Random(seed * 31 + part);
+                    DuelSimulator.Policy policy = policy(model, epsilon);
+                    Samples samples = new Samples();
+                    Samples game = new Samples();
+                    float[] features = new float[EvalModel.FEATURES];
+                    int[] seats = new int[DuelSimulator.DEFAULT_MAX_TURNS];
+
+                    for (int g = part; g < games; g += threads) {
+                        game.size = 0;
+                        int winner = simulator.play(
+                            characters[rnd.nextInt(characters.length)], characters[rnd.nextInt(characters.length)],
+                            policy, policy, rnd, (mover, other, turn) -> {
+                                EvalModel.features(mover, other, features);
+                                seats[game.size] = turn % 2 == 0 ? 1 : 2;
+                                game.add(features, 0);
+                            });
+                        // Метка — исход партии для того, кто ходил в этой позиции
+                        for (int i = 0; i < game.size; i++) {
+                            game.y[i] = winner == 0 ? 0.5f : winner == seats[i] ? 1f : 0f;
+                        }
+                        samples.addAll(game);
+                    }
+                    return samples;
+                }));
+            }
+
+            Samples all = new Samples();
+            for (Future<Samples> part : parts) {
+                all.addAll(part.get());
+            }
+            return all;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Логистическая регрессия: SGD с затухающим шагом и L2, последние 10% примеров — контроль.
+     */
+    public static EvalModel fit(Samples samples, EvalModel start, int epochs, long seed) {
+        int n = EvalModel.FEATURES;
+        float[] w = start != null ? start.getWeights() : new float[n];
+        int trainSize = samples.size * 9 / 10;
+
+        int[] order = new int[trainSize];
+        for (int i = 0; i < trainSize; i++) order[i] = i;
+        Random rnd = new Random(seed);
+
+        double lr = 0.05;
+        double l2 = 1e-6;
+        for (int epoch = 0; epoch < epochs; epoch++) {
+            for (int i = trainSize - 1; i > 0; i--) {
+                int j = rnd.nextInt(i + 1);
+                int tmp = order[i]; order[i] = order[j]; order[j] = tmp;
+            }
+            for (int k = 0; k < trainSize; k++) {
+                int base = order[k] * n;
+                double z = 0;
+                for (int f = 0; f < n; f++) z += w[f] * samples.x[base + f];
+                double p = 1.0 / (1.0 + Math.exp(-z));
+                double g = p - samples.y[order[k]];
+                for (int f = 0; f < n; f++) {
+                    w[f] -= (float) (lr * (g * samples.x[base + f] + l2 * w[f]));
+                }
+            }
+            lr *= 0.6;
+            System.out.printf("   эпоха %d: контроль log-loss %.4f, точность %.1f%%%n",
+                epoch + 1, logLoss(samples, w, trainSize), accuracy(samples, w, trainSize) * 100);
+        }
+        return new EvalModel(w);
+    }
+
+    private static double logLoss(Samples samples, float[] w, int from) {
+        double loss = 0;
+        for (int i = from; i < samples.size; i++) {
+            double p = Math.min(1 - 1e-7, Math.max(1e-7, predict(samples, w, i)));
+            loss -= samples.y[i] * Math.log(p) + (1 - samples.y[i]) * Math.log(1 - p);
+        }
+        return loss / Math.max(1, samples.size - from);
+    }
+
+    private static double accuracy(Samples samples, float[] w, int from) {
+        int correct = 0;
+        int counted = 0;
+        for (int i = from; i < samples.size; i++) {
+            if (samples.y[i] == 0.5f) continue;
+            counted++;
+            if ((predict(samples, w, i) >= 0.5) == (samples.y[i] == 1f)) correct++;
+        }
+        return counted == 0 ? 0 : (double) correct / counted;
+    }
+
+    private static double predict(Samples samples, float[] w, int i) {
+        double z = 0;
+        for (int f = 0; f < w.length; f++) z += w[f] * samples.x[i * w.length + f];
+        return 1.0 / (1.0 + Math.exp(-z));
+    }
+
+    /**
+     * Контрольный матч: модель против эвристики, места чередуются. Возвращает долю побед модели.
+     */
+    public double benchmark(EvalModel model, int games, long seed) {
+        DuelSimulator.Policy trained = policy(model, 0);
+        DuelSimulator.Policy baseline = policy(null, 0);
+        CharacterType[] characters = CharacterType.values();
+        Random rnd = new Random(seed);
+        double score = 0;
+        for (int g = 0; g < games; g++) {
+            CharacterType c1 = characters[rnd.nextInt(characters.length)];
+            CharacterType c2 = characters[rnd.nextInt(characters.length)];
+            boolean trainedFirst = g % 2 == 0;
+            int winner = trainedFirst
+                ? simulator.play(c1, c2, trained, baseline, rnd, null)
+                : simulator.play(c1, c2, baseline, trained, rnd, null);
+            if (winner == 0) score += 0.5;
+            else if ((winner == 1) == trainedFirst) score += 1;
+        }
+        return score / games;
+    }
+
+    static void writeLog(Samples samples, Path file) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                Files.newOutputStream(file, StandardOpenOption.CREATE, StandardOpenOption.APPEND)))) {
+            for (int i = 0; i < samples.size; i++) {
+                for (int f = 0; f < EvalModel.FEATURES; f++) out.writeFloat(samples.x[i * EvalModel.FEATURES + f]);
+                out.writeFloat(samples.y[i]);
+            }
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parseOptions(args);
+        String rulesName = options.getOrDefault("rules", "engine");
+        CardRules rules = CardRules.byName(rulesName);
+        int games = Integer.parseInt(options.getOrDefault("games", "20000"));
+        int iterations = Integer.parseInt(options.getOrDefault("iterations", "3"));
+        int threads = Integer.parseInt(options.getOrDefault("threads",
+            String.valueOf(Runtime.getRuntime().availableProcessors())));
+        double epsilon = Double.parseDouble(options.getOrDefault("epsilon", "0.1"));
+        long seed = Long.parseLong(options.getOrDefault("seed", "42"));
+        Path out = Paths.get(options.getOrDefault("out", "eval-" + rulesName + ".bin"));
+        Path log = options.containsKey("log") ? Paths.get(options.get("log")) : null;
+
+        SelfPlayTrainer trainer = new SelfPlayTrainer(rules, threads, epsilon);
+        EvalModel model = null;
+        for (int it = 1; it <= iterations; it++) {
+            long start = System.nanoTime();
+            Samples samples = trainer.selfPlay(model, games, seed + it);
+            System.out.printf("🎲 Итерация %d: %d партий, %d позиций за %d мс%n", it, games, samples.size,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            if (log != null) writeLog(samples, log);
+            model = fit(samples, model, 4, seed + it);
+        }
+
+        System.out.printf("🏁 Модель против эвристики: %.1f%% побед%n", trainer.benchmark(model, 4000, seed) * 100);
+        model.write(out);
+        System.out.println("💾 Веса сохранены: " + out.toAbsolutePath() + " " + Arrays.toString(model.getWeights()));
+    }
+
+    static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            if (!args[i].startsWith("--")) throw new IllegalArgumentException("Ожидался --параметр: " + args[i]);
+            options.put(args[i].substring(2), args[i + 1]);
+        }
+        return options;
+    }
+}
@@ -0,0 +1,193 @@
+package com.example.dungeon.tools;
+
+import com.example.dungeon.game.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * TablebaseGenerator — построение таблицы эндшпиля (Tablebase) обратным анализом.
+ *
+ *  1. для каждой позиции (персонажи, HP 1..maxHp, щиты 0..maxShield) и каждого типа карты один раз
+ *     применяются настоящие правила — получается граф переходов: победа / поражение / ничья /
+ *     другая позиция таблицы / выход за пороги (HP или щит выросли)
+ *  2. итерация значений до сходимости: ценность позиции — ожидание лучшей карты в случайной руке
+ *     из handSize карт (как в DuelSimulator: каждый тип карты равновероятен)
+ *
+ * В графе есть циклы (щиты и лечение), поэтому это итерация значений, а не один проход от терминальных позиций.
+ * Позиции за порогами оцениваются EvalModel (или эвристикой, если весов нет) — это граница таблицы.
+ *
+ * Запуск: java -cp ... com.example.dungeon.tools.TablebaseGenerator --rules engine --hp 12 --shield 6
+ */
+public class TablebaseGenerator {
+
+    private static final int WIN = -1;
+    private static final int LOSS = -2;
+    private static final int DRAW = -3;
+    private static final int OUTSIDE = -4;
+
+    private final CardRules rules;
+    private final EvalModel boundary;
+    private final int maxHp;
+    private final int maxShield;
+    private final int handSize;
+    private final int characters = CharacterType.values().length;
+    private final Card[] cards;
+
+    // Переходы: [позиция * типов карт + тип] -> индекс позиции соперника или WIN/LOSS/DRAW/OUTSIDE
+    private int[] next;
+    // Для OUTSIDE: ценность для ходящего, посчитанная на границе
+    private double[] outside;
+
+    public TablebaseGenerator(CardRules rules, EvalModel boundary, int maxHp, int maxShield, int handSize) {
+        this.rules = rules;
+        this.boundary = boundary;
+        this.maxHp = maxHp;
+        this.maxShield = maxShield;
+        this.handSize = handSize;
+
+        CardType[] types = CardType.values();
+        this.cards = new Card[types.length];
+        for (int t = 0; t < types.length; t++) {
+            cards[t] = new Card(types[t], types[t].getDisplayName());
+        }
+    }
+
+    private int index(int cm, int co, int hpm, int hpo, int shm, int sho) {
+        return Tablebase.index(maxHp, maxShield, characters, cm, co, hpm, hpo, shm, sho);
+    }
+
+    /**
+     * Шаг 1: граф переходов по настоящим правилам.
+     */
+    void buildTransitions() {
+        int size = Tablebase.size(maxHp, maxShield, characters);
+        int types = cards.length;
+        next = new int[size * types];
+        outside = new double[size * types];
+        CharacterType[] all = CharacterType.values();
+
+        for (int cm = 0; cm < characters; cm++) {
+            for (int co = 0; co < characters; co++) {
+                for (int hpm = 1; hpm <= maxHp; hpm++) {
+                    for (int hpo = 1; hpo <= maxHp; hpo++) {
+                        for (int shm = 0; shm <= maxShield; shm++) {
+                            for (int sho = 0; sho <= maxShield; sho++) {
+                                int s = index(cm, co, hpm, hpo, shm, sho);
+                                for (int t = 0; t < types; t++) {
+                                    Player mover = new Player("A", all[cm]);
+                                    Player other = new Player("B", all[co]);
+                                    mover.setHealth(hpm);
+                                    mover.setShield(shm);
+                                    other.setHealth(hpo);
+                                    other.setShield(sho);
+                                    rules.apply(cards[t], mover, other);
+                                    next[s * types + t] = classify(mover, other, s * types + t);
+                                }
+                            }
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private int classify(Player mover, Player other, int slot) {
+        boolean moverAlive = mover.isAlive();
+        boolean otherAlive = other.isAlive();
+        if (!moverAlive && !otherAlive) return DRAW;
+        if (!otherAlive) return WIN;
+        if (!moverAlive) return LOSS;
+
+        if (other.getHealth() > maxHp || mover.getHealth() > maxHp
+                || other.getShield() > maxShield || mover.getShield() > maxShield) {
+            // Дальше ходит соперник: ценность для нас = 1 - его шансы
+            outside[slot] = 1 - boundaryValue(other, mover);
+            return OUTSIDE;
+        }
+        return index(other.getCharacter().ordinal(), mover.getCharacter().ordinal(),
+            other.getHealth(), mover.getHealth(), other.getShield(), mover.getShield());
+    }
+
+    private double boundaryValue(Player mover, Player other) {
+        if (boundary != null) return boundary.winProbability(mover, other);
+        // Без весов: эвристика OpponentAI, сжатая в вероятность
+        return 1.0 / (1.0 + Math.exp(-OpponentAI.evaluate(mover, other) / 5.0));
+    }
+
+    /**
+     * Шаг 2: итерация значений (Гаусс-Зейдель) до изменения меньше epsilon.
+     */
+    double[] solve(double epsilon, int maxIterations) {
+        int size = Tablebase.size(maxHp, maxShield, characters);
+        int types = cards.length;
+        double[] value = new double[size];
+        Arrays.fill(value, 0.5);
+
+        // Вероятность, что лучшая доступная карта — i-я по убыванию ценности (рука из handSize равновероятных типов)
+        double[] bestIsRank = new double[types];
+        for (int i = 0; i < types; i++) {
+            bestIsRank[i] = Math.pow((double) (types - i) / types, handSize)
+                - Math.pow((double) (types - i - 1) / types, handSize);
+        }
+
+        double[] q = new double[types];
+        for (int iteration = 1; iteration <= maxIterations; iteration++) {
+            double maxDelta = 0;
+            for (int s = 0; s < size; s++) {
+                for (int t = 0; t < types; t++) {
+                    int n = next[s * types + t];
+                    q[t] = switch (n) {
+                        case WIN -> 1;
+                        case LOSS -> 0;
+                        case DRAW -> 0.5;
+                        case OUTSIDE -> outside[s * types + t];
+                        default -> 1 - value[n];
+                    };
+                }
+                Arrays.sort(q);
+                double v = 0;
+                for (int i = 0; i < types; i++) {
+                    v += bestIsRank[i] * q[types - 1 - i];
+                }
+                maxDelta = Math.max(maxDelta, Math.abs(v - value[s]));
+                value[s] = v;
+            }
+            if (maxDelta < epsilon) {
+                System.out.printf("   сходимость за %d итераций%n", iteration);
+                return value;
+            }
+        }
+        System.out.printf("   достигнут лимит итераций (%d)%n", maxIterations);
+        return value;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = SelfPlayTrainer.parseOptions(args);
+        String rulesName = options.getOrDefault("rules", "engine");
+        int maxHp = Integer.parseInt(options.getOrDefault("hp", "12"));
+        int maxShield = Integer.parseInt(options.getOrDefault("shield", "6"));
+        int handSize = Integer.parseInt(options.getOrDefault("hand", String.valueOf(DuelSimulator.HAND_SIZE + 1)));
+        Path out = options.containsKey("out") ? Paths.get(options.get("out")) : Tablebase.defaultPath(rulesName);
+
+        TablebaseGenerator generator = new TablebaseGenerator(CardRules.byName(rulesName),
+            EvalModel.loadDefault(rulesName), maxHp, maxShield, handSize);
+
+        long start = System.nanoTime();
+        generator.buildTransitions();
+        System.out.printf("🔗 Переходы построены за %d мс%n", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+
+        start = System.nanoTime();
+        double[] values = generator.solve(1e-7, 10_000);
+        System.out.printf("🧮 Значения посчитаны за %d мс%n", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+
+        Files.createDirectories(out.toAbsolutePath().getParent());
+        Tablebase.write(out, maxHp, maxShield, handSize, values);
+        System.out.println("💾 Таблица эндшпиля: " + out.toAbsolutePath() + " (" + values.length + " позиций, " +
+            Files.size(out) / 1024 + " КБ)");
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.dungeon.tools;
+
+import com.example.dungeon.game.*;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * WinProbabilityGenerator — построение WinProbabilityTable по массе симулированных партий.
+ * Каждая позиция партии засчитывается в ячейку с точки зрения обоих игроков (ходящего и ждущего).
+ * Редкие ячейки сглаживаются к грубой ячейке (персонажи + HP + чей ход), а та — к 50%.
+ *
+ * Запуск: java -cp ... com.example.dungeon.tools.WinProbabilityGenerator --rules engine --games 200000
+ *   --out src/main/resources/ai/winprob-engine.bin
+ */
+public class WinProbabilityGenerator {
+
+    // Вес априорного значения при сглаживании (в "виртуальных партиях")
+    private static final double FINE_PRIOR = 8;
+    private static final double COARSE_PRIOR = 2;
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = SelfPlayTrainer.parseOptions(args);
+        String rulesName = options.getOrDefault("rules", "engine");
+        int games = Integer.parseInt(options.getOrDefault("games", "200000"));
+        int threads = Integer.parseInt(options.getOrDefault("threads",
+            String.valueOf(Runtime.getRuntime().availableProcessors())));
+        double epsilon = Double.parseDouble(options.getOrDefault("epsilon", "0.1"));
+        long seed = Long.parseLong(options.getOrDefault("seed", "7"));
+        Path out = Paths.get(options.getOrDefault("out", "winprob-" + rulesName + ".bin"));
+
+        CardRules rules = CardRules.byName(rulesName);
+        EvalModel model = EvalModel.loadDefault(rulesName);
+        DuelSimulator simulator = new DuelSimulator(rules);
+        CharacterType[] characters = CharacterType.values();
+
+        long start = System.nanoTime();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<double[][]>> parts = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int part = t;
+            parts.add(pool.submit(() -> {
+                Random rnd = new Random(seed * 31 + part);
+                OpponentAI ai = new OpponentAI(rules, model);
+                DuelSimulator.Policy random = DuelSimulator.randomPolicy();
+                DuelSimulator.Policy policy = (self, opponent, r) -> r.nextDouble() < epsilon
+                    ? random.choose(self, opponent, r)
+                    : ai.chooseCard(self, opponent, System.nanoTime() + TimeUnit.SECONDS.toNanos(1));
+
+                double[] wins = new double[WinProbabilityTable.SIZE];
+                double[] counts = new double[WinProbabilityTable.SIZE];
+                int[] cells = new int[2 * DuelSimulator.DEFAULT_MAX_TURNS];
+                int[] seats = new int[2 * DuelSimulator.DEFAULT_MAX_TURNS];
+
+                for (int g = part; g < games; g += threads) {
+                    int[] n = {0};
+                    int winner = simulator.play(
+                        characters[rnd.nextInt(characters.length)], characters[rnd.nextInt(characters.length)],
+                        policy, policy, rnd, (mover, other, turn) -> {
+                            int moverSeat = turn % 2 == 0 ? 1 : 2;
+                            cells[n[0]] = cellOf(mover, other, true);
+                            seats[n[0]++] = moverSeat;
+                            cells[n[0]] = cellOf(other, mover, false);
+                            seats[n[0]++] = 3 - moverSeat;
+                        });
+                    for (int i = 0; i < n[0]; i++) {
+                        counts[cells[i]]++;
+                        wins[cells[i]] += winner == 0 ? 0.5 : winner == seats[i] ? 1 : 0;
+                    }
+                }
+                return new double[][]{wins, counts};
+            }));
+        }
+
+        double[] wins = new double[WinProbabilityTable.SIZE];
+        double[] counts = new double[WinProbabilityTable.SIZE];
+        for (Future<double[][]> part : parts) {
+            double[][] result = part.get();
+            for (int i = 0; i < WinProbabilityTable.SIZE; i++) {
+                wins[i] += result[0][i];
+                counts[i] += result[1][i];
+            }
+        }
+        pool.shutdown();
+
+        // Сглаживание: ячейка -> грубая ячейка -> 50%
+        Map<Integer, double[]> coarse = new HashMap<>();
+        for (int i = 0; i < WinProbabilityTable.SIZE; i++) {
+            if (counts[i] == 0) continue;
+            double[] c = coarse.computeIfAbsent(WinProbabilityTable.coarseCell(i), k -> new double[2]);
+            c[0] += wins[i];
+            c[1] += counts[i];
+        }
+        double[] probabilities = new double[WinProbabilityTable.SIZE];
+        int observed = 0;
+        for (int i = 0; i < WinProbabilityTable.SIZE; i++) {
+            double[] c = coarse.getOrDefault(WinProbabilityTable.coarseCell(i), new double[2]);
+            double prior = (c[0] + COARSE_PRIOR * 0.5) / (c[1] + COARSE_PRIOR);
+            probabilities[i] = (wins[i] + FINE_PRIOR * prior) / (counts[i] + FINE_PRIOR);
+            if (counts[i] > 0) observed++;
+        }
+
+        WinProbabilityTable.write(out, probabilities);
+        System.out.printf("💾 %s: %d партий за %d мс, заполнено ячеек %d из %d%n", out.toAbsolutePath(), games,
+            TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), observed, WinProbabilityTable.SIZE);
+    }
+
+    private static int cellOf(Player player, Player opponent, boolean playerTurn) {
+        return WinProbabilityTable.cell(player.getCharacter().ordinal(), opponent.getCharacter().ordinal(),
+            player.getHealth(), opponent.getHealth(), player.getShield(), opponent.getShield(),
+            player.getHand().size(), playerTurn);
+    }
+}
@@ -21,8 +21,13 @@ import javafx.stage.Stage;
 import javafx.util.Duration;
 import lombok.Setter;
 
+import java.io.IOException;
 import java.time.Instant;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeoutException;
 
 public class GameController implements GameEventListener, GameNetworkController.NetworkListener {
 
@@ -45,6 +50,7 @@ public class GameController implements GameEventListener, GameNetworkController.
 
     @FXML private HBox playerCardsContainer;
     @FXML private HBox opponentCardsContainer;
+    @FXML private HBox bottomBar;
 
     @FXML private TextArea gameChatArea;
     @FXML private TextField gameMessageField;
@@ -63,11 +69,31 @@ public class GameController implements GameEventListener, GameNetworkController.
     private GameNetworkController networkController;
     private Client client;
 
+    // Запись и просмотр повторов
+    private MatchRecorder recorder;
+    @Setter
+    private MatchReplay replay;
+    private Slider replaySlider;
+    private Label replayTurnLabel;
+
+    // Подсказка "лучшая карта" (одиночная игра)
+    private HintEvaluator hintEvaluator;
+    private ToggleButton hintToggle;
+    private Label hintLabel;
+
+    // Индикатор задержки сети (dungeon.ui.showRtt=false — скрыть)
+    private static final boolean SHOW_RTT = Boolean.parseBoolean(System.getProperty("dungeon.ui.showRtt", "true"));
+    private Label rttLabel;
+    private Timeline rttRefresh;
+    private volatile boolean hintsEnabled;
+
     // Состояние игры
     private boolean isMyTurn = true;
     private Boolean serverTurnKnown = null;
     private Timeline gameTimer;
     private Instant timerStart;
+    // Когда у того, кто ходит, истекут часы хода сервера (null — часов нет)
+    private Instant turnDeadline;
     private int playerMaxHP = 10;
     private int opponentMaxHP = 10;
 
@@ -85,6 +111,11 @@ public class GameController implements GameEventListener, GameNetworkController.
     private final Timeline indicatorAnimation = new Timeline();
     private final Timeline victoryPulseAnimation = new Timeline();
 
+    // Плавный переход полосок здоровья к состоянию сервера, если предсказанный ход разошелся с ним
+    private static final double RECONCILE_MILLIS = 300;
+    private Timeline healthTween;
+    private int[] healthTweenTarget;
+
     public GameController() {}
 
     @FXML
@@ -92,6 +123,12 @@ public class GameController implements GameEventListener, GameNetworkController.
         initializeGameComponents();
         initializeVictoryIndicator();
 
+        if (replay != null) {
+            startReplay();
+            return;
+        }
+        startRecording();
+
         if (initialGameState != null) {
             applyInitialGameState(initialGameState);
             initialGameState = null;
@@ -313,67 +350,41 @@ public class GameController implements GameEventListener, GameNetworkController.
     }
 
     /**
-     * Формула расчета вероятности победы (работает для онлайн и офлайн режимов)
-     * playerScore = (playerHP + playerShield * 0.8) * (1 + playerCardsCount * 0.05)
-     * opponentScore = (opponentHP + opponentShield * 0.8) * (1 + opponentCardsCount * 0.05)
-     * victoryPercentage = playerScore / (playerScore + opponentScore) * 100
+     * Вероятность победы по таблице WinProbabilityTable (построена по симулированным партиям):
+     * одно чтение из массива на каждое обновление. Работает для онлайн, офлайн режимов и повторов.
      */
     private void calculateVictoryPercentage() {
         Player player;
         Player opponent;
+        boolean playerTurn;
 
-        if (client == null) {
+        if (client == null && replay == null) {
             // Офлайн режим - берем из engine
             if (engine == null) return;
             player = engine.getPlayer();
             opponent = engine.getOpponent();
+            playerTurn = engine.isPlayerTurn();
         } else {
             // Онлайн режим - берем из сохраненных данных
             player = currentPlayer;
             opponent = currentOpponent;
+            playerTurn = isMyTurn;
         }
 
-        if (player == null || opponent == null) {
+        if (player == null || opponent == null || player.getHand() == null || opponent.getHand() == null) {
             // Если данные недоступны, устанавливаем 50%
             victoryPercentage.set(50);
             return;
         }
 
-        final double shieldCoefficient = 0.8;
-        final double cardBonus = 0.05;
-
-        // Рассчитываем очки игрока
-        int playerHP = Math.max(0, player.getHealth());
-        int playerShield = Math.max(0, player.getShield());
-        int playerCards = player.getHand() != null ? player.getHand().size() : 0;
-
-        double playerScore = (playerHP + playerShield * shieldCoefficient) *
-            (1 + playerCards * cardBonus);
+        // Одиночная игра идет по правилам GameEngine, сеть и повторы сетевых игр — по серверным
+        WinProbabilityTable table = (client == null && replay == null)
+            ? WinProbabilityTable.ENGINE : WinProbabilityTable.NETWORK;
+        double probability = table != null
+            ? table.winProbability(player, opponent, playerTurn)
+            : 1 / (1 + Math.exp(-OpponentAI.evaluate(player, opponent) / 5.0)); // таблицы нет — грубая оценка
 
-        // Рассчитываем очки противника
-        int opponentHP = Math.max(0, opponent.getHealth());
-        int opponentShield = Math.max(0, opponent.getShield());
-        int opponentCards = opponent.getHand() != null ? opponent.getHand().size() : 0;
-
-        double opponentScore = (opponentHP + opponentShield * shieldCoefficient) *
-            (1 + opponentCards * cardBonus);
-
-        // Бонус за максимальное здоровье
-        if (playerMaxHP > opponentMaxHP) {
-            playerScore *= (1 + (playerMaxHP - opponentMaxHP) * 0.01);
-        } else if (opponentMaxHP > playerMaxHP) {
-            opponentScore *= (1 + (opponentMaxHP - playerMaxHP) * 0.01);
-        }
-
-        // Гарантируем минимальные значения
-        playerScore = Math.max(playerScore, 0.1);
-        opponentScore = Math.max(opponentScore, 0.1);
-
-        // Рассчитываем процент победы
-        double victoryPercent = (playerScore / (playerScore + opponentScore)) * 100;
-
-        // Ограничиваем значения 0-100%
-        victoryPercent = Math.max(0, Math.min(100, victoryPercent));
+        double victoryPercent = Math.max(0, Math.min(100, probability * 100));
 
         // Обновляем процент (с плавной анимацией)
         double currentPercent = victoryPercentage.get();
@@ -393,6 +404,8 @@ public class GameController implements GameEventListener, GameNetworkController.
 
     @Override
     public void onHealthUpdated(int playerHP, int playerShield, int opponentHP, int opponentShield) {
+        recordLocalState();
+        requestHint();
         Platform.runLater(() -> {
             playerHealthLabel.setText(String.format("❤ HP: %d/%d",
                 Math.max(0, playerHP), Math.max(1, playerMaxHP)));
@@ -401,10 +414,13 @@ public class GameController implements GameEventListener, GameNetworkController.
                 Math.max(0, opponentHP), Math.max(1, opponentMaxHP)));
             opponentShieldLabel.setText("🛡 Щит: " + Math.max(0, opponentShield));
 
-            hbRenderer.drawHealthBar(playerHealthCanvas.getGraphicsContext2D(),
-                playerHP, Math.max(1, playerMaxHP), playerShield, false);
-            hbRenderer.drawHealthBar(opponentHealthCanvas.getGraphicsContext2D(),
-                opponentHP, Math.max(1, opponentMaxHP), opponentShield, true);
+            // Если к этим значениям полоски уже ведет healthTween — не перебиваем анимацию
+            int[] values = {playerHP, playerShield, opponentHP, opponentShield};
+            if (healthTween == null || !Arrays.equals(values, healthTweenTarget)) {
+                if (healthTween != null) healthTween.stop();
+                healthTween = null;
+                drawHealthBars(values);
+            }
 
             // Обновляем данные игроков в онлайн режиме
             if (client != null && currentPlayer != null && currentOpponent != null) {
@@ -418,6 +434,44 @@ public class GameController implements GameEventListener, GameNetworkController.
         });
     }
 
+    private void drawHealthBars(int[] values) {
+        hbRenderer.drawHealthBar(playerHealthCanvas.getGraphicsContext2D(),
+            values[0], Math.max(1, playerMaxHP), values[1], false);
+        hbRenderer.drawHealthBar(opponentHealthCanvas.getGraphicsContext2D(),
+            values[2], Math.max(1, opponentMaxHP), values[3], true);
+    }
+
+    private static int[] vitals(GameState state) {
+        return new int[]{state.getCurrentPlayer().getHealth(), state.getCurrentPlayer().getShield(),
+            state.getOpponentPlayer().getHealth(), state.getOpponentPlayer().getShield()};
+    }
+
+    @Override
+    public void onPredictionCorrected(GameState predicted, GameState authoritative) {
+        Platform.runLater(() -> {
+            int[] from = vitals(predicted);
+            int[] to = vitals(authoritative);
+            if (healthTween != null) healthTween.stop();
+
+            healthTween = new Timeline();
+            int steps = 12;
+            for (int i = 1; i <= steps; i++) {
+                double t = (double) i / steps;
+                int[] frame = new int[4];
+                for (int k = 0; k < 4; k++) frame[k] = (int) Math.round(from[k] + (to[k] - from[k]) * t);
+                healthTween.getKeyFrames().add(new KeyFrame(Duration.millis(RECONCILE_MILLIS * t),
+                    e -> drawHealthBars(frame)));
+            }
+            healthTweenTarget = to;
+            Timeline tween = healthTween;
+            healthTween.setOnFinished(e -> {
+                if (healthTween == tween) healthTween = null;
+            });
+            healthTween.play();
+            chatService.addChatMessage("Система", "↺ Сервер уточнил результат хода");
+        });
+    }
+
     private void updateCharacterInfo(Player player, Player opponent) {
         Platform.runLater(() -> {
             if (player != null && player.getCharacter() != null) {
@@ -440,6 +494,7 @@ public class GameController implements GameEventListener, GameNetworkController.
 
     @Override
     public void onHandUpdated(List<Card> playerHand) {
+        requestHint();
         Platform.runLater(() -> {
             playerCardsContainer.getChildren().clear();
 
@@ -456,6 +511,8 @@ public class GameController implements GameEventListener, GameNetworkController.
                 boolean finalEnabledVisual = enabledVisual;
 
                 var pane = cardFactory.createCardPane(c, i, finalEnabledVisual, card -> {
+                    if (replay != null) return; // в повторе карты только показываются
+
                     boolean allowLocalPlay = (client == null && engine != null && engine.isPlayerTurn());
                     boolean allowNetworkSend = client != null && isMyTurn;
 
@@ -466,10 +523,11 @@ public class GameController implements GameEventListener, GameNetworkController.
 
                     if (client != null) {
                         if (networkController != null) {
-                            networkController.playCard(card);
-                            chatService.addChatMessage("Вы", card.getName());
-                            serverTurnKnown = null;
+                            // Эффект показывается сразу (предсказание), сервер потом подтверждает или поправляет
                             setPlayerCardsEnabled(false);
+                            networkController.playCard(card).whenComplete((ok, error) -> onCardCommandDone(error));
+                            animationManager.showCardAnimation(card);
+                            chatService.addChatMessage("Вы", card.getName());
                         }
                     } else {
                         engine.playCard(card, false);
@@ -513,6 +571,7 @@ public class GameController implements GameEventListener, GameNetworkController.
 
     @Override
     public void onGameStatusUpdated(String status) {
+        requestHint();
         Platform.runLater(() -> {
             gameStatusLabel.setText(status);
             if (status != null && status.toUpperCase().contains("ВАШ")) isMyTurn = true;
@@ -524,6 +583,7 @@ public class GameController implements GameEventListener, GameNetworkController.
 
     @Override
     public void onActionOccurred(String description) {
+        if (recorder != null && client == null) recorder.recordEvent(MatchRecorder.EVENT_ACTION, description);
         Platform.runLater(() -> {
             lastActionLabel.setText(description);
             chatService.addChatMessage("Действие", description);
@@ -532,8 +592,13 @@ public class GameController implements GameEventListener, GameNetworkController.
 
     @Override
     public void onGameOver(boolean playerWon, int playerHP, int opponentHP) {
+        if (recorder != null && client == null) {
+            recorder.recordEvent(MatchRecorder.EVENT_GAME_OVER, playerWon ? "ВЫ ПОБЕДИЛИ!" : "ВЫ ПРОИГРАЛИ.");
+        }
+        if (hintEvaluator != null) hintEvaluator.cancel();
         Platform.runLater(() -> {
             stopTimer();
+            clearHint();
             updateTurnVisualsDisableAll();
 
             if (playerWon) {
@@ -583,6 +648,7 @@ public class GameController implements GameEventListener, GameNetworkController.
     @Override
     public void onGameOver(String result) {
         Platform.runLater(() -> {
+            turnDeadline = null;
             stopTimer();
             updateTurnVisualsDisableAll();
 
@@ -600,6 +666,14 @@ public class GameController implements GameEventListener, GameNetworkController.
         });
     }
 
+    @Override
+    public void onTurnDeadline(long millis) {
+        Platform.runLater(() -> {
+            turnDeadline = Instant.now().plusMillis(millis);
+            updateTimerLabel();
+        });
+    }
+
     @Override
     public void onPlayerInfo(String info) {
         Platform.runLater(() -> {
@@ -685,15 +759,185 @@ public class GameController implements GameEventListener, GameNetworkController.
         }
     }
 
+    /**
+     * Ответ сервера на ход: при ACK состояние уже пришло, при отказе или таймауте возвращаем карты.
+     */
+    private void onCardCommandDone(Throwable error) {
+        if (error == null) return;
+        Platform.runLater(() -> {
+            chatService.addChatMessage("Система", "⚠ Ход не принят: " + describe(error));
+            setPlayerCardsEnabled(isMyTurn);
+        });
+    }
+
+    private static String describe(Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        if (cause instanceof TimeoutException) return "сервер не ответил вовремя";
+        return cause.getMessage();
+    }
+
     public void setClient(Client client) {
         this.client = client;
         if (client != null) {
             this.networkController = new GameNetworkController(client, this);
+            this.networkController.setRecorder(recorder);
             serverTurnKnown = null;
+            if (client.isSpectator()) {
+                gameMessageField.setDisable(true);
+                gameMessageField.setPromptText("👁 Зрители не пишут в чат игроков");
+            } else if (SHOW_RTT && rttLabel == null) {
+                setupRttIndicator(); // зритель ничего не шлет — и RTT у него не замерить
+            }
+        }
+    }
+
+    /**
+     * RTT и джиттер в нижней панели раз в секунду; в подсказке — смещение часов и задержка очереди FX.
+     */
+    private void setupRttIndicator() {
+        rttLabel = new Label("📶 RTT —");
+        rttLabel.getStyleClass().add("timer-label");
+        Tooltip details = new Tooltip();
+        rttLabel.setTooltip(details);
+        rttRefresh = new Timeline(new KeyFrame(Duration.seconds(1), e -> {
+            if (client == null) return;
+            long rtt = client.getRttMillis();
+            rttLabel.setText(rtt < 0 ? "📶 RTT —" : String.format("📶 RTT %d мс ±%d", rtt, client.getJitterMillis()));
+            details.setText(String.format("Смещение часов сервера: %d мс%nОчередь FX p99: %.1f мс",
+                client.getClockOffsetMillis(), client.getFxDelay().percentile(0.99) / 1e6));
+        }));
+        rttRefresh.setCycleCount(Timeline.INDEFINITE);
+        rttRefresh.play();
+        bottomBar.getChildren().add(rttLabel);
+    }
+
+    // === Повторы ===
+
+    private void startRecording() {
+        try {
+            recorder = MatchRecorder.createDefault();
+            if (networkController != null) networkController.setRecorder(recorder);
+        } catch (IOException e) {
+            System.err.println("❌ Запись повтора отключена: " + e.getMessage());
+            recorder = null;
+        }
+    }
+
+    /**
+     * В одиночной игре состояние берем из engine (в сетевой его пишет GameNetworkController).
+     */
+    private void recordLocalState() {
+        if (recorder == null || client != null || engine == null || engine.getPlayer() == null) return;
+        boolean playerTurn = engine.isPlayerTurn();
+        recorder.recordState(new GameState(engine.getPlayer(), engine.getOpponent(), playerTurn,
+            playerTurn ? "🎯 ВАШ ХОД" : "⏳ ХОД ПРОТИВНИКА"));
+    }
+
+    private void startReplay() {
+        chatService.addChatMessage("📼 Повтор", "Ходов в записи: " + replay.getTurnCount());
+        if (replay.getTurnCount() == 0) {
+            updateTurnVisualsDisableAll();
+            return;
         }
+
+        replayTurnLabel = new Label();
+        replayTurnLabel.getStyleClass().add("timer-label");
+        replaySlider = new Slider(0, replay.getTurnCount() - 1, 0);
+        replaySlider.setMajorTickUnit(1);
+        replaySlider.setMinorTickCount(0);
+        replaySlider.setSnapToTicks(true);
+        replaySlider.setBlockIncrement(1);
+        replaySlider.setPrefWidth(420);
+        replaySlider.valueProperty().addListener((obs, oldVal, newVal) -> {
+            if (oldVal.intValue() != newVal.intValue()) showReplayTurn(newVal.intValue());
+        });
+        bottomBar.getChildren().addAll(0, List.of(replayTurnLabel, replaySlider));
+
+        showReplayTurn(0);
+    }
+
+    private void showReplayTurn(int turn) {
+        try {
+            MatchReplay.Frame frame = replay.frameAt(turn);
+            replayTurnLabel.setText(String.format("Ход %d / %d", turn + 1, replay.getTurnCount()));
+
+            applyInitialGameState(frame.getState());
+            stopTimer();
+            long secs = frame.getTimeMillis() / 1000;
+            gameTimerLabel.setText(String.format("%02d:%02d", secs / 60, secs % 60));
+
+            chatService.clear();
+            for (String event : frame.getEvents()) {
+                chatService.addChatMessage("📼", event);
+            }
+        } catch (IOException e) {
+            chatService.addChatMessage("Система", "Ошибка чтения повтора: " + e.getMessage());
+        }
+    }
+
+    // === Подсказка ===
+
+    /**
+     * Кнопка подсказки в нижней панели. Расчет идет в фоне (HintEvaluator), FX-поток только
+     * подсвечивает карту и обновляет подпись.
+     */
+    private void setupHints() {
+        hintEvaluator = new HintEvaluator(CardRules.ENGINE, this::showHint);
+        hintToggle = new ToggleButton("💡 Подсказка");
+        hintLabel = new Label();
+        hintLabel.getStyleClass().add("timer-label");
+        hintToggle.selectedProperty().addListener((obs, oldVal, on) -> {
+            hintsEnabled = on;
+            if (on) {
+                requestHint();
+            } else {
+                hintEvaluator.cancel();
+                clearHint();
+            }
+        });
+        bottomBar.getChildren().addAll(0, List.of(hintToggle, hintLabel));
+    }
+
+    /**
+     * Перезапуск оценки при новом состоянии. Вызывается из потока движка — копии игроков снимаются здесь же.
+     */
+    private void requestHint() {
+        if (hintEvaluator == null || !hintsEnabled || client != null || engine == null) return;
+        Player player = engine.getPlayer();
+        Player opponent = engine.getOpponent();
+        if (player == null || opponent == null || !engine.isPlayerTurn()) {
+            hintEvaluator.cancel();
+            Platform.runLater(this::clearHint);
+            return;
+        }
+        hintEvaluator.request(player, opponent);
+    }
+
+    private void showHint(HintEvaluator.Estimate estimate) {
+        if (!hintsEnabled) return;
+        var cards = playerCardsContainer.getChildren();
+        for (int i = 0; i < cards.size(); i++) {
+            var styles = cards.get(i).getStyleClass();
+            if (i == estimate.getBestIndex()) {
+                if (!styles.contains("hint-card")) styles.add("hint-card");
+            } else {
+                styles.remove("hint-card");
+            }
+        }
+        hintLabel.setText(String.format("%s: %.0f%% побед%s", estimate.getBestCard().getName(),
+            estimate.getBestWinRate() * 100, estimate.isFinished() ? "" : " …"));
+    }
+
+    private void clearHint() {
+        if (hintLabel == null) return;
+        for (var node : playerCardsContainer.getChildren()) {
+            node.getStyleClass().remove("hint-card");
+        }
+        hintLabel.setText("");
     }
 
     private void startSinglePlayer() {
+        setupHints();
         engine.startSinglePlayer();
         isMyTurn = engine.isPlayerTurn();
         updateTurnVisuals();
@@ -728,7 +972,12 @@ public class GameController implements GameEventListener, GameNetworkController.
         long elapsed = java.time.Duration.between(timerStart, Instant.now()).getSeconds();
         long mins = elapsed / 60;
         long secs = elapsed % 60;
-        gameTimerLabel.setText(String.format("%02d:%02d", mins, secs));
+        String text = String.format("%02d:%02d", mins, secs);
+        if (turnDeadline != null) {
+            long left = Math.max(0, java.time.Duration.between(Instant.now(), turnDeadline).getSeconds());
+            text += " · ⏰ " + left + " с";
+        }
+        gameTimerLabel.setText(text);
     }
 
     @FXML
@@ -737,11 +986,11 @@ public class GameController implements GameEventListener, GameNetworkController.
         if (msg.isEmpty()) return;
 
         if (client != null) {
-            if (networkController != null) {
-                networkController.sendChat(msg);
-            } else if (client.isConnected()) {
-                client.sendChatMessage(msg);
-            }
+            CompletableFuture<Void> sent = networkController != null
+                ? networkController.sendChat(msg) : client.sendChatMessage(msg);
+            sent.whenComplete((ok, error) -> {
+                if (error != null) chatService.addChatMessage("Система", "⚠ Сообщение не доставлено: " + describe(error));
+            });
         }
 
         chatService.addChatMessage("Вы", msg);
@@ -783,6 +1032,7 @@ public class GameController implements GameEventListener, GameNetworkController.
 
         if (alert.showAndWait().orElse(ButtonType.CANCEL) == ButtonType.OK) {
             if (client == null) {
+                if (engine != null) engine.surrender();
                 onGameOver(false, 0, 0);
             } else {
                 if (networkController != null) {
@@ -810,8 +1060,10 @@ public class GameController implements GameEventListener, GameNetworkController.
 
     private void updateTurnVisuals() {
         boolean enabled;
-        if (client != null) {
-            enabled = (serverTurnKnown == null) ? true : isMyTurn;
+        if (replay != null) {
+            enabled = false;
+        } else if (client != null) {
+            enabled = !client.isSpectator() && ((serverTurnKnown == null) ? true : isMyTurn);
         } else {
             enabled = (engine != null && engine.isPlayerTurn());
         }
@@ -821,7 +1073,8 @@ public class GameController implements GameEventListener, GameNetworkController.
             node.setOpacity(enabled ? 1.0 : 0.45);
         }
 
-        turnIndicator.setText(enabled ? "Ваш ход" : "Ход противника");
+        turnIndicator.setText(client != null && client.isSpectator() ? "👁 Наблюдение"
+            : enabled ? "Ваш ход" : "Ход противника");
     }
 
     private void updateTurnVisualsDisableAll() {
@@ -833,13 +1086,15 @@ public class GameController implements GameEventListener, GameNetworkController.
     }
 
     private void setPlayerCardsEnabled(boolean enabled) {
+        if (client != null && client.isSpectator()) enabled = false; // зритель только смотрит
         this.isMyTurn = enabled;
         if (client != null) serverTurnKnown = enabled ? true : null;
         for (var node : playerCardsContainer.getChildren()) {
             node.setDisable(!enabled);
             node.setOpacity(enabled ? 1.0 : 0.45);
         }
-        turnIndicator.setText(enabled ? "Ваш ход" : "Ход противника");
+        turnIndicator.setText(client != null && client.isSpectator() ? "👁 Наблюдение"
+            : enabled ? "Ваш ход" : "Ход противника");
     }
 
     private void showGameOverDialog(String message, boolean isVictory) {
@@ -864,8 +1119,33 @@ public class GameController implements GameEventListener, GameNetworkController.
 
     public void cleanup() {
         stopTimer();
+        if (engine != null) engine.shutdown();
+
+        if (hintEvaluator != null) {
+            hintEvaluator.shutdown();
+            hintEvaluator = null;
+            hintsEnabled = false;
+            bottomBar.getChildren().removeAll(hintToggle, hintLabel);
+        }
         indicatorAnimation.stop();
         victoryPulseAnimation.stop();
+        if (rttRefresh != null) {
+            rttRefresh.stop();
+            bottomBar.getChildren().remove(rttLabel);
+            rttRefresh = null;
+            rttLabel = null;
+        }
+
+        if (recorder != null) {
+            recorder.close();
+            recorder = null;
+        }
+        if (replay != null) {
+            try {
+                replay.close();
+            } catch (IOException ignored) {}
+            replay = null;
+        }
 
         if (networkController != null) {
             networkController.shutdown();
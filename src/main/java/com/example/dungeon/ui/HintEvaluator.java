@@ -0,0 +1,198 @@
+package com.example.dungeon.ui;
+
+import com.example.dungeon.game.Card;
+import com.example.dungeon.game.CardRules;
+import com.example.dungeon.game.CardType;
+import com.example.dungeon.game.Player;
+import javafx.application.Platform;
+
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * HintEvaluator — фоновая оценка "лучшей карты" для подсказки в одиночной игре.
+ *  - каждый новый запрос отменяет предыдущий; запуск откладывается на DEBOUNCE_MILLIS,
+ *    поэтому серия обновлений (здоровье + рука + статус) дает один расчет
+ *  - оценка — случайные доигрывания (rollouts) после каждой карты руки, по кругу;
+ *    чем дольше считается, тем точнее процент побед
+ *  - промежуточные результаты публикуются не чаще раза в PUBLISH_MILLIS и склеиваются:
+ *    в очереди FX-потока никогда не больше одной задачи подсказки
+ */
+public class HintEvaluator {
+
+    private static final long DEBOUNCE_MILLIS = 150;
+    private static final long PUBLISH_MILLIS = 120;
+    private static final long MAX_MILLIS = 3000;
+    private static final int MAX_ROLLOUTS_PER_CARD = 5000;
+    private static final int MAX_PLIES = 60;
+    private static final int HAND_LIMIT = 7;
+
+    /**
+     * Текущая оценка: лучшая карта (индекс в руке) и доля побед для каждой карты.
+     */
+    public static class Estimate {
+        private final int generation;
+        private final int bestIndex;
+        private final Card bestCard;
+        private final double[] winRates;
+        private final int rollouts;
+        private final boolean finished;
+
+        Estimate(int generation, int bestIndex, Card bestCard, double[] winRates, int rollouts, boolean finished) {
+            this.generation = generation;
+            this.bestIndex = bestIndex;
+            this.bestCard = bestCard;
+            this.winRates = winRates;
+            this.rollouts = rollouts;
+            this.finished = finished;
+        }
+
+        public int getBestIndex() { return bestIndex; }
+        public Card getBestCard() { return bestCard; }
+        public double getBestWinRate() { return winRates[bestIndex]; }
+        public int getRollouts() { return rollouts; }
+        public boolean isFinished() { return finished; }
+    }
+
+    private final CardRules rules;
+    private final Consumer<Estimate> onEstimate;
+    private final ScheduledExecutorService executor;
+    private final AtomicInteger generation = new AtomicInteger();
+    private final AtomicReference<Estimate> pending = new AtomicReference<>();
+    private Future<?> current;
+
+    // По одной карте каждого типа — для добора в доигрываниях без лишних аллокаций
+    private final Card[] drawPool;
+
+    public HintEvaluator(CardRules rules, Consumer<Estimate> onEstimate) {
+        this.rules = rules;
+        this.onEstimate = onEstimate;
+        this.executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "Hint-Evaluator");
+            t.setDaemon(true);
+            t.setPriority(Thread.MIN_PRIORITY); // подсказка не должна отнимать CPU у UI
+            return t;
+        });
+
+        CardType[] types = CardType.values();
+        this.drawPool = new Card[types.length];
+        for (int i = 0; i < types.length; i++) {
+            drawPool[i] = new Card(types[i], types[i].name());
+        }
+    }
+
+    /**
+     * Новая позиция: игрок self ходит против opponent. Копии снимаются сразу, в вызывающем потоке.
+     */
+    public synchronized void request(Player self, Player opponent) {
+        if (executor.isShutdown()) return;
+        Player me = self.copy();
+        Player them = opponent.copy();
+        int gen = cancelCurrent();
+        if (me.getHand().isEmpty()) return;
+        current = executor.schedule(() -> evaluate(gen, me, them), DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Отменяет текущий расчет; уже отправленные в FX-поток результаты будут отброшены.
+     */
+    public synchronized void cancel() {
+        cancelCurrent();
+    }
+
+    private int cancelCurrent() {
+        if (current != null) {
+            current.cancel(true);
+            current = null;
+        }
+        return generation.incrementAndGet();
+    }
+
+    public boolean isCurrent(Estimate estimate) {
+        return estimate.generation == generation.get();
+    }
+
+    public synchronized void shutdown() {
+        cancelCurrent();
+        executor.shutdownNow();
+    }
+
+    private void evaluate(int gen, Player self, Player opponent) {
+        List<Card> hand = self.getHand();
+        int n = hand.size();
+        int[] wins = new int[n];
+        int[] games = new int[n];
+        ThreadLocalRandom rnd = ThreadLocalRandom.current();
+
+        long start = System.nanoTime();
+        long nextPublish = start + TimeUnit.MILLISECONDS.toNanos(PUBLISH_MILLIS);
+        long end = start + TimeUnit.MILLISECONDS.toNanos(MAX_MILLIS);
+        int total = 0;
+
+        while (true) {
+            // По кругу по картам — все оценки уточняются равномерно
+            for (int i = 0; i < n; i++) {
+                if (rollout(hand.get(i), self, opponent, rnd)) wins[i]++;
+                games[i]++;
+            }
+            total += n;
+
+            if (Thread.currentThread().isInterrupted() || generation.get() != gen) return;
+
+            long now = System.nanoTime();
+            boolean finished = games[0] >= MAX_ROLLOUTS_PER_CARD || now - end > 0;
+            if (finished || now - nextPublish > 0) {
+                publish(gen, hand, wins, games, total, finished);
+                nextPublish = now + TimeUnit.MILLISECONDS.toNanos(PUBLISH_MILLIS);
+            }
+            if (finished) return;
+        }
+    }
+
+    /**
+     * Одно случайное доигрывание после карты first: true, если игрок победил.
+     */
+    private boolean rollout(Card first, Player self, Player opponent, ThreadLocalRandom rnd) {
+        Player me = self.copy();
+        Player them = opponent.copy();
+        me.getHand().remove(first);
+        rules.apply(first, me, them);
+
+        for (int ply = 0; ply < MAX_PLIES && me.isAlive() && them.isAlive(); ply++) {
+            boolean myMove = (ply % 2 == 1);
+            Player caster = myMove ? me : them;
+            Player target = myMove ? them : me;
+
+            if (myMove && me.getHand().size() < HAND_LIMIT) {
+                me.getHand().add(drawPool[rnd.nextInt(drawPool.length)]);
+            }
+            List<Card> casterHand = caster.getHand();
+            Card card = casterHand.isEmpty()
+                ? drawPool[rnd.nextInt(Math.min(3, drawPool.length))] // как в GameEngine: пустая рука — базовая карта
+                : casterHand.remove(rnd.nextInt(casterHand.size()));
+            rules.apply(card, caster, target);
+        }
+        return me.isAlive() && !them.isAlive();
+    }
+
+    private void publish(int gen, List<Card> hand, int[] wins, int[] games, int total, boolean finished) {
+        double[] rates = new double[wins.length];
+        int best = 0;
+        for (int i = 0; i < wins.length; i++) {
+            rates[i] = games[i] == 0 ? 0 : (double) wins[i] / games[i];
+            if (rates[i] > rates[best]) best = i;
+        }
+
+        // Склейка: если FX-поток еще не забрал прошлую оценку, просто подменяем ее
+        Estimate estimate = new Estimate(gen, best, hand.get(best), rates, total, finished);
+        if (pending.getAndSet(estimate) == null) {
+            Platform.runLater(() -> {
+                Estimate latest = pending.getAndSet(null);
+                if (latest != null && isCurrent(latest)) onEstimate.accept(latest);
+            });
+        }
+    }
+}
@@ -1,6 +1,8 @@
 package com.example.dungeon.ui;
 
 import com.example.dungeon.game.GameState;
+import com.example.dungeon.game.MatchRecorder;
+import com.example.dungeon.game.MatchReplay;
 import com.example.dungeon.network.*;
 import javafx.application.Platform;
 import javafx.fxml.FXML;
@@ -8,9 +10,11 @@ import javafx.fxml.FXMLLoader;
 import javafx.scene.Parent;
 import javafx.scene.Scene;
 import javafx.scene.control.*;
+import javafx.stage.FileChooser;
 import javafx.stage.Stage;
 import lombok.Getter;
 
+import java.io.File;
 import java.io.IOException;
 import java.lang.reflect.Method;
 import java.time.format.DateTimeFormatter;
@@ -34,6 +38,8 @@ public class MainMenuController {
     private Thread serverThread;
     private boolean isServerCreated = false;
     private boolean isClientConnected = false;
+    // Рейтинг для подбора: учетных записей нет, так что его задает сам игрок
+    private static final int MATCH_RATING = Integer.getInteger("dungeon.match.rating", 1000);
 
     // Компоненты, вынесенные в отдельные классы
     private ChatService chatService;
@@ -121,6 +127,26 @@ public class MainMenuController {
 
     @FXML
     private void connectToServer() {
+        connect(false, false);
+    }
+
+    /**
+     * Зритель: подключение к идущему матчу только на просмотр.
+     */
+    @FXML
+    private void spectateServer() {
+        connect(true, false);
+    }
+
+    /**
+     * Подбор: по адресу — MatchmakingServer, соперника и комнату находит он.
+     */
+    @FXML
+    private void findMatch() {
+        connect(false, true);
+    }
+
+    private void connect(boolean spectator, boolean matchmaking) {
         if (isClientConnected) {
             chatService.addChatMessage("⚠️ Система", "Уже подключено к серверу");
             return;
@@ -132,10 +158,13 @@ public class MainMenuController {
         }
 
         try {
-            chatService.addChatMessage("🔄 Система", "Подключение к " + ip + "...");
+            chatService.addChatMessage("🔄 Система", (spectator ? "Подключение зрителем к "
+                : matchmaking ? "Поиск соперника через " : "Подключение к ") + ip + "...");
 
             // Создаём клиент
-            client = new Client(ip, 12345, null);
+            client = new Client(ip, matchmaking ? MatchmakingServer.DEFAULT_PORT : 12345, null);
+            client.setSpectator(spectator);
+            if (matchmaking) client.setMatchmaking(MATCH_RATING, null);
 
             // Создаем GameNetworkController с нашим handler
             networkController = new GameNetworkController(client, networkHandler);
@@ -258,8 +287,8 @@ public class MainMenuController {
 
             // Создаём сцену игры
             Stage gameStage = new Stage();
-            String title = "Dungeon Mayhem - " +
-                (client != null && isClientConnected ? "Сетевая битва!" : "Одиночная игра");
+            String title = "Dungeon Mayhem - " + (client != null && isClientConnected
+                ? (client.isSpectator() ? "Наблюдение" : "Сетевая битва!") : "Одиночная игра");
 
             gameStage.setTitle(title);
             gameStage.setScene(new Scene(root, 1200, 800)); // Увеличили размер
@@ -284,6 +313,44 @@ public class MainMenuController {
         }
     }
 
+    @FXML
+    private void openReplay() {
+        FileChooser chooser = new FileChooser();
+        chooser.setTitle("Открыть повтор");
+        chooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("Повторы Dungeon Mayhem", "*.dmr"));
+        File dir = MatchRecorder.defaultDirectory().toFile();
+        if (dir.isDirectory()) chooser.setInitialDirectory(dir);
+
+        File file = chooser.showOpenDialog(chatArea.getScene().getWindow());
+        if (file == null) return;
+
+        try {
+            MatchReplay replay = MatchReplay.open(file.toPath());
+
+            // Повтор передаем до initialize(), иначе контроллер запустит одиночную игру
+            FXMLLoader loader = new FXMLLoader(getClass().getResource("/fxml/game.fxml"));
+            loader.setControllerFactory(type -> {
+                GameController controller = new GameController();
+                controller.setReplay(replay);
+                return controller;
+            });
+            Parent root = loader.load();
+
+            Stage replayStage = new Stage();
+            replayStage.setTitle("Dungeon Mayhem - Повтор: " + file.getName());
+            replayStage.setScene(new Scene(root, 1200, 800));
+            replayStage.setMinWidth(1000);
+            replayStage.setMinHeight(700);
+            setupGameStageCloseHandler(replayStage, loader.getController());
+            replayStage.show();
+
+            Stage mainStage = (Stage) chatArea.getScene().getWindow();
+            mainStage.hide();
+        } catch (IOException e) {
+            showError("Не удалось открыть повтор: " + e.getMessage());
+        }
+    }
+
     private void setupGameStageCloseHandler(Stage gameStage, Object controller) {
         gameStage.setOnCloseRequest(event -> {
             System.out.println("Закрытие игрового окна");
@@ -84,4 +84,9 @@ public class MenuNetworkHandler implements GameNetworkController.NetworkListener
     public void onPlayerInfo(String info) {
         menuController.addChatMessage("Система", "🎭 " + info);
     }
+
+    @Override
+    public void onPredictionCorrected(GameState predicted, GameState authoritative) {
+        // Не используется в меню
+    }
 }
@@ -4,6 +4,8 @@ module com.example.dungeon_mayhem {
     requires javafx.graphics;
     requires javafx.base;
     requires static lombok;
+    // Сигналы нагрузки для допуска соединений (AdmissionControl): занятость кучи после сборки
+    requires java.management;
 
     // FXMLLoader должен иметь доступ к контроллерам через reflection
     opens com.example.dungeon.ui to javafx.fxml;
@@ -15,4 +17,13 @@ module com.example.dungeon_mayhem {
     exports com.example.dungeon;
     exports com.example.dungeon.ui;
     exports com.example.dungeon.network;
+    exports com.example.dungeon.game;
+
+    // Стратегии ИИ: встроенные и из сторонних модулей
+    uses com.example.dungeon.game.AiStrategyProvider;
+    provides com.example.dungeon.game.AiStrategyProvider with
+        com.example.dungeon.game.BuiltinStrategies.Random,
+        com.example.dungeon.game.BuiltinStrategies.Greedy,
+        com.example.dungeon.game.BuiltinStrategies.Model,
+        com.example.dungeon.game.BuiltinStrategies.Lookahead;
 }